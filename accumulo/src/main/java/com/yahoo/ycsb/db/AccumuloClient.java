@@ -35,6 +35,7 @@ import com.yahoo.ycsb.ByteArrayByteIterator;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.ScanConsumer;
 
 public class AccumuloClient extends DB {
 	// Error code constants.
@@ -200,6 +201,16 @@ public class AccumuloClient extends DB {
 	@Override
 	public int scan(String table, String startkey, int recordcount,
 			Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+		return streamScan(table, startkey, recordcount, fields, collectInto(result));
+	}
+
+	/**
+	 * Scan rows, passing each one to the consumer as soon as the scanner
+	 * moves past its last entry.
+	 */
+	@Override
+	public int streamScan(String table, String startkey, int recordcount,
+			Set<String> fields, ScanConsumer consumer) {
 		try {
 			checkTable(table);
 		} catch (TableNotFoundException e) {
@@ -236,6 +247,12 @@ public class AccumuloClient extends DB {
 		for (Entry<Key, Value> entry : _scanScanner) {
 			// Check for a new row.
 			if (!rowKey.equals(entry.getKey().getRow().toString())) {
+				// The previous row is complete.
+				if (currentHM != null && !consumer.consume(rowKey, currentHM)) {
+					currentHM = null;
+					break;
+				}
+				currentHM = null;
 				if (count++ == recordcount) { // Done reading the last row.
 					break;
 				}
@@ -249,13 +266,15 @@ public class AccumuloClient extends DB {
 					// An empty result map.
 					currentHM = new HashMap<String, ByteIterator>();
 				}
-				result.add(currentHM);
 			}
 			// Now add the key to the hashmap.
 			Value v = entry.getValue();
 		    byte[] buf = v.get();
 			currentHM.put(entry.getKey().getColumnQualifier().toString(), new ByteArrayByteIterator(buf));
 		}
+		if (currentHM != null) {
+			consumer.consume(rowKey, currentHM);
+		}
 
 		return Ok;
 
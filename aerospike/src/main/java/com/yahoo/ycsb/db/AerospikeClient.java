@@ -179,6 +179,24 @@ public class AerospikeClient extends com.yahoo.ycsb.DB {
     return write(table, key, insertPolicy, values);
   }
 
+  @Override
+  public int update(String table, String key,
+      HashMap<String, ByteIterator> values, int ttl) {
+    return write(table, key, expiring(updatePolicy, ttl), values);
+  }
+
+  @Override
+  public int insert(String table, String key,
+      HashMap<String, ByteIterator> values, int ttl) {
+    return write(table, key, expiring(insertPolicy, ttl), values);
+  }
+
+  private static WritePolicy expiring(WritePolicy writePolicy, int ttl) {
+    WritePolicy policy = new WritePolicy(writePolicy);
+    policy.expiration = ttl;
+    return policy;
+  }
+
   @Override
   public int delete(String table, String key) {
     try {
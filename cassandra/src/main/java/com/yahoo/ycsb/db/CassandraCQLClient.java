@@ -352,6 +352,37 @@ public class CassandraCQLClient extends DB {
      */
     @Override
     public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+        return insert(table, key, values, 0);
+    }
+
+    /**
+     * Update a record in the database with a TTL, which is the same as
+     * inserting it.
+     *
+     * @param table The name of the table
+     * @param key The record key of the record to write.
+     * @param values A HashMap of field/value pairs to update in the record
+     * @param ttl The time to live of the record in seconds.
+     * @return Zero on success, a non-zero error code on error
+     */
+    @Override
+    public int update(String table, String key, HashMap<String, ByteIterator> values, int ttl) {
+        //Insert and updates provide the same functionality
+        return insert(table, key, values, ttl);
+    }
+
+    /**
+     * Insert a record in the database with USING TTL, so that Cassandra
+     * expires its columns ttl seconds later.
+     *
+     * @param table The name of the table
+     * @param key The record key of the record to insert.
+     * @param values A HashMap of field/value pairs to insert in the record
+     * @param ttl The time to live of the record in seconds, 0 for none.
+     * @return Zero on success, a non-zero error code on error
+     */
+    @Override
+    public int insert(String table, String key, HashMap<String, ByteIterator> values, int ttl) {
 
         try {
             Insert insertStmt = QueryBuilder.insertInto(table);
@@ -368,6 +399,10 @@ public class CassandraCQLClient extends DB {
                 insertStmt.value(entry.getKey(), value);
             }
 
+            if (ttl > 0) {
+                insertStmt.using(QueryBuilder.ttl(ttl));
+            }
+
             insertStmt.setConsistencyLevel(writeConsistencyLevel);
 
             if (_debug) {
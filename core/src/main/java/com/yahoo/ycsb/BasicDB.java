@@ -169,6 +169,43 @@ public class BasicDB extends DB
 		return 0;
 	}
 
+	/**
+	 * Query the records by a secondary attribute.
+	 *
+	 * @param table The name of the table
+	 * @param field The field to filter on.
+	 * @param lowvalue The lowest value of the field, inclusive.
+	 * @param highvalue The highest value of the field, inclusive.
+	 * @param limit The largest number of records to return.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result A Vector of HashMaps, where each HashMap is a set field/value pairs for one record
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int query(String table, String field, String lowvalue, String highvalue, int limit, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		delay();
+
+		if (verbose)
+		{
+			System.out.print("QUERY "+table+" "+field+" "+lowvalue+" "+highvalue+" "+limit+" [ ");
+			if (fields!=null)
+			{
+				for (String f : fields)
+				{
+					System.out.print(f+" ");
+				}
+			}
+			else
+			{
+				System.out.print("<all fields>");
+			}
+
+			System.out.println("]");
+		}
+
+		return 0;
+	}
+
 	/**
 	 * Update a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
 	 * record key, overwriting any existing values with the same field name.
@@ -248,6 +285,136 @@ public class BasicDB extends DB
 		return 0;
 	}
 
+	/**
+	 * Update a record in the database, making it expire ttl seconds later.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to write.
+	 * @param values A HashMap of field/value pairs to update in the record
+	 * @param ttl The time to live of the record in seconds.
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int update(String table, String key, HashMap<String,ByteIterator> values, int ttl)
+	{
+		if (verbose)
+		{
+			System.out.print("TTL "+ttl+" ");
+		}
+		return update(table,key,values);
+	}
+
+	/**
+	 * Insert a record in the database, making it expire ttl seconds later.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to insert.
+	 * @param values A HashMap of field/value pairs to insert in the record
+	 * @param ttl The time to live of the record in seconds.
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int insert(String table, String key, HashMap<String,ByteIterator> values, int ttl)
+	{
+		if (verbose)
+		{
+			System.out.print("TTL "+ttl+" ");
+		}
+		return insert(table,key,values);
+	}
+
+	/**
+	 * Atomically set a field of a record to a new value if its current value is the expected one.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to write.
+	 * @param field The field to compare and set.
+	 * @param expected The value the field must have for the write to happen.
+	 * @param value The new value of the field.
+	 * @return Zero on success, COMPARE_FAILED if the field did not have the expected value, another non-zero error code on error.
+	 */
+	public int compareAndSet(String table, String key, String field, ByteIterator expected, ByteIterator value)
+	{
+		delay();
+
+		if (verbose)
+		{
+			System.out.println("CAS "+table+" "+key+" [ "+field+"="+expected+" -> "+value+" ]");
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Atomically add delta to a field of a record holding a decimal number.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to write.
+	 * @param field The field to increment.
+	 * @param delta The amount to add.
+	 * @return Zero on success, a non-zero error code on error.
+	 */
+	public int increment(String table, String key, String field, long delta)
+	{
+		delay();
+
+		if (verbose)
+		{
+			System.out.println("INCREMENT "+table+" "+key+" [ "+field+"+="+delta+" ]");
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Start a transaction.
+	 *
+	 * @return Zero on success, a non-zero error code on error.
+	 */
+	public int beginTransaction()
+	{
+		delay();
+
+		if (verbose)
+		{
+			System.out.println("BEGIN");
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Commit a transaction.
+	 *
+	 * @return Zero on success, a non-zero error code on error.
+	 */
+	public int commitTransaction()
+	{
+		delay();
+
+		if (verbose)
+		{
+			System.out.println("COMMIT");
+		}
+
+		return 0;
+	}
+
+	/**
+	 * Roll back a transaction.
+	 *
+	 * @return Zero on success, a non-zero error code on error.
+	 */
+	public int abortTransaction()
+	{
+		delay();
+
+		if (verbose)
+		{
+			System.out.println("ABORT");
+		}
+
+		return 0;
+	}
+
 	/**
 	 * Short test of BasicDB
 	 */
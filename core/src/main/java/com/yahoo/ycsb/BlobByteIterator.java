@@ -0,0 +1,79 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.Random;
+
+/**
+ * A ByteIterator for large values, e.g. multi-megabyte blobs. Rather than drawing a random number
+ * per few bytes like RandomByteIterator, it copies chunks of a block of random printable bytes
+ * generated once, starting at a random offset, so nextBuf() runs at memory copy speed. The block
+ * is larger than the windows of the usual block compressors, so values do not compress much
+ * better than random data.
+ */
+public class BlobByteIterator extends ByteIterator {
+  static final int BLOCK_SIZE = 1 << 20;
+  static final byte[] BLOCK = new byte[BLOCK_SIZE];
+
+  static {
+    Random random = new Random();
+    for (int i = 0; i < BLOCK_SIZE; i++) {
+      BLOCK[i] = (byte)(' ' + random.nextInt(95));
+    }
+  }
+
+  private final long len;
+  private long off;
+  private int pos;
+
+  public BlobByteIterator(long len) {
+    this.len = len;
+    this.pos = Utils.random().nextInt(BLOCK_SIZE);
+  }
+
+  @Override
+  public boolean hasNext() {
+    return off < len;
+  }
+
+  @Override
+  public byte nextByte() {
+    byte b = BLOCK[pos];
+    pos = (pos + 1) % BLOCK_SIZE;
+    off++;
+    return b;
+  }
+
+  @Override
+  public int nextBuf(byte[] buf, int buf_off) {
+    int end = buf_off + (int)Math.min(len - off, buf.length - buf_off);
+    while (buf_off < end) {
+      int n = Math.min(end - buf_off, BLOCK_SIZE - pos);
+      System.arraycopy(BLOCK, pos, buf, buf_off, n);
+      buf_off += n;
+      off += n;
+      pos = (pos + n) % BLOCK_SIZE;
+    }
+    return buf_off;
+  }
+
+  @Override
+  public long bytesLeft() {
+    return len - off;
+  }
+}
@@ -33,7 +33,10 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.LockSupport;
 
+import org.HdrHistogram.Histogram;
+
 import com.yahoo.ycsb.measurements.Measurements;
+import com.yahoo.ycsb.measurements.ThreadMeasurement;
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
 import com.yahoo.ycsb.measurements.exporter.TextMeasurementsExporter;
 
@@ -53,6 +56,12 @@ class StatusThread extends Thread
   private final String _label;
   private final boolean _standardstatus;
 
+  /** If true the throughput and latency of every client thread is reported as well. */
+  private final boolean _perthread;
+
+  /** The operation count of every client thread at the end of the last interval. */
+  private final long[] _lastThreadOps;
+
   /** The interval for reporting status. */
   private long _sleeptimeNs;
 
@@ -64,15 +73,18 @@ class StatusThread extends Thread
    * @param label The label for the status.
    * @param standardstatus If true the status is printed to stdout in addition to stderr.
    * @param statusIntervalSeconds The number of seconds between status updates.
+   * @param perthread If true the status of every client thread is reported as well.
    */
   public StatusThread(CountDownLatch completeLatch, List<ClientThread> clients,
-      String label, boolean standardstatus, int statusIntervalSeconds)
+      String label, boolean standardstatus, int statusIntervalSeconds, boolean perthread)
   {
     _completeLatch=completeLatch;
     _clients=clients;
     _label=label;
     _standardstatus=standardstatus;
     _sleeptimeNs=TimeUnit.SECONDS.toNanos(statusIntervalSeconds);
+    _perthread=perthread;
+    _lastThreadOps=new long[clients.size()];
   }
 
   /**
@@ -152,6 +164,11 @@ class StatusThread extends Thread
 
     msg.append(Measurements.getMeasurements().getSummary());
 
+    if (_perthread)
+    {
+      appendThreadStats(msg, endIntervalMs-startIntervalMs);
+    }
+
     System.err.println(msg);
 
     if (_standardstatus) {
@@ -160,6 +177,42 @@ class StatusThread extends Thread
     return totalops;
   }
 
+  /**
+   * Appends the throughput and latency of every client thread during this interval, and how
+   * unevenly they are spread across the threads.
+   *
+   * @param msg The status message to append to.
+   * @param intervalMs The length of this interval.
+   */
+  private void appendThreadStats(StringBuilder msg, long intervalMs)
+  {
+    DecimalFormat d = new DecimalFormat("#.##");
+    double[] throughputs=new double[_clients.size()];
+    double[] latencies=new double[_clients.size()];
+
+    for (int i=0; i<_clients.size(); i++)
+    {
+      ClientThread t=_clients.get(i);
+      long ops=t.getOpsDone();
+      throughputs[i]=intervalMs <= 0 ? 0 : 1000.0*((double)(ops-_lastThreadOps[i]))/((double)intervalMs);
+      _lastThreadOps[i]=ops;
+
+      Histogram h=t.getThreadMeasurement().getIntervalHistogram();
+      latencies[i]=h.getTotalCount() == 0 ? 0 : h.getMean();
+      msg.append("\n  [THREAD-").append(t.getThreadId()).append(" ").append(d.format(throughputs[i]))
+          .append(" ops/sec, Avg=").append(d.format(latencies[i]))
+          .append(", 99=").append(h.getValueAtPercentile(99))
+          .append(", Max=").append(h.getMaxValue()).append("]");
+    }
+
+    double[] t=ThreadMeasurement.minMaxStdDev(throughputs);
+    double[] l=ThreadMeasurement.minMaxStdDev(latencies);
+    msg.append("\n  [THREADS Throughput Min=").append(d.format(t[0])).append(", Max=").append(d.format(t[1]))
+        .append(", StdDev=").append(d.format(t[2]))
+        .append("; AverageLatency Min=").append(d.format(l[0])).append(", Max=").append(d.format(l[1]))
+        .append(", StdDev=").append(d.format(l[2])).append("]");
+  }
+
   /**
    * Waits for all of the client to finish or the deadline to expire.
    *
@@ -233,6 +286,12 @@ class ClientThread extends Thread
   /** Counts down each of the clients completing. */
   private final CountDownLatch _completeLatch;
 
+  /** Counts down each of the clients having initialized its DB and workload state. */
+  private final CountDownLatch _initLatch;
+
+  /** Released once every client has initialized, to start the timed phase. */
+  private final CountDownLatch _startLatch;
+
   private static boolean _spinSleep;
   DB _db;
   boolean _dotransactions;
@@ -247,6 +306,8 @@ class ClientThread extends Thread
   Properties _props;
   long _targetOpsTickNs;
   final Measurements _measurements;
+  final ThreadMeasurement _threadMeasurement;
+  final SteadyStateTerminatorThread _steadyState;
 
   /**
    * Constructor.
@@ -258,10 +319,22 @@ class ClientThread extends Thread
    * @param opcount the number of operations (transactions or inserts) to do
    * @param targetperthreadperms target number of operations per thread per ms
    * @param completeLatch The latch tracking the completion of all clients.
+   * @param initLatch The latch tracking the initialization of all clients.
+   * @param startLatch The latch to wait on, after initializing, before doing any operation.
+   * @param threadid the id of this thread, between 0 and threadcount-1
+   * @param threadcount the number of client threads
+   * @param perthread true to measure the latency of the operations done by this thread
+   * @param steadyState the steady state detector to report operation latencies to, or null
    */
-  public ClientThread(DB db, boolean dotransactions, Workload workload, Properties props, int opcount, double targetperthreadperms, CountDownLatch completeLatch)
+  public ClientThread(DB db, boolean dotransactions, Workload workload, Properties props, int opcount, double targetperthreadperms, CountDownLatch completeLatch,
+      CountDownLatch initLatch, CountDownLatch startLatch, int threadid, int threadcount, boolean perthread,
+      SteadyStateTerminatorThread steadyState)
   {
     _db=db;
+    _threadid=threadid;
+    _threadcount=threadcount;
+    _threadMeasurement=perthread ? new ThreadMeasurement() : null;
+    _steadyState=steadyState;
     _dotransactions=dotransactions;
     _workload=workload;
     _opcount=opcount;
@@ -274,6 +347,8 @@ class ClientThread extends Thread
     _measurements = Measurements.getMeasurements();
     _spinSleep = Boolean.valueOf(_props.getProperty("spin.sleep", "false"));
     _completeLatch=completeLatch;
+    _initLatch=initLatch;
+    _startLatch=startLatch;
   }
 
   public int getOpsDone()
@@ -281,28 +356,59 @@ class ClientThread extends Thread
     return _opsdone;
   }
 
+  public int getThreadId()
+  {
+    return _threadid;
+  }
+
+  /**
+   * The latency of the operations done by this thread, or null if they are not measured per thread.
+   */
+  public ThreadMeasurement getThreadMeasurement()
+  {
+    return _threadMeasurement;
+  }
+
   @Override
   public void run()
   {
+    boolean initialized=false;
     try
     {
       _db.init();
+      _workloadstate=_workload.initThread(_props,_threadid,_threadcount);
+      initialized=true;
     }
     catch (DBException e)
     {
       e.printStackTrace();
       e.printStackTrace(System.out);
+    }
+    catch (WorkloadException e)
+    {
+      e.printStackTrace();
+      e.printStackTrace(System.out);
+    }
+    finally
+    {
+      _initLatch.countDown();
+    }
+
+    if (!initialized)
+    {
+      _completeLatch.countDown();
       return;
     }
 
+    //wait for all the clients to be initialized, so connection setup is not part of the timed phase
     try
     {
-      _workloadstate=_workload.initThread(_props,_threadid,_threadcount);
+      _startLatch.await();
     }
-    catch (WorkloadException e)
+    catch (InterruptedException e)
     {
-      e.printStackTrace();
-      e.printStackTrace(System.out);
+      Thread.currentThread().interrupt();
+      _completeLatch.countDown();
       return;
     }
 
@@ -325,6 +431,7 @@ class ClientThread extends Thread
 
         while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
         {
+          long opStartNanos = System.nanoTime();
 
           if (!_workload.doTransaction(_db,_workloadstate))
           {
@@ -333,6 +440,8 @@ class ClientThread extends Thread
 
           _opsdone++;
 
+          measureOp(opStartNanos);
+
           throttleNanos(startTimeNanos);
         }
       }
@@ -342,6 +451,7 @@ class ClientThread extends Thread
 
         while (((_opcount == 0) || (_opsdone < _opcount)) && !_workload.isStopRequested())
         {
+          long opStartNanos = System.nanoTime();
 
           if (!_workload.doInsert(_db,_workloadstate))
           {
@@ -350,6 +460,8 @@ class ClientThread extends Thread
 
           _opsdone++;
 
+          measureOp(opStartNanos);
+
           throttleNanos(startTimeNanos);
         }
       }
@@ -378,6 +490,24 @@ class ClientThread extends Thread
     }
   }
 
+  /**
+   * Report the latency of one operation of this thread, if anything is interested in it.
+   */
+  private void measureOp(long opStartNanos) {
+    if (_threadMeasurement != null || _steadyState != null)
+    {
+      int latency = (int)((System.nanoTime()-opStartNanos)/1000);
+      if (_threadMeasurement != null)
+      {
+        _threadMeasurement.measure(latency);
+      }
+      if (_steadyState != null)
+      {
+        _steadyState.measure(latency);
+      }
+    }
+  }
+
   static void sleepUntil(long deadline) {
     long now = System.nanoTime();
     while((now = System.nanoTime()) < deadline) {
@@ -469,6 +599,12 @@ public class Client
    */
   public static final String MAX_EXECUTION_TIME = "maxexecutiontime";
 
+  /**
+   * If true, the throughput and latency of every client thread (and so of every DB instance) is
+   * reported in the status and at the end of the run, together with the min/max/stddev across threads.
+   */
+  public static final String PER_THREAD_STATS_PROPERTY = "measurement.perthread";
+
 
   public static void usageMessage()
   {
@@ -515,7 +651,8 @@ public class Client
    * loaded from conf.
    * @throws IOException Either failed to write to output stream or failed to close it.
    */
-  private static void exportMeasurements(Properties props, int opcount, long runtime)
+  private static void exportMeasurements(Properties props, int opcount, long inittime, long runtime, List<ClientThread> clients,
+      SteadyStateTerminatorThread steadyState)
       throws IOException
   {
     MeasurementsExporter exporter = null;
@@ -545,11 +682,22 @@ public class Client
         exporter = new TextMeasurementsExporter(out);
       }
 
+      exporter.write("OVERALL", "InitTime(ms)", inittime);
       exporter.write("OVERALL", "RunTime(ms)", runtime);
       double throughput = 1000.0 * (opcount) / (runtime);
       exporter.write("OVERALL", "Throughput(ops/sec)", throughput);
 
       Measurements.getMeasurements().exportMeasurements(exporter);
+
+      if (steadyState != null)
+      {
+        steadyState.exportMeasurements(exporter);
+      }
+
+      if (Boolean.parseBoolean(props.getProperty(PER_THREAD_STATS_PROPERTY, "false")))
+      {
+        exportThreadMeasurements(exporter, runtime, clients);
+      }
     } finally
     {
       if (exporter != null)
@@ -559,6 +707,40 @@ public class Client
     }
   }
 
+  /**
+   * Exports the throughput and latency of every client thread, and how unevenly they are
+   * spread across the threads.
+   */
+  private static void exportThreadMeasurements(MeasurementsExporter exporter, long runtime, List<ClientThread> clients)
+      throws IOException
+  {
+    double[] throughputs = new double[clients.size()];
+    double[] latencies = new double[clients.size()];
+    for (int i = 0; i < clients.size(); i++)
+    {
+      ClientThread t = clients.get(i);
+      Histogram h = t.getThreadMeasurement().getTotalHistogram();
+      String metric = "THREAD-" + t.getThreadId();
+      throughputs[i] = 1000.0 * t.getOpsDone() / runtime;
+      latencies[i] = h.getTotalCount() == 0 ? 0 : h.getMean();
+      exporter.write(metric, "Operations", t.getOpsDone());
+      exporter.write(metric, "Throughput(ops/sec)", throughputs[i]);
+      exporter.write(metric, "AverageLatency(us)", latencies[i]);
+      exporter.write(metric, "MinLatency(us)", h.getMinValue());
+      exporter.write(metric, "MaxLatency(us)", h.getMaxValue());
+      exporter.write(metric, "99thPercentileLatency(us)", h.getValueAtPercentile(99));
+    }
+
+    double[] t = ThreadMeasurement.minMaxStdDev(throughputs);
+    double[] l = ThreadMeasurement.minMaxStdDev(latencies);
+    exporter.write("THREADS", "MinThroughput(ops/sec)", t[0]);
+    exporter.write("THREADS", "MaxThroughput(ops/sec)", t[1]);
+    exporter.write("THREADS", "StdDevThroughput(ops/sec)", t[2]);
+    exporter.write("THREADS", "MinAverageLatency(us)", l[0]);
+    exporter.write("THREADS", "MaxAverageLatency(us)", l[1]);
+    exporter.write("THREADS", "StdDevAverageLatency(us)", l[2]);
+  }
+
   @SuppressWarnings("unchecked")
   public static void main(String[] args)
   {
@@ -735,6 +917,8 @@ public class Client
     }
 
     long maxExecutionTime = Integer.parseInt(props.getProperty(MAX_EXECUTION_TIME, "0"));
+    boolean perthread = Boolean.parseBoolean(props.getProperty(PER_THREAD_STATS_PROPERTY, "false"));
+    boolean detectSteadyState = Boolean.parseBoolean(props.getProperty(SteadyStateTerminatorThread.STEADY_STATE_PROPERTY, "false"));
 
     //get number of threads, target and db
     threadcount=Integer.parseInt(props.getProperty(THREAD_COUNT_PROPERTY,"1"));
@@ -836,7 +1020,14 @@ public class Client
     }
 
     CountDownLatch completeLatch=new CountDownLatch(threadcount);
+    CountDownLatch initLatch=new CountDownLatch(threadcount);
+    CountDownLatch startLatch=new CountDownLatch(1);
     final List<ClientThread> clients=new ArrayList<ClientThread>(threadcount);
+    SteadyStateTerminatorThread steadyState=null;
+    if (dotransactions && detectSteadyState)
+    {
+      steadyState=new SteadyStateTerminatorThread(props, workload);
+    }
     for (int threadid=0; threadid<threadcount; threadid++)
     {
       DB db=null;
@@ -859,11 +1050,32 @@ public class Client
         ++threadopcount;
       }
 
-      ClientThread t=new ClientThread(db,dotransactions,workload,props,threadopcount, targetperthreadperms, completeLatch);
+      ClientThread t=new ClientThread(db,dotransactions,workload,props,threadopcount, targetperthreadperms, completeLatch,
+          initLatch, startLatch, threadid, threadcount, perthread, steadyState);
 
       clients.add(t);
     }
 
+    long ist=System.currentTimeMillis();
+
+    for (Thread t : clients)
+    {
+      t.start();
+    }
+
+    //let every client connect and initialize before starting the clock
+    try
+    {
+      initLatch.await();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+    }
+
+    long st=System.currentTimeMillis();
+    System.err.println("Initialized "+threadcount+" client threads in "+(st-ist)+" ms.");
+
     StatusThread statusthread=null;
 
     if (status)
@@ -874,16 +1086,11 @@ public class Client
         standardstatus=true;
       }
       int statusIntervalSeconds = Integer.parseInt(props.getProperty("status.interval","10"));
-      statusthread=new StatusThread(completeLatch,clients,label,standardstatus,statusIntervalSeconds);
+      statusthread=new StatusThread(completeLatch,clients,label,standardstatus,statusIntervalSeconds,perthread);
       statusthread.start();
     }
 
-    long st=System.currentTimeMillis();
-
-    for (Thread t : clients)
-    {
-      t.start();
-    }
+    startLatch.countDown();
 
     Thread terminator = null;
 
@@ -892,6 +1099,10 @@ public class Client
       terminator.start();
     }
 
+    if (steadyState != null) {
+      steadyState.start();
+    }
+
     int opsDone = 0;
 
     for (Thread t : clients)
@@ -912,6 +1123,10 @@ public class Client
       terminator.interrupt();
     }
 
+    if (steadyState != null) {
+      steadyState.interrupt();
+    }
+
     if (status)
     {
       // wake up status thread if it's asleep
@@ -936,7 +1151,7 @@ public class Client
 
     try
     {
-      exportMeasurements(props, opsDone, en - st);
+      exportMeasurements(props, opsDone, st - ist, en - st, clients, steadyState);
     } catch (IOException e)
     {
       System.err.println("Could not export measurements, error: " + e.getMessage());
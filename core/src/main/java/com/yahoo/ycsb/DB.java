@@ -17,7 +17,9 @@
 
 package com.yahoo.ycsb;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
@@ -43,6 +45,22 @@ import java.util.Vector;
  */
 public abstract class DB
 {
+	/**
+	 * The return code of compareAndSet() when the current value of the field is not the expected one.
+	 */
+	public static final int COMPARE_FAILED=-100;
+
+	/**
+	 * The number of times the default increment() retries after a failed compareAndSet().
+	 */
+	public static final int INCREMENT_RETRIES=100;
+
+	/**
+	 * The return code of an operation in a transaction, or of commitTransaction(), when the
+	 * transaction was rolled back because it conflicted with another one, and may be retried.
+	 */
+	public static final int TRANSACTION_ABORTED=-101;
+
 	/**
 	 * Properties for configuring this DB.
 	 */
@@ -103,6 +121,86 @@ public abstract class DB
 	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
 	 */
 	public abstract int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result);
+
+	/**
+	 * Perform a range scan, passing each record to the consumer as soon as it is read rather than
+	 * collecting them all first. The default implementation calls scan() and then passes the
+	 * records, without their keys; override it to stream the cursor of the database.
+	 *
+	 * @param table The name of the table
+	 * @param startkey The record key of the first record to read.
+	 * @param recordcount The number of records to read
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param consumer The consumer of the records, which may end the scan early
+	 * @return Zero on success, a non-zero error code on error.
+	 */
+	public int streamScan(String table, String startkey, int recordcount, Set<String> fields, ScanConsumer consumer)
+	{
+		Vector<HashMap<String,ByteIterator>> result=new Vector<HashMap<String,ByteIterator>>();
+		int ret=scan(table,startkey,recordcount,fields,result);
+		for (HashMap<String,ByteIterator> values : result)
+		{
+			if (!consumer.consume(null,values))
+			{
+				break;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Split a range for a parallel scan along the natural boundaries of the database, e.g. region or
+	 * tablet boundaries, so that each segment is served by one server. The default implementation
+	 * does not know the boundaries and returns null, in which case the caller splits the range itself.
+	 *
+	 * @param table The name of the table
+	 * @param startkey The record key of the first record of the range.
+	 * @param segments The largest number of segments wanted.
+	 * @return The first key of each segment in order, starting with startkey, or null.
+	 */
+	public List<String> splitRange(String table, String startkey, int segments)
+	{
+		return null;
+	}
+
+	/**
+	 * Query the records by a secondary attribute: those whose field value is between lowvalue and
+	 * highvalue, compared as strings, or equal to it if both are the same. The default
+	 * implementation is not supported and returns -1; override it with the native query of the
+	 * database, which should use an index on the field.
+	 *
+	 * @param table The name of the table
+	 * @param field The field to filter on.
+	 * @param lowvalue The lowest value of the field, inclusive.
+	 * @param highvalue The highest value of the field, inclusive.
+	 * @param limit The largest number of records to return.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result A Vector of HashMaps, where each HashMap is a set field/value pairs for one record
+	 * @return Zero on success, a non-zero error code on error. No matching record is a success.
+	 */
+	public int query(String table, String field, String lowvalue, String highvalue, int limit, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		return -1;
+	}
+
+	/**
+	 * Return a consumer adding the records of a streaming scan to a result Vector, or dropping them
+	 * if it is null, for bindings implementing scan() on top of streamScan().
+	 */
+	protected static ScanConsumer collectInto(final Vector<HashMap<String,ByteIterator>> result)
+	{
+		return new ScanConsumer()
+		{
+			public boolean consume(String key, HashMap<String,ByteIterator> values)
+			{
+				if (result!=null)
+				{
+					result.add(values);
+				}
+				return true;
+			}
+		};
+	}
 	
 	/**
 	 * Update a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
@@ -134,4 +232,202 @@ public abstract class DB
 	 * @return Zero on success, a non-zero error code on error.  See this class's description for a discussion of error codes.
 	 */
 	public abstract int delete(String table, String key);
+
+	/**
+	 * Update a record in the database, making it expire ttl seconds later. The default implementation
+	 * is not supported and returns -1; override it with the expiry of the database.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to write.
+	 * @param values A HashMap of field/value pairs to update in the record
+	 * @param ttl The time to live of the record in seconds.
+	 * @return Zero on success, a non-zero error code on error.
+	 */
+	public int update(String table, String key, HashMap<String,ByteIterator> values, int ttl)
+	{
+		return -1;
+	}
+
+	/**
+	 * Insert a record in the database, making it expire ttl seconds later. The default implementation
+	 * is not supported and returns -1; override it with the expiry of the database.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to insert.
+	 * @param values A HashMap of field/value pairs to insert in the record
+	 * @param ttl The time to live of the record in seconds.
+	 * @return Zero on success, a non-zero error code on error.
+	 */
+	public int insert(String table, String key, HashMap<String,ByteIterator> values, int ttl)
+	{
+		return -1;
+	}
+
+	/**
+	 * Read several records from the database. Each field/value pair of the i-th record will be stored in the
+	 * i-th HashMap added to results. The default implementation calls read() for every key; override it to use
+	 * the multi-key read of the database.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to read.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param results A List to which one HashMap of field/value pairs is added per key, in the order of keys
+	 * @return Zero on success, a non-zero error code on error or "not found" of any of the records.
+	 */
+	public int batchRead(String table, List<String> keys, Set<String> fields, List<HashMap<String,ByteIterator>> results)
+	{
+		int ret=0;
+		for (String key : keys)
+		{
+			HashMap<String,ByteIterator> result=new HashMap<String,ByteIterator>();
+			int res=read(table,key,fields,result);
+			if (res!=0)
+			{
+				ret=res;
+			}
+			results.add(result);
+		}
+		return ret;
+	}
+
+	/**
+	 * Insert several records in the database. The default implementation calls insert() for every key; override
+	 * it to use the multi-key write of the database.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to insert.
+	 * @param values One HashMap of field/value pairs per key, in the order of keys
+	 * @return Zero on success, a non-zero error code on error of any of the records.
+	 */
+	public int batchInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		int ret=0;
+		for (int i=0; i<keys.size(); i++)
+		{
+			int res=insert(table,keys.get(i),values.get(i));
+			if (res!=0)
+			{
+				ret=res;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Update several records in the database. The default implementation calls update() for every key; override
+	 * it to use the multi-key write of the database.
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to update.
+	 * @param values One HashMap of field/value pairs per key, in the order of keys
+	 * @return Zero on success, a non-zero error code on error of any of the records.
+	 */
+	public int batchUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		int ret=0;
+		for (int i=0; i<keys.size(); i++)
+		{
+			int res=update(table,keys.get(i),values.get(i));
+			if (res!=0)
+			{
+				ret=res;
+			}
+		}
+		return ret;
+	}
+
+	/**
+	 * Atomically set a field of a record to a new value if its current value is the expected one,
+	 * e.g. a lightweight transaction, a conditional update or a check-and-put. The default
+	 * implementation is not supported and returns -1; override it with the atomic operation of the
+	 * database.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to write.
+	 * @param field The field to compare and set.
+	 * @param expected The value the field must have for the write to happen.
+	 * @param value The new value of the field.
+	 * @return Zero on success, COMPARE_FAILED if the field did not have the expected value, another non-zero error code on error.
+	 */
+	public int compareAndSet(String table, String key, String field, ByteIterator expected, ByteIterator value)
+	{
+		return -1;
+	}
+
+	/**
+	 * Atomically add delta to a field of a record holding a decimal number. The default
+	 * implementation reads the field and writes the sum with compareAndSet(), retrying up to
+	 * INCREMENT_RETRIES times if another client changed it in between; override it to use the
+	 * counters of the database.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to write.
+	 * @param field The field to increment.
+	 * @param delta The amount to add.
+	 * @return Zero on success, a non-zero error code on error.
+	 */
+	public int increment(String table, String key, String field, long delta)
+	{
+		Set<String> fields=Collections.singleton(field);
+		int ret=COMPARE_FAILED;
+		for (int attempt=0; attempt<=INCREMENT_RETRIES && ret==COMPARE_FAILED; attempt++)
+		{
+			HashMap<String,ByteIterator> result=new HashMap<String,ByteIterator>();
+			ret=read(table,key,fields,result);
+			if (ret!=0)
+			{
+				return ret;
+			}
+			ByteIterator current=result.get(field);
+			if (current==null)
+			{
+				return -1;
+			}
+			String expected=current.toString();
+			long sum;
+			try
+			{
+				sum=Long.parseLong(expected.trim())+delta;
+			}
+			catch (NumberFormatException e)
+			{
+				return -1;
+			}
+			ret=compareAndSet(table,key,field,new StringByteIterator(expected),new StringByteIterator(Long.toString(sum)));
+		}
+		return ret;
+	}
+
+	/**
+	 * Start a transaction: the operations of this DB instance until commitTransaction() or
+	 * abortTransaction() take effect together or not at all, isolated from the other clients.
+	 * The default implementation is not supported and returns -1; override it with the
+	 * transactions of the database.
+	 *
+	 * @return Zero on success, a non-zero error code on error.
+	 */
+	public int beginTransaction()
+	{
+		return -1;
+	}
+
+	/**
+	 * Commit the transaction started by beginTransaction().
+	 *
+	 * @return Zero on success, TRANSACTION_ABORTED if it was rolled back because of a conflict, another non-zero error code on error.
+	 */
+	public int commitTransaction()
+	{
+		return -1;
+	}
+
+	/**
+	 * Roll back the transaction started by beginTransaction().
+	 *
+	 * @return Zero on success, a non-zero error code on error.
+	 */
+	public int abortTransaction()
+	{
+		return -1;
+	}
 }
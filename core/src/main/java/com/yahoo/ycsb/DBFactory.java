@@ -44,6 +44,11 @@ public class DBFactory
 	    return null;
 	 }
 	 
+	 if (properties.getProperty(TraceRecorderDB.FILE_PROPERTY)!=null)
+	 {
+	    ret=new TraceRecorderDB(ret);
+	 }
+
 	 ret.setProperties(properties);
 
 	 return new DBWrapper(ret);
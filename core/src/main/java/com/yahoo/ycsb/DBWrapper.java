@@ -18,6 +18,7 @@
 package com.yahoo.ycsb;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
 import java.util.Set;
 import java.util.Vector;
@@ -60,7 +61,11 @@ public class DBWrapper extends DB
 	 */
 	public void init() throws DBException
 	{
+        long ist=_measurements.getIntendedtartTimeNs();
+        long st = System.nanoTime();
 		_db.init();
+        long en=System.nanoTime();
+        measure("INIT",ist, st, en);
 	}
 
 	/**
@@ -91,8 +96,7 @@ public class DBWrapper extends DB
 	    long st = System.nanoTime();
 	    int res=_db.read(table,key,fields,result);
 		long en=System.nanoTime();
-		measure("READ",ist, st, en);
-	    _measurements.reportReturnCode("READ",res);
+		measure("READ",res,ist, st, en);
 		return res;
 	}
 
@@ -112,15 +116,151 @@ public class DBWrapper extends DB
 	    long st = System.nanoTime();
 	    int res=_db.scan(table,startkey,recordcount,fields,result);
 		long en=System.nanoTime();
-		measure("SCAN",ist, st, en);
-	    _measurements.reportReturnCode("SCAN",res);
+		measure("SCAN",res,ist, st, en);
+		if (res==0)
+		{
+		    _measurements.measureScan("SCAN", recordcount, result.size(), bytesOf(result), (int)((en-st)/1000));
+		}
 		return res;
 	}
 
+	/**
+	 * Perform a range scan, passing each record to the consumer as soon as it is read. Besides the
+	 * latency of the whole scan, the time to the first record is measured as STREAM-SCAN-FIRST-ROW,
+	 * and the records and bytes as for scan().
+	 *
+	 * @param table The name of the table
+	 * @param startkey The record key of the first record to read.
+	 * @param recordcount The number of records to read
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param consumer The consumer of the records
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int streamScan(String table, String startkey, int recordcount, Set<String> fields, ScanConsumer consumer)
+	{
+	    CountingConsumer counter=new CountingConsumer(consumer);
+	    long ist=_measurements.getIntendedtartTimeNs();
+	    long st = System.nanoTime();
+	    int res=_db.streamScan(table,startkey,recordcount,fields,counter);
+		long en=System.nanoTime();
+		measure("STREAM-SCAN",res,ist, st, en);
+		if (res==0)
+		{
+		    if (counter.rows>0)
+		    {
+		        measure("STREAM-SCAN-FIRST-ROW",ist,st,counter.firstrow);
+		    }
+		    _measurements.measureScan("STREAM-SCAN", recordcount, counter.rows, counter.bytes, (int)((en-st)/1000));
+		}
+		return res;
+	}
+
+	/**
+	 * Query the records by a secondary attribute, measured as QUERY, with the records and bytes
+	 * returned as for scan().
+	 *
+	 * @param table The name of the table
+	 * @param field The field to filter on.
+	 * @param lowvalue The lowest value of the field, inclusive.
+	 * @param highvalue The highest value of the field, inclusive.
+	 * @param limit The largest number of records to return.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param result A Vector of HashMaps, where each HashMap is a set field/value pairs for one record
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int query(String table, String field, String lowvalue, String highvalue, int limit, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+	    long ist=_measurements.getIntendedtartTimeNs();
+	    long st = System.nanoTime();
+	    int res=_db.query(table,field,lowvalue,highvalue,limit,fields,result);
+		long en=System.nanoTime();
+		measure("QUERY",res,ist, st, en);
+		if (res==0)
+		{
+		    _measurements.measureScan("QUERY", limit, result.size(), bytesOf(result), (int)((en-st)/1000));
+		}
+		return res;
+	}
+
+	/**
+	 * Split a range for a parallel scan along the natural boundaries of the database, measured as
+	 * SPLIT-RANGE.
+	 *
+	 * @param table The name of the table
+	 * @param startkey The record key of the first record of the range.
+	 * @param segments The largest number of segments wanted.
+	 * @return The first key of each segment in order, starting with startkey, or null.
+	 */
+	public List<String> splitRange(String table, String startkey, int segments)
+	{
+	    long ist=_measurements.getIntendedtartTimeNs();
+	    long st = System.nanoTime();
+	    List<String> splits=_db.splitRange(table,startkey,segments);
+		long en=System.nanoTime();
+		measure("SPLIT-RANGE",ist,st,en);
+		return splits;
+	}
+
+	/**
+	 * Counts the records and bytes passed to a consumer, and notes when the first one arrived.
+	 */
+	static class CountingConsumer implements ScanConsumer
+	{
+	    final ScanConsumer consumer;
+	    int rows;
+	    long bytes;
+	    long firstrow;
+
+	    CountingConsumer(ScanConsumer consumer)
+	    {
+	        this.consumer=consumer;
+	    }
+
+	    public boolean consume(String key, HashMap<String,ByteIterator> values)
+	    {
+	        if (rows++==0)
+	        {
+	            firstrow=System.nanoTime();
+	        }
+	        for (ByteIterator value : values.values())
+	        {
+	            bytes+=value.bytesLeft();
+	        }
+	        return consumer.consume(key,values);
+	    }
+	}
+
+	/**
+	 * The size of the field values returned by a scan, without consuming them.
+	 */
+	static long bytesOf(Vector<HashMap<String,ByteIterator>> result)
+	{
+	    long bytes=0;
+	    for (HashMap<String,ByteIterator> row : result)
+	    {
+	        for (ByteIterator value : row.values())
+	        {
+	            bytes+=value.bytesLeft();
+	        }
+	    }
+	    return bytes;
+	}
+
     private void measure(String op, long intendedStartTimeNanos, long startTimeNanos, long endTimeNanos) {
         _measurements.measure(op, (int)((endTimeNanos-startTimeNanos)/1000));
 	    _measurements.measureIntended(op, (int)((endTimeNanos-intendedStartTimeNanos)/1000));
     }
+
+    /**
+     * Measure a DB operation and count its return code, under a separate name per outcome class
+     * if the measurements are split by outcome.
+     */
+    private void measure(String op, int result, long intendedStartTimeNanos, long startTimeNanos, long endTimeNanos) {
+        String measurementName = _measurements.measurementName(op, result);
+        measure(measurementName, intendedStartTimeNanos, startTimeNanos, endTimeNanos);
+        _measurements.reportReturnCode(measurementName, result);
+        _measurements.reportOutcome(op, result);
+    }
 	
 	/**
 	 * Update a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
@@ -137,8 +277,7 @@ public class DBWrapper extends DB
 	    long st = System.nanoTime();
 		int res=_db.update(table,key,values);
 		long en=System.nanoTime();
-		measure("UPDATE",ist, st, en);
-		_measurements.reportReturnCode("UPDATE",res);
+		measure("UPDATE",res,ist, st, en);
 		return res;
 	}
 
@@ -157,8 +296,45 @@ public class DBWrapper extends DB
 	    long st = System.nanoTime();
 		int res=_db.insert(table,key,values);
 		long en=System.nanoTime();
-		measure("INSERT",ist, st, en);
-		_measurements.reportReturnCode("INSERT",res);
+		measure("INSERT",res,ist, st, en);
+		return res;
+	}
+
+	/**
+	 * Update a record in the database, making it expire ttl seconds later.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to write.
+	 * @param values A HashMap of field/value pairs to update in the record
+	 * @param ttl The time to live of the record in seconds.
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int update(String table, String key, HashMap<String,ByteIterator> values, int ttl)
+	{
+	    long ist=_measurements.getIntendedtartTimeNs();
+	    long st = System.nanoTime();
+		int res=_db.update(table,key,values,ttl);
+		long en=System.nanoTime();
+		measure("UPDATE",res,ist, st, en);
+		return res;
+	}
+
+	/**
+	 * Insert a record in the database, making it expire ttl seconds later.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to insert.
+	 * @param values A HashMap of field/value pairs to insert in the record
+	 * @param ttl The time to live of the record in seconds.
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int insert(String table, String key, HashMap<String,ByteIterator> values, int ttl)
+	{
+	    long ist=_measurements.getIntendedtartTimeNs();
+	    long st = System.nanoTime();
+		int res=_db.insert(table,key,values,ttl);
+		long en=System.nanoTime();
+		measure("INSERT",res,ist, st, en);
 		return res;
 	}
 
@@ -175,8 +351,156 @@ public class DBWrapper extends DB
 	    long st = System.nanoTime();
 		int res=_db.delete(table,key);
 		long en=System.nanoTime();
-		measure("DELETE",ist, st, en);
-		_measurements.reportReturnCode("DELETE",res);
+		measure("DELETE",res,ist, st, en);
 		return res;
 	}
+
+	/**
+	 * Read several records from the database. The latency is measured for the whole batch (BATCH-READ)
+	 * and divided by the number of records (BATCH-READ-PER-ITEM).
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to read.
+	 * @param fields The list of fields to read, or null for all of them
+	 * @param results A List to which one HashMap of field/value pairs is added per key, in the order of keys
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int batchRead(String table, List<String> keys, Set<String> fields, List<HashMap<String,ByteIterator>> results)
+	{
+	    long ist=_measurements.getIntendedtartTimeNs();
+	    long st = System.nanoTime();
+	    int res=_db.batchRead(table,keys,fields,results);
+		long en=System.nanoTime();
+		measureBatch("BATCH-READ",res,keys.size(),ist, st, en);
+		return res;
+	}
+
+	/**
+	 * Insert several records in the database. The latency is measured for the whole batch (BATCH-INSERT)
+	 * and divided by the number of records (BATCH-INSERT-PER-ITEM).
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to insert.
+	 * @param values One HashMap of field/value pairs per key, in the order of keys
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int batchInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+	    long ist=_measurements.getIntendedtartTimeNs();
+	    long st = System.nanoTime();
+		int res=_db.batchInsert(table,keys,values);
+		long en=System.nanoTime();
+		measureBatch("BATCH-INSERT",res,keys.size(),ist, st, en);
+		return res;
+	}
+
+	/**
+	 * Update several records in the database. The latency is measured for the whole batch (BATCH-UPDATE)
+	 * and divided by the number of records (BATCH-UPDATE-PER-ITEM).
+	 *
+	 * @param table The name of the table
+	 * @param keys The record keys of the records to update.
+	 * @param values One HashMap of field/value pairs per key, in the order of keys
+	 * @return Zero on success, a non-zero error code on error
+	 */
+	public int batchUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+	    long ist=_measurements.getIntendedtartTimeNs();
+	    long st = System.nanoTime();
+		int res=_db.batchUpdate(table,keys,values);
+		long en=System.nanoTime();
+		measureBatch("BATCH-UPDATE",res,keys.size(),ist, st, en);
+		return res;
+	}
+
+	/**
+	 * Atomically set a field of a record to a new value if its current value is the expected one.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to write.
+	 * @param field The field to compare and set.
+	 * @param expected The value the field must have for the write to happen.
+	 * @param value The new value of the field.
+	 * @return Zero on success, COMPARE_FAILED if the field did not have the expected value, another non-zero error code on error.
+	 */
+	public int compareAndSet(String table, String key, String field, ByteIterator expected, ByteIterator value)
+	{
+	    long ist=_measurements.getIntendedtartTimeNs();
+	    long st = System.nanoTime();
+		int res=_db.compareAndSet(table,key,field,expected,value);
+		long en=System.nanoTime();
+		measure("CAS",res,ist, st, en);
+		return res;
+	}
+
+	/**
+	 * Atomically add delta to a field of a record holding a decimal number.
+	 *
+	 * @param table The name of the table
+	 * @param key The record key of the record to write.
+	 * @param field The field to increment.
+	 * @param delta The amount to add.
+	 * @return Zero on success, a non-zero error code on error.
+	 */
+	public int increment(String table, String key, String field, long delta)
+	{
+	    long ist=_measurements.getIntendedtartTimeNs();
+	    long st = System.nanoTime();
+		int res=_db.increment(table,key,field,delta);
+		long en=System.nanoTime();
+		measure("INCREMENT",res,ist, st, en);
+		return res;
+	}
+
+	/**
+	 * Start a transaction, measured as BEGIN.
+	 *
+	 * @return Zero on success, a non-zero error code on error.
+	 */
+	public int beginTransaction()
+	{
+	    long ist=_measurements.getIntendedtartTimeNs();
+	    long st = System.nanoTime();
+		int res=_db.beginTransaction();
+		long en=System.nanoTime();
+		measure("BEGIN",res,ist, st, en);
+		return res;
+	}
+
+	/**
+	 * Commit a transaction, measured as COMMIT, whose return codes give the rate of aborts.
+	 *
+	 * @return Zero on success, TRANSACTION_ABORTED if it was rolled back because of a conflict, another non-zero error code on error.
+	 */
+	public int commitTransaction()
+	{
+	    long ist=_measurements.getIntendedtartTimeNs();
+	    long st = System.nanoTime();
+		int res=_db.commitTransaction();
+		long en=System.nanoTime();
+		measure("COMMIT",res,ist, st, en);
+		return res;
+	}
+
+	/**
+	 * Roll back a transaction, measured as ABORT.
+	 *
+	 * @return Zero on success, a non-zero error code on error.
+	 */
+	public int abortTransaction()
+	{
+	    long ist=_measurements.getIntendedtartTimeNs();
+	    long st = System.nanoTime();
+		int res=_db.abortTransaction();
+		long en=System.nanoTime();
+		measure("ABORT",res,ist, st, en);
+		return res;
+	}
+
+    private void measureBatch(String op, int result, int items, long intendedStartTimeNanos, long startTimeNanos, long endTimeNanos) {
+        measure(op, result, intendedStartTimeNanos, startTimeNanos, endTimeNanos);
+        if (items > 0) {
+            _measurements.measure(op + "-PER-ITEM", (int)((endTimeNanos-startTimeNanos)/1000/items));
+        }
+    }
 }
@@ -47,6 +47,27 @@ public class InputStreamByteIterator extends ByteIterator {
 		return (byte)ret;
 	}
 
+	/**
+	 * Read as much as fits in buf with bulk reads of the stream, rather than a read per byte.
+	 */
+	@Override
+	public int nextBuf(byte[] buf, int buf_off) {
+		int want = (int)Math.min(len - off, buf.length - buf_off);
+		int end = buf_off + want;
+		while (buf_off < end) {
+			int n;
+			try {
+				n = ins.read(buf, buf_off, end - buf_off);
+			} catch(Exception e) {
+				throw new IllegalStateException(e);
+			}
+			if(n == -1) { throw new IllegalStateException("Past EOF!"); }
+			buf_off += n;
+			off += n;
+		}
+		return buf_off;
+	}
+
 	@Override
 	public long bytesLeft() {
 		return len - off;
@@ -0,0 +1,97 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A value taken from a ValuePool: a slice of its slab, read in place. nextBuf() copies in bulk,
+ * and asByteBuffer() gives bindings that write ByteBuffers a view of the slice without copying.
+ * The slab is shared by all the client threads, so it is only read through absolute gets or
+ * private duplicates.
+ */
+public class PooledByteIterator extends ByteIterator {
+  private final ByteBuffer slab;
+  private final long len;
+  private long off;
+  private int pos;
+  private ByteBuffer view;
+
+  PooledByteIterator(ByteBuffer slab, int pos, long len) {
+    this.slab = slab;
+    this.pos = pos;
+    this.len = len;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return off < len;
+  }
+
+  @Override
+  public byte nextByte() {
+    byte b = slab.get(pos);
+    advance(1);
+    return b;
+  }
+
+  @Override
+  public int nextBuf(byte[] buf, int buf_off) {
+    if (view == null) {
+      view = slab.duplicate();
+    }
+    int end = buf_off + (int)Math.min(len - off, buf.length - buf_off);
+    while (buf_off < end) {
+      int n = Math.min(end - buf_off, slab.capacity() - pos);
+      view.position(pos);
+      view.get(buf, buf_off, n);
+      buf_off += n;
+      advance(n);
+    }
+    return buf_off;
+  }
+
+  /**
+   * Consumes the remaining bytes, and returns them as a read-only view of the slab, or as a copy
+   * if they wrap around its end.
+   */
+  public ByteBuffer asByteBuffer() {
+    long left = len - off;
+    if (pos + left > slab.capacity()) {
+      return ByteBuffer.wrap(toArray());
+    }
+    ByteBuffer slice = slab.duplicate();
+    slice.position(pos);
+    slice.limit(pos + (int)left);
+    advance((int)left);
+    return slice.slice().asReadOnlyBuffer();
+  }
+
+  private void advance(int n) {
+    off += n;
+    pos += n;
+    if (pos == slab.capacity()) {
+      pos = 0;
+    }
+  }
+
+  @Override
+  public long bytesLeft() {
+    return len - off;
+  }
+}
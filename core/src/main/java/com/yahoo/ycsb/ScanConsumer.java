@@ -0,0 +1,37 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.util.HashMap;
+
+/**
+ * Receives the records of a streaming scan one at a time, as the DB binding decodes them, so that
+ * a long scan does not need to hold all its records at once.
+ */
+public interface ScanConsumer
+{
+  /**
+   * Consume one record. The binding may reuse nothing it passes here, but the consumer should not
+   * expect the values to be readable after it returns unless it keeps them.
+   *
+   * @param key The record key, or null if the binding does not return keys.
+   * @param values The field/value pairs of the record.
+   * @return true to receive more records, false to end the scan early.
+   */
+  boolean consume(String key, HashMap<String,ByteIterator> values);
+}
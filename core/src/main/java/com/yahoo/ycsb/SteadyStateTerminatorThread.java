@@ -0,0 +1,240 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.Properties;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import com.yahoo.ycsb.measurements.ThreadMeasurement;
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Watches the throughput and a latency percentile of the run, sampled every
+ * steadystate.interval seconds. Once the coefficient of variation (stddev/mean) of both over the
+ * last steadystate.window samples has stayed below steadystate.cv for steadystate.holdtime
+ * seconds, the run has reached a steady state and a stop is requested from the workload, as
+ * {@link TerminatorThread} does when maxexecutiontime elapses. The throughput and latency
+ * percentile reported for the steady state are measured over the whole steady period, from the
+ * first sample of the window that became steady to the last sample taken.
+ */
+public class SteadyStateTerminatorThread extends Thread {
+
+  /**
+   * Set to true to stop the run once it reaches a steady state.
+   */
+  public static final String STEADY_STATE_PROPERTY = "steadystate";
+
+  /**
+   * The number of seconds between samples of throughput and latency.
+   */
+  public static final String INTERVAL_PROPERTY = "steadystate.interval";
+  public static final String INTERVAL_PROPERTY_DEFAULT = "1";
+
+  /**
+   * The number of samples in the sliding window.
+   */
+  public static final String WINDOW_PROPERTY = "steadystate.window";
+  public static final String WINDOW_PROPERTY_DEFAULT = "10";
+
+  /**
+   * The coefficient of variation below which the window is considered steady.
+   */
+  public static final String CV_PROPERTY = "steadystate.cv";
+  public static final String CV_PROPERTY_DEFAULT = "0.05";
+
+  /**
+   * The number of seconds the window must stay steady before the run is stopped.
+   */
+  public static final String HOLD_TIME_PROPERTY = "steadystate.holdtime";
+  public static final String HOLD_TIME_PROPERTY_DEFAULT = "30";
+
+  /**
+   * The latency percentile that must be steady.
+   */
+  public static final String PERCENTILE_PROPERTY = "steadystate.percentile";
+  public static final String PERCENTILE_PROPERTY_DEFAULT = "99";
+
+  private final Workload workload;
+  private final Recorder latencies = new Recorder(3);
+
+  private final long intervalMs;
+  private final int window;
+  private final double maxCv;
+  private final long holdTimeMs;
+  private final double percentile;
+  private final String percentileLabel;
+
+  private final LinkedList<Sample> samples = new LinkedList<Sample>();
+
+  private long startTimeMs;
+  private long steadySinceMs = -1;
+  private long steadyOps;
+  private Histogram steadyLatencies;
+  private volatile boolean reached;
+  private volatile long windowStartMs;
+  private volatile long windowEndMs;
+  private volatile double throughput;
+  private volatile double throughputCv;
+  private volatile double latency;
+  private volatile double latencyCv;
+
+  /**
+   * One interval of the run: the operations completed in it and their latencies.
+   */
+  private static class Sample {
+    final long startMs;
+    final long endMs;
+    final Histogram latencies;
+
+    Sample(long startMs, long endMs, Histogram latencies) {
+      this.startMs = startMs;
+      this.endMs = endMs;
+      this.latencies = latencies;
+    }
+
+    long ops() {
+      return latencies.getTotalCount();
+    }
+
+    double throughput() {
+      return 1000.0 * ops() / Math.max(1, endMs - startMs);
+    }
+  }
+
+  public SteadyStateTerminatorThread(Properties props, Workload workload) {
+    this.workload = workload;
+    intervalMs = 1000 * Long.parseLong(props.getProperty(INTERVAL_PROPERTY, INTERVAL_PROPERTY_DEFAULT));
+    window = Integer.parseInt(props.getProperty(WINDOW_PROPERTY, WINDOW_PROPERTY_DEFAULT));
+    maxCv = Double.parseDouble(props.getProperty(CV_PROPERTY, CV_PROPERTY_DEFAULT));
+    holdTimeMs = 1000 * Long.parseLong(props.getProperty(HOLD_TIME_PROPERTY, HOLD_TIME_PROPERTY_DEFAULT));
+    percentileLabel = props.getProperty(PERCENTILE_PROPERTY, PERCENTILE_PROPERTY_DEFAULT);
+    percentile = Double.parseDouble(percentileLabel);
+    setDaemon(true);
+    System.err.println("Steady state detection: stop once throughput and " + percentileLabel
+        + "th percentile latency vary by less than " + maxCv + " over " + window + " samples for "
+        + holdTimeMs / 1000 + " secs");
+  }
+
+  /**
+   * Record the latency of one operation, in microseconds. Called by every client thread for every
+   * operation it completes, so the recorded latencies also count the operations done.
+   */
+  public void measure(int latencyInMicros) {
+    latencies.recordValue(latencyInMicros);
+  }
+
+  public void run() {
+    startTimeMs = System.currentTimeMillis();
+    long lastMs = startTimeMs;
+    latencies.reset();
+    while (!workload.isStopRequested()) {
+      try {
+        Thread.sleep(intervalMs);
+      } catch (InterruptedException e) {
+        return;
+      }
+      long nowMs = System.currentTimeMillis();
+      sample(new Sample(lastMs, nowMs, latencies.getIntervalHistogram()));
+      lastMs = nowMs;
+    }
+  }
+
+  private void sample(Sample sample) {
+    samples.addLast(sample);
+    if (samples.size() > window) {
+      samples.removeFirst();
+    }
+    if (samples.size() < window) {
+      return;
+    }
+
+    double[] throughputs = new double[window];
+    double[] latencyPercentiles = new double[window];
+    int i = 0;
+    for (Sample s : samples) {
+      throughputs[i] = s.throughput();
+      latencyPercentiles[i] = s.latencies.getValueAtPercentile(percentile);
+      i++;
+    }
+    double tMean = mean(throughputs);
+    double lMean = mean(latencyPercentiles);
+    double tCv = tMean == 0 ? Double.MAX_VALUE : ThreadMeasurement.minMaxStdDev(throughputs)[2] / tMean;
+    double lCv = lMean == 0 ? 0 : ThreadMeasurement.minMaxStdDev(latencyPercentiles)[2] / lMean;
+
+    if (tCv >= maxCv || lCv >= maxCv) {
+      steadySinceMs = -1;
+      return;
+    }
+    if (steadySinceMs < 0) {
+      // the window became steady with its first sample, so the steady period starts there
+      steadySinceMs = samples.getFirst().startMs;
+      steadyOps = 0;
+      steadyLatencies = new Histogram(3);
+      for (Sample s : samples) {
+        steadyOps += s.ops();
+        steadyLatencies.add(s.latencies);
+      }
+    } else {
+      steadyOps += sample.ops();
+      steadyLatencies.add(sample.latencies);
+    }
+    long nowMs = sample.endMs;
+    throughput = 1000.0 * steadyOps / Math.max(1, nowMs - steadySinceMs);
+    throughputCv = tCv;
+    latency = steadyLatencies.getValueAtPercentile(percentile);
+    latencyCv = lCv;
+    windowStartMs = steadySinceMs - startTimeMs;
+    windowEndMs = nowMs - startTimeMs;
+    if (nowMs - steadySinceMs >= holdTimeMs) {
+      reached = true;
+      System.err.println("Steady state held for " + (nowMs - steadySinceMs) / 1000
+          + " secs. Requesting stop for the workload.");
+      workload.requestStop();
+    }
+  }
+
+  private static double mean(double[] values) {
+    double sum = 0;
+    for (double v : values) {
+      sum += v;
+    }
+    return sum / values.length;
+  }
+
+  /**
+   * Export whether a steady state was reached, the throughput and latency percentile over the
+   * steady period from WindowStart to WindowEnd, and their coefficients of variation over the
+   * last window of samples.
+   */
+  public void exportMeasurements(MeasurementsExporter exporter) throws IOException {
+    exporter.write("STEADYSTATE", "Reached", reached ? 1 : 0);
+    if (!reached) {
+      return;
+    }
+    exporter.write("STEADYSTATE", "WindowStart(ms)", windowStartMs);
+    exporter.write("STEADYSTATE", "WindowEnd(ms)", windowEndMs);
+    exporter.write("STEADYSTATE", "Throughput(ops/sec)", throughput);
+    exporter.write("STEADYSTATE", "ThroughputCV", throughputCv);
+    exporter.write("STEADYSTATE", percentileLabel + "thPercentileLatency(us)", latency);
+    exporter.write("STEADYSTATE", "LatencyCV", latencyCv);
+  }
+}
@@ -0,0 +1,441 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wrapper around a "real" DB that records every operation to a binary trace, see
+ * {@link TraceRecording} for the format and the reader. Each instance fills blocks of its own
+ * and hands them to a shared background writer, so recording only copies the operation to memory.
+ * Enabled by setting the tracerecorder.file property.
+ */
+public class TraceRecorderDB extends DB
+{
+	/**
+	 * The name of the property for the file to record the trace to.
+	 */
+	public static final String FILE_PROPERTY="tracerecorder.file";
+
+	/**
+	 * The name of the property for the size in bytes of the blocks of records written at once.
+	 */
+	public static final String BLOCK_SIZE_PROPERTY="tracerecorder.blocksize";
+
+	/**
+	 * The default size in bytes of the blocks of records.
+	 */
+	public static final String BLOCK_SIZE_PROPERTY_DEFAULT="65536";
+
+	/**
+	 * The name of the property for the number of filled blocks waiting to be written, beyond
+	 * which blocks are dropped.
+	 */
+	public static final String MAX_BLOCKS_PROPERTY="tracerecorder.maxblocks";
+
+	/**
+	 * The default number of filled blocks waiting to be written.
+	 */
+	public static final String MAX_BLOCKS_PROPERTY_DEFAULT="256";
+
+	static final AtomicInteger streams=new AtomicInteger();
+
+	DB _db;
+	TraceRecording.Writer _writer;
+	ByteBuffer _block;
+	int _stream;
+
+	public TraceRecorderDB(DB db)
+	{
+		_db=db;
+	}
+
+	/**
+	 * Set the properties for this DB.
+	 */
+	public void setProperties(Properties p)
+	{
+		_db.setProperties(p);
+	}
+
+	/**
+	 * Get the set of properties for this DB.
+	 */
+	public Properties getProperties()
+	{
+		return _db.getProperties();
+	}
+
+	/**
+	 * Initialize any state for this DB, and open the trace.
+	 * Called once per DB instance; there is one DB instance per client thread.
+	 */
+	public void init() throws DBException
+	{
+		Properties p=getProperties();
+		try
+		{
+			_writer=TraceRecording.openWriter(p.getProperty(FILE_PROPERTY),Integer.parseInt(p.getProperty(BLOCK_SIZE_PROPERTY,BLOCK_SIZE_PROPERTY_DEFAULT)),
+				Integer.parseInt(p.getProperty(MAX_BLOCKS_PROPERTY,MAX_BLOCKS_PROPERTY_DEFAULT)));
+		}
+		catch (IOException e)
+		{
+			throw new DBException("Can not open trace "+p.getProperty(FILE_PROPERTY)+": "+e);
+		}
+		_block=_writer.takeBlock(0);
+		_stream=streams.getAndIncrement();
+		_db.init();
+	}
+
+	/**
+	 * Cleanup any state for this DB, and flush the trace.
+	 * Called once per DB instance; there is one DB instance per client thread.
+	 */
+	public void cleanup() throws DBException
+	{
+		try
+		{
+			_db.cleanup();
+		}
+		finally
+		{
+			_writer.write(_block);
+			_block=null;
+			try
+			{
+				TraceRecording.closeWriter(_writer);
+			}
+			catch (IOException e)
+			{
+				throw new DBException("Can not write trace: "+e);
+			}
+		}
+	}
+
+	/**
+	 * Append one record to the block of this instance, handing the block to the writer first if
+	 * the record does not fit. The sizes of the written values must be taken with sizesOf() before
+	 * the operation, as the DB consumes the values. Records whose names or field count do not fit
+	 * the 2 byte lengths of the format are dropped and counted.
+	 */
+	void record(byte op, long st, long en, int code, String table, String key, int count, int rows, long bytes, Set<String> readfields, Map<String,ByteIterator> values, int[] valuesizes)
+	{
+		byte[] tablebytes=TraceRecording.bytesOf(table);
+		byte[] keybytes=TraceRecording.bytesOf(key);
+		int fieldcount=-1;
+		byte[][] fieldbytes=null;
+		int[] sizes=valuesizes;
+		if (values!=null)
+		{
+			fieldcount=values.size();
+		}
+		else if (readfields!=null)
+		{
+			fieldcount=readfields.size();
+		}
+		if (tablebytes==null || keybytes==null || fieldcount>Short.MAX_VALUE)
+		{
+			_writer.droppedrecords.incrementAndGet();
+			return;
+		}
+		int size=1+4+8+8+4+2+tablebytes.length+2+keybytes.length+4+4+8+2;
+		if (fieldcount>=0)
+		{
+			fieldbytes=new byte[fieldcount][];
+			int i=0;
+			if (values!=null)
+			{
+				for (Map.Entry<String,ByteIterator> e : values.entrySet())
+				{
+					fieldbytes[i]=TraceRecording.bytesOf(e.getKey());
+					if (fieldbytes[i]==null)
+					{
+						_writer.droppedrecords.incrementAndGet();
+						return;
+					}
+					size+=2+fieldbytes[i].length+4;
+					i++;
+				}
+			}
+			else
+			{
+				sizes=new int[fieldcount];
+				for (String field : readfields)
+				{
+					fieldbytes[i]=TraceRecording.bytesOf(field);
+					if (fieldbytes[i]==null)
+					{
+						_writer.droppedrecords.incrementAndGet();
+						return;
+					}
+					sizes[i]=-1;
+					size+=2+fieldbytes[i].length+4;
+					i++;
+				}
+			}
+		}
+
+		if (_block.remaining()<size)
+		{
+			_writer.write(_block);
+			_block=_writer.takeBlock(size);
+		}
+		_block.put(op);
+		_block.putInt(_stream);
+		_block.putLong(_writer.toMicros(st));
+		_block.putLong(_writer.toMicros(en));
+		_block.putInt(code);
+		_block.putShort((short)tablebytes.length);
+		_block.put(tablebytes);
+		_block.putShort((short)keybytes.length);
+		_block.put(keybytes);
+		_block.putInt(count);
+		_block.putInt(rows);
+		_block.putLong(bytes);
+		_block.putShort((short)fieldcount);
+		for (int i=0; i<fieldcount; i++)
+		{
+			_block.putShort((short)fieldbytes[i].length);
+			_block.put(fieldbytes[i]);
+			_block.putInt(sizes[i]);
+		}
+	}
+
+	/**
+	 * The sizes of the values to write, in the iteration order of the map.
+	 */
+	static int[] sizesOf(Map<String,ByteIterator> values)
+	{
+		int[] sizes=new int[values.size()];
+		int i=0;
+		for (ByteIterator value : values.values())
+		{
+			sizes[i++]=(int)value.bytesLeft();
+		}
+		return sizes;
+	}
+
+	static long bytesOf(Map<String,ByteIterator> row)
+	{
+		long bytes=0;
+		for (ByteIterator value : row.values())
+		{
+			bytes+=value.bytesLeft();
+		}
+		return bytes;
+	}
+
+	public int read(String table, String key, Set<String> fields, HashMap<String,ByteIterator> result)
+	{
+		long st=System.nanoTime();
+		int res=_db.read(table,key,fields,result);
+		long en=System.nanoTime();
+		record(TraceRecording.READ,st,en,res,table,key,0,result.isEmpty() ? 0 : 1,bytesOf(result),fields,null,null);
+		return res;
+	}
+
+	public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		long st=System.nanoTime();
+		int res=_db.scan(table,startkey,recordcount,fields,result);
+		long en=System.nanoTime();
+		record(TraceRecording.SCAN,st,en,res,table,startkey,recordcount,result.size(),DBWrapper.bytesOf(result),fields,null,null);
+		return res;
+	}
+
+	/**
+	 * Stream a scan, recorded as a SCAN.
+	 */
+	public int streamScan(String table, String startkey, int recordcount, Set<String> fields, ScanConsumer consumer)
+	{
+		DBWrapper.CountingConsumer counter=new DBWrapper.CountingConsumer(consumer);
+		long st=System.nanoTime();
+		int res=_db.streamScan(table,startkey,recordcount,fields,counter);
+		long en=System.nanoTime();
+		record(TraceRecording.SCAN,st,en,res,table,startkey,recordcount,counter.rows,counter.bytes,fields,null,null);
+		return res;
+	}
+
+	public List<String> splitRange(String table, String startkey, int segments)
+	{
+		return _db.splitRange(table,startkey,segments);
+	}
+
+	/**
+	 * Queries have no key to replay, so they are not recorded.
+	 */
+	public int query(String table, String field, String lowvalue, String highvalue, int limit, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+	{
+		return _db.query(table,field,lowvalue,highvalue,limit,fields,result);
+	}
+
+	public int update(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		int[] sizes=sizesOf(values);
+		long st=System.nanoTime();
+		int res=_db.update(table,key,values);
+		long en=System.nanoTime();
+		record(TraceRecording.UPDATE,st,en,res,table,key,0,0,0,null,values,sizes);
+		return res;
+	}
+
+	public int insert(String table, String key, HashMap<String,ByteIterator> values)
+	{
+		int[] sizes=sizesOf(values);
+		long st=System.nanoTime();
+		int res=_db.insert(table,key,values);
+		long en=System.nanoTime();
+		record(TraceRecording.INSERT,st,en,res,table,key,0,0,0,null,values,sizes);
+		return res;
+	}
+
+	public int update(String table, String key, HashMap<String,ByteIterator> values, int ttl)
+	{
+		int[] sizes=sizesOf(values);
+		long st=System.nanoTime();
+		int res=_db.update(table,key,values,ttl);
+		long en=System.nanoTime();
+		record(TraceRecording.UPDATE,st,en,res,table,key,0,0,0,null,values,sizes);
+		return res;
+	}
+
+	public int insert(String table, String key, HashMap<String,ByteIterator> values, int ttl)
+	{
+		int[] sizes=sizesOf(values);
+		long st=System.nanoTime();
+		int res=_db.insert(table,key,values,ttl);
+		long en=System.nanoTime();
+		record(TraceRecording.INSERT,st,en,res,table,key,0,0,0,null,values,sizes);
+		return res;
+	}
+
+	public int delete(String table, String key)
+	{
+		long st=System.nanoTime();
+		int res=_db.delete(table,key);
+		long en=System.nanoTime();
+		record(TraceRecording.DELETE,st,en,res,table,key,0,0,0,null,null,null);
+		return res;
+	}
+
+	/**
+	 * Read several records, recorded as one READ per key sharing the timing and return code of the batch.
+	 */
+	public int batchRead(String table, List<String> keys, Set<String> fields, List<HashMap<String,ByteIterator>> results)
+	{
+		long st=System.nanoTime();
+		int first=results.size();
+		int res=_db.batchRead(table,keys,fields,results);
+		long en=System.nanoTime();
+		for (int i=0; i<keys.size(); i++)
+		{
+			HashMap<String,ByteIterator> result=first+i<results.size() ? results.get(first+i) : null;
+			boolean found=result!=null && !result.isEmpty();
+			record(TraceRecording.READ,st,en,res,table,keys.get(i),0,found ? 1 : 0,found ? bytesOf(result) : 0,fields,null,null);
+		}
+		return res;
+	}
+
+	/**
+	 * Insert several records, recorded as one INSERT per key sharing the timing and return code of the batch.
+	 */
+	public int batchInsert(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		int[][] sizes=new int[keys.size()][];
+		for (int i=0; i<keys.size(); i++)
+		{
+			sizes[i]=sizesOf(values.get(i));
+		}
+		long st=System.nanoTime();
+		int res=_db.batchInsert(table,keys,values);
+		long en=System.nanoTime();
+		for (int i=0; i<keys.size(); i++)
+		{
+			record(TraceRecording.INSERT,st,en,res,table,keys.get(i),0,0,0,null,values.get(i),sizes[i]);
+		}
+		return res;
+	}
+
+	/**
+	 * Update several records, recorded as one UPDATE per key sharing the timing and return code of the batch.
+	 */
+	public int batchUpdate(String table, List<String> keys, List<HashMap<String,ByteIterator>> values)
+	{
+		int[][] sizes=new int[keys.size()][];
+		for (int i=0; i<keys.size(); i++)
+		{
+			sizes[i]=sizesOf(values.get(i));
+		}
+		long st=System.nanoTime();
+		int res=_db.batchUpdate(table,keys,values);
+		long en=System.nanoTime();
+		for (int i=0; i<keys.size(); i++)
+		{
+			record(TraceRecording.UPDATE,st,en,res,table,keys.get(i),0,0,0,null,values.get(i),sizes[i]);
+		}
+		return res;
+	}
+
+	public int compareAndSet(String table, String key, String field, ByteIterator expected, ByteIterator value)
+	{
+		HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+		values.put(field,value);
+		int[] sizes=sizesOf(values);
+		long st=System.nanoTime();
+		int res=_db.compareAndSet(table,key,field,expected,value);
+		long en=System.nanoTime();
+		record(TraceRecording.CAS,st,en,res,table,key,0,0,0,null,values,sizes);
+		return res;
+	}
+
+	public int increment(String table, String key, String field, long delta)
+	{
+		long st=System.nanoTime();
+		int res=_db.increment(table,key,field,delta);
+		long en=System.nanoTime();
+		record(TraceRecording.INCREMENT,st,en,res,table,key,0,0,0,Collections.singleton(field),null,null);
+		return res;
+	}
+
+	/**
+	 * Transaction boundaries are not recorded; the operations inside are, as single operations.
+	 */
+	public int beginTransaction()
+	{
+		return _db.beginTransaction();
+	}
+
+	public int commitTransaction()
+	{
+		return _db.commitTransaction();
+	}
+
+	public int abortTransaction()
+	{
+		return _db.abortTransaction();
+	}
+}
@@ -0,0 +1,529 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The binary format of the operation traces written by {@link TraceRecorderDB}, the writer used
+ * by the recorders and a reader converting a trace to text or summarizing it.
+ *
+ * A trace starts with the 8 bytes "YCSBTRC1", followed by one record per operation, all numbers
+ * big endian and strings as a 2 byte length followed by UTF-8 bytes:
+ * <pre>
+ * byte   op          (READ, SCAN, UPDATE, INSERT, DELETE, CAS or INCREMENT)
+ * int    stream      (the DB instance, i.e. the client thread, that did the operation)
+ * long   start       (microseconds since the epoch)
+ * long   end         (microseconds since the epoch)
+ * int    return code
+ * string table
+ * string key
+ * int    count       (records asked for by a scan, 0 otherwise)
+ * int    rows        (records returned by a read or scan)
+ * long   bytes       (bytes of the field values returned by a read or scan)
+ * short  field count (-1 if all the fields were read)
+ * then per field: string name, int value size (-1 for reads)
+ * </pre>
+ * Records of different client threads are interleaved in blocks, so they are only roughly
+ * ordered by start time.
+ *
+ * Usage: java com.yahoo.ycsb.TraceRecording [text|summary] tracefile
+ * <UL>
+ * <LI><b>text</b>: print the trace in the format replayed by the TraceWorkload, with microsecond timestamps
+ * <LI><b>summary</b>: print the counts, latencies and sizes per operation and the most accessed keys
+ * </ul>
+ */
+public class TraceRecording
+{
+  static final byte[] MAGIC="YCSBTRC1".getBytes(Charset.forName("US-ASCII"));
+
+  static final Charset UTF8=Charset.forName("UTF-8");
+
+  public static final byte READ=1;
+  public static final byte SCAN=2;
+  public static final byte UPDATE=3;
+  public static final byte INSERT=4;
+  public static final byte DELETE=5;
+  public static final byte CAS=6;
+  public static final byte INCREMENT=7;
+
+  static final String[] OP_NAMES={null,"READ","SCAN","UPDATE","INSERT","DELETE","CAS","INCREMENT"};
+
+  /** The number of most accessed keys printed by the summary. */
+  static final int TOP_KEYS=10;
+
+  /**
+   * One operation of a trace.
+   */
+  public static class Record
+  {
+    public byte op;
+    public int stream;
+    public long start;
+    public long end;
+    public int code;
+    public String table;
+    public String key;
+    public int count;
+    public int rows;
+    public long bytes;
+    /** The fields read or written, or null if all the fields were read. */
+    public String[] fields;
+    public int[] sizes;
+
+    public String getOpName()
+    {
+      return op>0 && op<OP_NAMES.length ? OP_NAMES[op] : "UNKNOWN";
+    }
+  }
+
+  /**
+   * Writes the blocks of records filled by the recorders to the trace file from a background
+   * thread, so the client threads only copy their records to memory. Filled blocks are queued
+   * to the writer thread, which returns them to a pool of free blocks once written. At most
+   * maxblocks blocks wait to be written: when the disk falls behind, further blocks are dropped
+   * rather than slowing down the client threads or filling the heap, and counted.
+   */
+  static class Writer extends Thread
+  {
+    final String filename;
+    final FileOutputStream out;
+    final FileChannel channel;
+    final int blocksize;
+    final BlockingQueue<ByteBuffer> filled;
+    final ConcurrentLinkedQueue<ByteBuffer> free=new ConcurrentLinkedQueue<ByteBuffer>();
+
+    /** Queued to stop the writer thread once the blocks before it are written. */
+    static final ByteBuffer END=ByteBuffer.allocate(0);
+
+    int users;
+    volatile IOException error;
+
+    /** The blocks dropped because the queue was full, and the records too large to encode. */
+    final AtomicLong droppedblocks=new AtomicLong();
+    final AtomicLong droppedrecords=new AtomicLong();
+
+    /** The wall clock time and System.nanoTime() at the start of the trace. */
+    final long basemicros;
+    final long basenanos;
+
+    Writer(String filename, int blocksize, int maxblocks) throws IOException
+    {
+      super("TraceRecording writer");
+      this.filename=filename;
+      this.blocksize=blocksize;
+      this.filled=new LinkedBlockingQueue<ByteBuffer>(maxblocks);
+      out=new FileOutputStream(filename);
+      channel=out.getChannel();
+      channel.write(ByteBuffer.wrap(MAGIC));
+      basemicros=System.currentTimeMillis()*1000;
+      basenanos=System.nanoTime();
+      setDaemon(true);
+    }
+
+    long toMicros(long nanos)
+    {
+      return basemicros+(nanos-basenanos)/1000;
+    }
+
+    ByteBuffer takeBlock(int minsize)
+    {
+      if (minsize>blocksize)
+      {
+        return ByteBuffer.allocate(minsize);
+      }
+      ByteBuffer block=free.poll();
+      return block!=null ? block : ByteBuffer.allocate(blocksize);
+    }
+
+    void write(ByteBuffer block)
+    {
+      if (block.position()==0)
+      {
+        free.offer(block);
+        return;
+      }
+      block.flip();
+      if (!filled.offer(block))
+      {
+        droppedblocks.incrementAndGet();
+        block.clear();
+        if (block.capacity()==blocksize)
+        {
+          free.offer(block);
+        }
+      }
+    }
+
+    public void run()
+    {
+      try
+      {
+        while (true)
+        {
+          ByteBuffer block=filled.take();
+          if (block==END)
+          {
+            break;
+          }
+          try
+          {
+            while (block.hasRemaining())
+            {
+              channel.write(block);
+            }
+          }
+          catch (IOException e)
+          {
+            if (error==null)
+            {
+              System.err.println("Error writing trace "+filename+": "+e);
+            }
+            error=e;
+          }
+          block.clear();
+          if (block.capacity()==blocksize)
+          {
+            free.offer(block);
+          }
+        }
+      }
+      catch (InterruptedException e)
+      {
+        // stop writing
+      }
+    }
+
+    void close() throws IOException
+    {
+      try
+      {
+        filled.put(END);
+        join();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+      }
+      out.close();
+      if (droppedblocks.get()>0)
+      {
+        System.err.println("Dropped "+droppedblocks.get()+" blocks of trace "+filename+" as the disk fell behind");
+      }
+      if (droppedrecords.get()>0)
+      {
+        System.err.println("Dropped "+droppedrecords.get()+" records of trace "+filename+" with names over "+Short.MAX_VALUE+" bytes or fields");
+      }
+      if (error!=null)
+      {
+        throw error;
+      }
+    }
+  }
+
+  static Writer writer;
+
+  /**
+   * Return the writer of the trace file, starting it for its first user.
+   */
+  static synchronized Writer openWriter(String filename, int blocksize, int maxblocks) throws IOException
+  {
+    if (writer==null)
+    {
+      writer=new Writer(filename,blocksize,maxblocks);
+      writer.start();
+    }
+    writer.users++;
+    return writer;
+  }
+
+  /**
+   * Release the writer of the trace file, flushing and closing it once its last user is done.
+   */
+  static synchronized void closeWriter(Writer w) throws IOException
+  {
+    if (--w.users==0)
+    {
+      writer=null;
+      w.close();
+    }
+  }
+
+  /**
+   * Return the UTF-8 bytes of a string, or null if they are too many for its 2 byte length.
+   */
+  static byte[] bytesOf(String s)
+  {
+    byte[] bytes=s.getBytes(UTF8);
+    return bytes.length>Short.MAX_VALUE ? null : bytes;
+  }
+
+  /**
+   * Reads the records of a trace file in order.
+   */
+  public static class Reader
+  {
+    final DataInputStream in;
+
+    public Reader(String filename) throws IOException
+    {
+      in=new DataInputStream(new BufferedInputStream(new FileInputStream(filename),1<<16));
+      byte[] magic=new byte[MAGIC.length];
+      in.readFully(magic);
+      if (!Arrays.equals(magic,MAGIC))
+      {
+        in.close();
+        throw new IOException(filename+" is not an operation trace");
+      }
+    }
+
+    String readString() throws IOException
+    {
+      byte[] bytes=new byte[in.readShort()];
+      in.readFully(bytes);
+      return new String(bytes,UTF8);
+    }
+
+    /**
+     * Return the next record, or null at the end of the trace.
+     */
+    public Record next() throws IOException
+    {
+      Record r=new Record();
+      try
+      {
+        r.op=in.readByte();
+      }
+      catch (EOFException e)
+      {
+        return null;
+      }
+      r.stream=in.readInt();
+      r.start=in.readLong();
+      r.end=in.readLong();
+      r.code=in.readInt();
+      r.table=readString();
+      r.key=readString();
+      r.count=in.readInt();
+      r.rows=in.readInt();
+      r.bytes=in.readLong();
+      int fieldcount=in.readShort();
+      if (fieldcount>=0)
+      {
+        r.fields=new String[fieldcount];
+        r.sizes=new int[fieldcount];
+        for (int i=0; i<fieldcount; i++)
+        {
+          r.fields[i]=readString();
+          r.sizes[i]=in.readInt();
+        }
+      }
+      return r;
+    }
+
+    public void close() throws IOException
+    {
+      in.close();
+    }
+  }
+
+  /**
+   * Print the records as timestamp,op,table,key,fields,valuesize lines, replayable by the
+   * TraceWorkload with trace.timeunit=us.
+   */
+  static void printText(Reader reader, PrintStream out) throws IOException
+  {
+    out.println("# timestamp(us),op,table,key,fields,valuesize");
+    Record r;
+    while ((r=reader.next())!=null)
+    {
+      StringBuilder line=new StringBuilder();
+      line.append(r.start).append(',').append(r.getOpName()).append(',').append(r.table).append(',').append(r.key).append(',');
+      int size=-1;
+      if (r.fields!=null)
+      {
+        for (int i=0; i<r.fields.length; i++)
+        {
+          if (i>0)
+          {
+            line.append(';');
+          }
+          line.append(r.fields[i]);
+          size=Math.max(size,r.sizes[i]);
+        }
+      }
+      line.append(',');
+      if (r.op==SCAN)
+      {
+        line.append(r.count);
+      }
+      else if (size>=0)
+      {
+        line.append(size);
+      }
+      out.println(line);
+    }
+  }
+
+  /**
+   * Print the number of operations, errors, latency and sizes per operation, the number of
+   * operations per stream and the most accessed keys, to spot skew.
+   */
+  static void printSummary(Reader reader, PrintStream out) throws IOException
+  {
+    TreeMap<String,long[]> ops=new TreeMap<String,long[]>();
+    TreeMap<Integer,long[]> streams=new TreeMap<Integer,long[]>();
+    HashMap<String,long[]> keys=new HashMap<String,long[]>();
+    long first=Long.MAX_VALUE;
+    long last=Long.MIN_VALUE;
+    long total=0;
+
+    Record r;
+    while ((r=reader.next())!=null)
+    {
+      total++;
+      first=Math.min(first,r.start);
+      last=Math.max(last,r.end);
+
+      // operations, errors, total latency, max latency, rows, bytes read, bytes written
+      long[] op=ops.get(r.getOpName());
+      if (op==null)
+      {
+        op=new long[7];
+        ops.put(r.getOpName(),op);
+      }
+      long latency=r.end-r.start;
+      op[0]++;
+      if (r.code!=0)
+      {
+        op[1]++;
+      }
+      op[2]+=latency;
+      op[3]=Math.max(op[3],latency);
+      op[4]+=r.rows;
+      op[5]+=r.bytes;
+      if (r.sizes!=null)
+      {
+        for (int size : r.sizes)
+        {
+          op[6]+=Math.max(size,0);
+        }
+      }
+
+      long[] stream=streams.get(r.stream);
+      if (stream==null)
+      {
+        stream=new long[1];
+        streams.put(r.stream,stream);
+      }
+      stream[0]++;
+
+      String key=r.table+"/"+r.key;
+      long[] count=keys.get(key);
+      if (count==null)
+      {
+        count=new long[1];
+        keys.put(key,count);
+      }
+      count[0]++;
+    }
+
+    DecimalFormat d=new DecimalFormat("#.##");
+    out.println("Operations: "+total);
+    if (total==0)
+    {
+      return;
+    }
+    out.println("Duration(ms): "+d.format((last-first)/1000.0));
+    out.println("Distinct keys: "+keys.size());
+    for (Map.Entry<String,long[]> e : ops.entrySet())
+    {
+      long[] op=e.getValue();
+      out.println("["+e.getKey()+"] Operations="+op[0]+", Errors="+op[1]
+          +", AverageLatency(us)="+d.format(((double)op[2])/op[0])+", MaxLatency(us)="+op[3]
+          +", Rows="+op[4]+", BytesRead="+op[5]+", BytesWritten="+op[6]);
+    }
+    for (Map.Entry<Integer,long[]> e : streams.entrySet())
+    {
+      out.println("[STREAM-"+e.getKey()+"] Operations="+e.getValue()[0]);
+    }
+
+    List<Map.Entry<String,long[]>> sorted=new ArrayList<Map.Entry<String,long[]>>(keys.entrySet());
+    Collections.sort(sorted,new Comparator<Map.Entry<String,long[]>>()
+    {
+      public int compare(Map.Entry<String,long[]> a, Map.Entry<String,long[]> b)
+      {
+        return a.getValue()[0]<b.getValue()[0] ? 1 : (a.getValue()[0]>b.getValue()[0] ? -1 : 0);
+      }
+    });
+    for (int i=0; i<Math.min(TOP_KEYS,sorted.size()); i++)
+    {
+      long count=sorted.get(i).getValue()[0];
+      out.println("[KEY] "+sorted.get(i).getKey()+" Operations="+count+" ("+d.format(100.0*count/total)+"%)");
+    }
+  }
+
+  public static void main(String[] args)
+  {
+    if (args.length!=2 || !(args[0].equals("text") || args[0].equals("summary")))
+    {
+      System.out.println("Usage: java com.yahoo.ycsb.TraceRecording [text|summary] tracefile");
+      System.exit(0);
+    }
+    try
+    {
+      Reader reader=new Reader(args[1]);
+      if (args[0].equals("text"))
+      {
+        printText(reader,System.out);
+      }
+      else
+      {
+        printSummary(reader,System.out);
+      }
+      reader.close();
+    }
+    catch (IOException e)
+    {
+      System.err.println("Error reading trace "+args[1]+": "+e);
+      System.exit(1);
+    }
+  }
+}
@@ -0,0 +1,208 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+
+import com.yahoo.ycsb.generator.ZipfianGenerator;
+
+/**
+ * Generates the random field values written by the workloads. Random bytes do not compress, so
+ * stores with block compression would be measured on data unlike most real payloads; the
+ * valuegenerator property chooses the kind of values:
+ * <UL>
+ * <LI><b>random</b>: random printable bytes, see RandomByteIterator
+ * <LI><b>compressible</b>: random printable bytes, the first valuecompressibility-th of every
+ * value repeated to fill it, so LZ compressors such as Snappy and LZ4 shrink values by about that
+ * ratio; compressors with entropy coding such as deflate also save the 2 unused bits of the bytes
+ * <LI><b>text</b>: words separated by spaces, drawn with a Zipfian popularity from the words of
+ * the valuedictionary file, one per line with the most frequent first, or else from a made-up
+ * vocabulary of valuevocabulary words, shorter the more frequent; it compresses like prose
+ * <LI>the name of a subclass of ValueGenerator, built with its public no-argument constructor
+ * </ul>
+ * Generators are shared by the client threads, so they must be thread safe.
+ */
+public abstract class ValueGenerator {
+  public static final String VALUE_GENERATOR_PROPERTY = "valuegenerator";
+  public static final String VALUE_GENERATOR_PROPERTY_DEFAULT = "random";
+
+  public static final String VALUE_COMPRESSIBILITY_PROPERTY = "valuecompressibility";
+  public static final String VALUE_COMPRESSIBILITY_PROPERTY_DEFAULT = "2.0";
+
+  public static final String VALUE_DICTIONARY_PROPERTY = "valuedictionary";
+
+  public static final String VALUE_VOCABULARY_PROPERTY = "valuevocabulary";
+  public static final String VALUE_VOCABULARY_PROPERTY_DEFAULT = "10000";
+
+  /**
+   * Initialize the generator from the workload properties.
+   */
+  public void init(Properties p) throws WorkloadException {
+  }
+
+  /**
+   * Return a value of the given length.
+   */
+  public abstract ByteIterator next(int length);
+
+  /**
+   * Create the generator chosen by the valuegenerator property.
+   */
+  public static ValueGenerator create(Properties p) throws WorkloadException {
+    String name = p.getProperty(VALUE_GENERATOR_PROPERTY, VALUE_GENERATOR_PROPERTY_DEFAULT);
+    ValueGenerator generator;
+    if (name.equals("random")) {
+      generator = new RandomValueGenerator();
+    } else if (name.equals("compressible")) {
+      generator = new CompressibleValueGenerator();
+    } else if (name.equals("text")) {
+      generator = new TextValueGenerator();
+    } else {
+      try {
+        generator = (ValueGenerator)Class.forName(name).newInstance();
+      } catch (Exception e) {
+        throw new WorkloadException("Unknown " + VALUE_GENERATOR_PROPERTY + " \"" + name + "\": " + e);
+      }
+    }
+    generator.init(p);
+    return generator;
+  }
+
+  public static class RandomValueGenerator extends ValueGenerator {
+    @Override
+    public ByteIterator next(int length) {
+      return new RandomByteIterator(length);
+    }
+  }
+
+  public static class CompressibleValueGenerator extends ValueGenerator {
+    double compressibility;
+
+    @Override
+    public void init(Properties p) throws WorkloadException {
+      compressibility = Double.parseDouble(p.getProperty(VALUE_COMPRESSIBILITY_PROPERTY, VALUE_COMPRESSIBILITY_PROPERTY_DEFAULT));
+      if (compressibility < 1) {
+        throw new WorkloadException(VALUE_COMPRESSIBILITY_PROPERTY + " must be at least 1");
+      }
+    }
+
+    @Override
+    public ByteIterator next(int length) {
+      byte[] value = new byte[length];
+      int unique = Math.min(length, (int)Math.ceil(length / compressibility));
+      Random random = Utils.random();
+      long r = 0;
+      for (int i = 0; i < unique; i++) {
+        if (i % 10 == 0) {
+          r = random.nextLong();
+        }
+        value[i] = ValuePool.SYMBOLS[(int)r & 63];
+        r >>>= 6;
+      }
+      // each copy of the unique part is one match for the compressor
+      for (int filled = unique; filled < length; filled += unique) {
+        System.arraycopy(value, 0, value, filled, Math.min(unique, length - filled));
+      }
+      return new ByteArrayByteIterator(value);
+    }
+  }
+
+  public static class TextValueGenerator extends ValueGenerator {
+    byte[][] words;
+    ZipfianGenerator popularity;
+
+    @Override
+    public void init(Properties p) throws WorkloadException {
+      String dictionary = p.getProperty(VALUE_DICTIONARY_PROPERTY);
+      if (dictionary != null) {
+        words = readDictionary(dictionary);
+      } else {
+        words = makeVocabulary(Integer.parseInt(p.getProperty(VALUE_VOCABULARY_PROPERTY, VALUE_VOCABULARY_PROPERTY_DEFAULT)));
+      }
+      if (words.length == 0) {
+        throw new WorkloadException("No words in " + VALUE_DICTIONARY_PROPERTY + " " + dictionary);
+      }
+      popularity = new ZipfianGenerator(words.length);
+    }
+
+    static byte[][] readDictionary(String file) throws WorkloadException {
+      List<byte[]> words = new ArrayList<byte[]>();
+      try {
+        BufferedReader in = new BufferedReader(new FileReader(file));
+        try {
+          String line;
+          while ((line = in.readLine()) != null) {
+            line = line.trim();
+            if (line.length() > 0) {
+              words.add(line.getBytes("UTF-8"));
+            }
+          }
+        } finally {
+          in.close();
+        }
+      } catch (IOException e) {
+        throw new WorkloadException("Couldn't read " + VALUE_DICTIONARY_PROPERTY + " " + file, e);
+      }
+      return words.toArray(new byte[words.size()][]);
+    }
+
+    /** Lower case letters, about as often as in English text. */
+    static final byte[] LETTERS = "eeeeeeeeeeeettttttttaaaaaaaoooooooiiiiiiinnnnnnsssssshhhhhhrrrrrrddddllllcccuuummwwffggyyppbbvkjxqz".getBytes();
+
+    /**
+     * Make up words of lower case letters, the same for every client, longer as they get rarer,
+     * as in natural languages.
+     */
+    static byte[][] makeVocabulary(int size) throws WorkloadException {
+      if (size <= 0) {
+        throw new WorkloadException(VALUE_VOCABULARY_PROPERTY + " must be larger than 0");
+      }
+      Random random = new Random(size);
+      byte[][] words = new byte[size][];
+      for (int i = 0; i < size; i++) {
+        words[i] = new byte[1 + (int)(Math.log(i + 2) / Math.log(3)) + random.nextInt(3)];
+        for (int j = 0; j < words[i].length; j++) {
+          words[i][j] = LETTERS[random.nextInt(LETTERS.length)];
+        }
+      }
+      return words;
+    }
+
+    @Override
+    public ByteIterator next(int length) {
+      byte[] value = new byte[length];
+      int filled = 0;
+      while (filled < length) {
+        if (filled > 0) {
+          value[filled++] = ' ';
+        }
+        byte[] word = words[popularity.nextInt()];
+        int n = Math.min(word.length, length - filled);
+        System.arraycopy(word, 0, value, filled, n);
+        filled += n;
+      }
+      return new ByteArrayByteIterator(value);
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.nio.ByteBuffer;
+import java.util.Properties;
+import java.util.Random;
+
+/**
+ * A slab of random printable bytes generated once, outside the Java heap, whose slices serve as
+ * field values. Taking a value only draws its offset, rather than a random number per few bytes
+ * like RandomByteIterator, so generating payloads costs next to nothing at high rates against
+ * fast stores, and the slab adds no garbage collection work however large it is.
+ *
+ * With the default random ValueGenerator, the bytes are drawn from 2^entropy symbols, so that the
+ * entropy in bits per byte, from 1 to 6, sets how well the values compress. Other generators fill
+ * the slab with values as long as the longest field, so slices compress like their values. The
+ * slab should be much larger than the windows of block compressors, or repeated slices compress
+ * better than intended.
+ */
+public class ValuePool {
+  public static final String VALUE_POOL_PROPERTY = "valuepool";
+  public static final String VALUE_POOL_PROPERTY_DEFAULT = "false";
+
+  public static final String VALUE_POOL_SIZE_PROPERTY = "valuepool.size";
+  public static final String VALUE_POOL_SIZE_PROPERTY_DEFAULT = "67108864";
+
+  public static final String VALUE_POOL_ENTROPY_PROPERTY = "valuepool.entropy";
+  public static final String VALUE_POOL_ENTROPY_PROPERTY_DEFAULT = "6";
+
+  static final byte[] SYMBOLS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".getBytes();
+
+  private final ByteBuffer slab;
+  private final int size;
+
+  public ValuePool(int size, int entropy) {
+    if (size <= 0 || entropy < 1 || entropy > 6) {
+      throw new IllegalArgumentException("The size must be positive and the entropy between 1 and 6");
+    }
+    this.size = size;
+    this.slab = ByteBuffer.allocateDirect(size);
+    int mask = (1 << entropy) - 1;
+    Random random = new Random();
+    byte[] chunk = new byte[Math.min(size, 1 << 16)];
+    while (slab.hasRemaining()) {
+      int n = Math.min(chunk.length, slab.remaining());
+      long r = 0;
+      for (int i = 0; i < n; i++) {
+        // ten 6 bit symbols per random long
+        if (i % 10 == 0) {
+          r = random.nextLong();
+        }
+        chunk[i] = SYMBOLS[(int)r & mask];
+        r >>>= 6;
+      }
+      slab.put(chunk, 0, n);
+    }
+  }
+
+  /**
+   * A pool filled with values of the generator, chunk bytes long.
+   */
+  public ValuePool(int size, ValueGenerator generator, int chunk) {
+    if (size <= 0 || chunk <= 0) {
+      throw new IllegalArgumentException("The size and the chunk must be positive");
+    }
+    this.size = size;
+    this.slab = ByteBuffer.allocateDirect(size);
+    while (slab.hasRemaining()) {
+      slab.put(generator.next(Math.min(chunk, slab.remaining())).toArray());
+    }
+  }
+
+  /**
+   * Create the pool configured by the valuepool properties, filled by the generator with values
+   * of chunk bytes, the longest field, or return null if it is disabled.
+   */
+  public static ValuePool create(Properties p, ValueGenerator generator, int chunk) throws WorkloadException {
+    if (!Boolean.parseBoolean(p.getProperty(VALUE_POOL_PROPERTY, VALUE_POOL_PROPERTY_DEFAULT))) {
+      return null;
+    }
+    int size = Integer.parseInt(p.getProperty(VALUE_POOL_SIZE_PROPERTY, VALUE_POOL_SIZE_PROPERTY_DEFAULT));
+    int entropy = Integer.parseInt(p.getProperty(VALUE_POOL_ENTROPY_PROPERTY, VALUE_POOL_ENTROPY_PROPERTY_DEFAULT));
+    try {
+      if (generator instanceof ValueGenerator.RandomValueGenerator) {
+        return new ValuePool(size, entropy);
+      }
+      return new ValuePool(size, generator, chunk);
+    } catch (IllegalArgumentException e) {
+      throw new WorkloadException(VALUE_POOL_SIZE_PROPERTY + " must be positive and " + VALUE_POOL_ENTROPY_PROPERTY + " between 1 and 6");
+    } catch (OutOfMemoryError e) {
+      throw new WorkloadException("Couldn't allocate a value pool of " + size + " bytes, raise -XX:MaxDirectMemorySize", e);
+    }
+  }
+
+  /**
+   * Return a value of the given length, starting at a random offset of the slab. Values longer
+   * than the slab wrap around its end.
+   */
+  public PooledByteIterator next(long len) {
+    int off = len <= size ? Utils.random().nextInt(size - (int)len + 1) : Utils.random().nextInt(size);
+    return new PooledByteIterator(slab, off, len);
+  }
+
+  public int size() {
+    return size;
+  }
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.Random;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Generate integers whose popularity follows a daily cycle: the interval is split into cohorts,
+ * such as users in different time zones, each most active at its own time of the day. The activity
+ * of a cohort follows a cosine over the period, peaking at 1+amplitude times the average and
+ * falling to 1-amplitude times it, with the peaks of the cohorts spread evenly over the period.
+ * Items are chosen uniformly within a cohort.
+ *
+ * The time of the day only depends on the time since the generator was created, so all the
+ * threads sharing it agree on it. A period of a few minutes compresses a day into a benchmark run.
+ */
+public class DiurnalIntegerGenerator extends IntegerGenerator {
+
+  private final int lowerBound;
+  private final int interval;
+  private final int cohorts;
+  private final double amplitude;
+  private final long periodNs;
+  private final long startNs;
+
+  /**
+   * Create a generator for diurnal distributions.
+   *
+   * @param lowerBound lower bound of the distribution.
+   * @param upperBound upper bound of the distribution.
+   * @param cohorts number of cohorts the interval is split into.
+   * @param amplitude how much the activity of a cohort varies over the day, between 0 and 1.
+   * @param periodMs the length of a day, in milliseconds.
+   */
+  public DiurnalIntegerGenerator(int lowerBound, int upperBound,
+      int cohorts, double amplitude, long periodMs) {
+    if (amplitude < 0.0 || amplitude > 1.0) {
+      System.err.println("Diurnal amplitude out of range. Setting to 0.0");
+      amplitude = 0.0;
+    }
+    if (cohorts < 1) {
+      System.err.println("Diurnal cohort count out of range. Setting to 1");
+      cohorts = 1;
+    }
+    if (periodMs < 1) {
+      System.err.println("Diurnal period out of range. Setting to 1");
+      periodMs = 1;
+    }
+    if (lowerBound > upperBound) {
+      System.err.println("Upper bound of the diurnal generator smaller than the lower bound. " +
+          "Swapping the values.");
+      int temp = lowerBound;
+      lowerBound = upperBound;
+      upperBound = temp;
+    }
+    this.lowerBound = lowerBound;
+    this.interval = upperBound - lowerBound + 1;
+    this.cohorts = Math.min(cohorts, interval);
+    this.amplitude = amplitude;
+    this.periodNs = periodMs * 1000000L;
+    this.startNs = System.nanoTime();
+  }
+
+  @Override
+  public int nextInt() {
+    return nextInt(System.nanoTime() - startNs);
+  }
+
+  /**
+   * Generate the next integer as if elapsedNs had passed since the generator was created.
+   */
+  int nextInt(long elapsedNs) {
+    Random random = Utils.random();
+    double phase = (double)(elapsedNs % periodNs) / periodNs;
+    // choose a cohort by rejection: accept with its activity relative to the peak activity
+    int cohort;
+    do {
+      cohort = random.nextInt(cohorts);
+    } while (random.nextDouble() * (1 + amplitude) > activity(cohort, phase));
+    long first = (long)cohort * interval / cohorts;
+    long next = (long)(cohort + 1) * interval / cohorts;
+    int value = lowerBound + (int)(first + random.nextInt((int)(next - first)));
+    setLastInt(value);
+    return value;
+  }
+
+  /**
+   * The activity of a cohort at the given fraction of the day, relative to the average.
+   */
+  double activity(int cohort, double phase) {
+    return 1 + amplitude * Math.cos(2 * Math.PI * (phase - (double)cohort / cohorts));
+  }
+
+  /**
+   * Over a day every cohort is as active as the others.
+   */
+  @Override
+  public double mean() {
+    return lowerBound + (interval - 1) / 2.0;
+  }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import java.util.Random;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Generate integers resembling a hotspot distribution whose hot set moves over time, so that
+ * caches keep having to refill as popular items go cold and cold items become popular.
+ * hotOpnFraction of the operations access the hot set, hotsetFraction of the interval split into
+ * hotspotCount equal regions; the other operations access the whole interval uniformly.
+ *
+ * Regions either slide, moving steadily so that they go through the whole interval once per
+ * period, or are reshuffled, jumping to new random places at the start of every period. The
+ * places only depend on the time since the generator was created, so all the threads sharing it
+ * agree on the hot set.
+ */
+public class ShiftingHotspotIntegerGenerator extends IntegerGenerator {
+
+  private final int lowerBound;
+  private final int interval;
+  private final int regionSize;
+  private final int hotspotCount;
+  private final double hotOpnFraction;
+  private final boolean reshuffle;
+  private final long periodNs;
+  private final long startNs;
+  private final long seed;
+
+  /**
+   * Create a generator for shifting hotspot distributions.
+   *
+   * @param lowerBound lower bound of the distribution.
+   * @param upperBound upper bound of the distribution.
+   * @param hotsetFraction percentage of data items in the hot regions together.
+   * @param hotOpnFraction percentage of operations accessing the hot regions.
+   * @param hotspotCount number of hot regions.
+   * @param reshuffle whether the regions jump to random places every period, rather than slide.
+   * @param periodMs the time to slide through the interval, or between reshuffles, in milliseconds.
+   */
+  public ShiftingHotspotIntegerGenerator(int lowerBound, int upperBound,
+      double hotsetFraction, double hotOpnFraction, int hotspotCount,
+      boolean reshuffle, long periodMs) {
+    if (hotsetFraction < 0.0 || hotsetFraction > 1.0) {
+      System.err.println("Hotset fraction out of range. Setting to 0.0");
+      hotsetFraction = 0.0;
+    }
+    if (hotOpnFraction < 0.0 || hotOpnFraction > 1.0) {
+      System.err.println("Hot operation fraction out of range. Setting to 0.0");
+      hotOpnFraction = 0.0;
+    }
+    if (hotspotCount < 1) {
+      System.err.println("Hotspot count out of range. Setting to 1");
+      hotspotCount = 1;
+    }
+    if (periodMs < 1) {
+      System.err.println("Hotspot period out of range. Setting to 1");
+      periodMs = 1;
+    }
+    if (lowerBound > upperBound) {
+      System.err.println("Upper bound of the shifting hotspot generator smaller than the lower bound. " +
+          "Swapping the values.");
+      int temp = lowerBound;
+      lowerBound = upperBound;
+      upperBound = temp;
+    }
+    this.lowerBound = lowerBound;
+    this.interval = upperBound - lowerBound + 1;
+    this.hotspotCount = hotspotCount;
+    this.regionSize = Math.max(1, (int)(interval * hotsetFraction / hotspotCount));
+    this.hotOpnFraction = hotOpnFraction;
+    this.reshuffle = reshuffle;
+    this.periodNs = periodMs * 1000000L;
+    this.startNs = System.nanoTime();
+    this.seed = Utils.random().nextLong();
+  }
+
+  @Override
+  public int nextInt() {
+    return nextInt(System.nanoTime() - startNs);
+  }
+
+  /**
+   * Generate the next integer as if elapsedNs had passed since the generator was created.
+   */
+  int nextInt(long elapsedNs) {
+    Random random = Utils.random();
+    int value;
+    if (random.nextDouble() < hotOpnFraction) {
+      int region = random.nextInt(hotspotCount);
+      value = lowerBound + (int)((regionStart(region, elapsedNs) + random.nextInt(regionSize)) % interval);
+    } else {
+      value = lowerBound + random.nextInt(interval);
+    }
+    setLastInt(value);
+    return value;
+  }
+
+  /**
+   * The offset in the interval of the first item of a hot region at the given time.
+   */
+  long regionStart(int region, long elapsedNs) {
+    long period = elapsedNs / periodNs;
+    if (reshuffle) {
+      return Math.abs(Utils.FNVhash64(seed ^ (period * hotspotCount + region)) % interval);
+    }
+    // regions are spread evenly, and all move by one interval per period
+    double moved = (double)(elapsedNs % periodNs) / periodNs * interval;
+    return ((long)moved + (long)region * interval / hotspotCount) % interval;
+  }
+
+  /**
+   * @return the number of items of each hot region
+   */
+  public int getRegionSize() {
+    return regionSize;
+  }
+
+  /**
+   * Over time the hot regions cover the interval evenly.
+   */
+  @Override
+  public double mean() {
+    return lowerBound + (interval - 1) / 2.0;
+  }
+}
@@ -18,7 +18,9 @@
 package com.yahoo.ycsb.measurements;
 
 import java.io.IOException;
+import java.util.HashSet;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
@@ -38,6 +40,21 @@ public class Measurements
   public static final String MEASUREMENT_INTERVAL = "measurement.interval";
   private static final String MEASUREMENT_INTERVAL_DEFAULT = "op";
 
+  /**
+   * If true, latencies of every operation are recorded in separate measurements for successful
+   * calls (e.g. READ), "not found" calls (READ-NOTFOUND) and failed calls (READ-FAILED), and an
+   * error rate series is kept per operation (READ-OUTCOMES).
+   */
+  public static final String MEASUREMENT_OUTCOMES = "measurement.outcomes";
+  private static final String MEASUREMENT_OUTCOMES_DEFAULT = "false";
+
+  /**
+   * Comma separated list of DB return codes which mean "not found" rather than an error for the
+   * binding under test, e.g. "-3" for the HBase and Accumulo clients.
+   */
+  public static final String NOT_FOUND_CODES = "measurement.notfoundcodes";
+  private static final String NOT_FOUND_CODES_DEFAULT = "";
+
   static Measurements singleton=null;
   static Properties measurementproperties=null;
 
@@ -62,6 +79,11 @@ public class Measurements
   final ConcurrentHashMap<String,OneMeasurement> _opToIntendedMesurementMap;
   final int _measurementType;
   final int _measurementInterval;
+  final ConcurrentHashMap<String,OutcomeSeries> _opToOutcomeMap;
+  final ConcurrentHashMap<String,ScanStatistics> _opToScanMap;
+  final ConcurrentHashMap<String,StalenessStatistics> _opToStalenessMap;
+  final boolean _splitOutcomes;
+  final Set<Integer> _notFoundCodes;
   private Properties _props;
 
   /**
@@ -71,6 +93,9 @@ public class Measurements
   {
     _opToMesurementMap=new ConcurrentHashMap<String,OneMeasurement>();
     _opToIntendedMesurementMap=new ConcurrentHashMap<String,OneMeasurement>();
+    _opToOutcomeMap=new ConcurrentHashMap<String,OutcomeSeries>();
+    _opToScanMap=new ConcurrentHashMap<String,ScanStatistics>();
+    _opToStalenessMap=new ConcurrentHashMap<String,StalenessStatistics>();
 
     _props=props;
 
@@ -111,6 +136,16 @@ public class Measurements
     else {
       throw new IllegalArgumentException("unknown "+MEASUREMENT_INTERVAL+"="+mIntervalString);
     }
+
+    _splitOutcomes = Boolean.parseBoolean(_props.getProperty(MEASUREMENT_OUTCOMES, MEASUREMENT_OUTCOMES_DEFAULT));
+    _notFoundCodes = new HashSet<Integer>();
+    for (String code : _props.getProperty(NOT_FOUND_CODES, NOT_FOUND_CODES_DEFAULT).split(","))
+    {
+      if (code.trim().length() > 0)
+      {
+        _notFoundCodes.add(Integer.parseInt(code.trim()));
+      }
+    }
   }
 
   OneMeasurement constructOneMeasurement(String name)
@@ -234,6 +269,113 @@ public class Measurements
     return m;
   }
 
+  /**
+   * Classify a DB return code as {@link OutcomeSeries#SUCCESS}, {@link OutcomeSeries#NOT_FOUND}
+   * or {@link OutcomeSeries#ERROR}.
+   */
+  public int outcomeOf(int code)
+  {
+    if (code == 0)
+    {
+      return OutcomeSeries.SUCCESS;
+    }
+    return _notFoundCodes.contains(code) ? OutcomeSeries.NOT_FOUND : OutcomeSeries.ERROR;
+  }
+
+  /**
+   * Return the name under which the latency of an operation with the given return code should
+   * be recorded. This is the operation itself unless outcomes are measured separately.
+   */
+  public String measurementName(String operation, int code)
+  {
+    if (!_splitOutcomes)
+    {
+      return operation;
+    }
+    switch (outcomeOf(code))
+    {
+    case OutcomeSeries.SUCCESS:
+      return operation;
+    case OutcomeSeries.NOT_FOUND:
+      return operation + "-NOTFOUND";
+    default:
+      return operation + "-FAILED";
+    }
+  }
+
+  /**
+   * Count the outcome class of a single DB operation, if outcomes are measured separately.
+   */
+  public void reportOutcome(String operation, int code)
+  {
+    if (!_splitOutcomes)
+    {
+      return;
+    }
+    OutcomeSeries s = _opToOutcomeMap.get(operation);
+    if (s == null)
+    {
+      s = new OutcomeSeries(operation + "-OUTCOMES", _props);
+      OutcomeSeries oldS = _opToOutcomeMap.putIfAbsent(operation, s);
+      if (oldS != null)
+      {
+        s = oldS;
+      }
+    }
+    s.report(outcomeOf(code));
+  }
+
+  /**
+   * Report the rows and bytes returned by a single scan-like operation, e.g. for SCAN. The
+   * statistics are reported as operation+"-ROWS", the latency per row as operation+"-PER-ROW".
+   *
+   * @param operation The operation that was measured.
+   * @param requested The number of records asked for.
+   * @param rows The number of records returned.
+   * @param bytes The size of the returned field values in bytes.
+   * @param latency The latency of the whole operation in microseconds.
+   */
+  public void measureScan(String operation, int requested, int rows, long bytes, int latency)
+  {
+    ScanStatistics s = _opToScanMap.get(operation);
+    if (s == null)
+    {
+      s = new ScanStatistics(operation + "-ROWS");
+      ScanStatistics oldS = _opToScanMap.putIfAbsent(operation, s);
+      if (oldS != null)
+      {
+        s = oldS;
+      }
+    }
+    s.measure(requested, rows, bytes, latency);
+    if (rows > 0)
+    {
+      measure(operation + "-PER-ROW", latency / rows);
+    }
+  }
+
+  /**
+   * Report the freshness of a single read of a versioned record, e.g. for STALENESS.
+   *
+   * @param operation The name of the statistics.
+   * @param lag The number of acknowledged versions newer than the one read, 0 for a fresh read.
+   * @param stalenessus For a stale read, the time since the first newer version was acknowledged, in microseconds.
+   */
+  public void measureStaleness(String operation, long lag, long stalenessus)
+  {
+    StalenessStatistics s = _opToStalenessMap.get(operation);
+    if (s == null)
+    {
+      s = new StalenessStatistics(operation);
+      StalenessStatistics oldS = _opToStalenessMap.putIfAbsent(operation, s);
+      if (oldS != null)
+      {
+        s = oldS;
+      }
+    }
+    s.measure(lag, stalenessus);
+  }
+
   /**
    * Report a return code for a single DB operation.
    */
@@ -261,6 +403,18 @@ public class Measurements
     {
       measurement.exportMeasurements(exporter);
     }
+    for (OutcomeSeries outcomes : _opToOutcomeMap.values())
+    {
+      outcomes.exportMeasurements(exporter);
+    }
+    for (ScanStatistics scans : _opToScanMap.values())
+    {
+      scans.exportMeasurements(exporter);
+    }
+    for (StalenessStatistics staleness : _opToStalenessMap.values())
+    {
+      staleness.exportMeasurements(exporter);
+    }
   }
 
   /**
@@ -277,6 +431,18 @@ public class Measurements
     {
       ret += m.getSummary()+" ";
     }
+    for (OutcomeSeries s : _opToOutcomeMap.values())
+    {
+      ret += s.getSummary()+" ";
+    }
+    for (ScanStatistics s : _opToScanMap.values())
+    {
+      ret += s.getSummary()+" ";
+    }
+    for (StalenessStatistics s : _opToStalenessMap.values())
+    {
+      ret += s.getSummary()+" ";
+    }
     return ret;
   }
 
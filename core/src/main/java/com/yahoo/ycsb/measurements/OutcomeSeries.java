@@ -0,0 +1,146 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+import java.util.Properties;
+import java.util.Vector;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Counts the outcome class (success, not found, error) of every call to one operation, and keeps
+ * a time series of the error rate so degradation under load can be told apart from fast failures.
+ */
+public class OutcomeSeries
+{
+  public static final int SUCCESS=0;
+  public static final int NOT_FOUND=1;
+  public static final int ERROR=2;
+
+  static final String[] LABELS={"Success","NotFound","Error"};
+
+  static class OutcomeUnit
+  {
+    final long time;
+    final long[] counts;
+
+    OutcomeUnit(long time, long[] counts)
+    {
+      this.time=time;
+      this.counts=counts;
+    }
+  }
+
+  final String _name;
+  final int _granularity;
+  final Vector<OutcomeUnit> _series;
+
+  long start=-1;
+  long currentunit=-1;
+  long[] unitcounts=new long[3];
+  final long[] totals=new long[3];
+
+  //keep a windowed version of these stats for printing status
+  final long[] windowcounts=new long[3];
+
+  public OutcomeSeries(String name, Properties props)
+  {
+    _name=name;
+    _granularity=Integer.parseInt(props.getProperty(OneMeasurementTimeSeries.GRANULARITY,OneMeasurementTimeSeries.GRANULARITY_DEFAULT));
+    _series=new Vector<OutcomeUnit>();
+  }
+
+  public String getName()
+  {
+    return _name;
+  }
+
+  void checkEndOfUnit(boolean forceend)
+  {
+    long now=System.currentTimeMillis();
+
+    if (start<0)
+    {
+      currentunit=0;
+      start=now;
+    }
+
+    long unit=((now-start)/_granularity)*_granularity;
+
+    if ( (unit>currentunit) || (forceend) )
+    {
+      _series.add(new OutcomeUnit(currentunit,unitcounts));
+      unitcounts=new long[3];
+      currentunit=unit;
+    }
+  }
+
+  /**
+   * Count one call that finished with the given outcome class.
+   */
+  public synchronized void report(int outcome)
+  {
+    checkEndOfUnit(false);
+    unitcounts[outcome]++;
+    totals[outcome]++;
+    windowcounts[outcome]++;
+  }
+
+  static double errorRate(long[] counts)
+  {
+    long total=counts[SUCCESS]+counts[NOT_FOUND]+counts[ERROR];
+    if (total==0)
+    {
+      return 0;
+    }
+    return ((double)counts[ERROR])/((double)total);
+  }
+
+  public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException
+  {
+    checkEndOfUnit(true);
+
+    for (int i=0; i<LABELS.length; i++)
+    {
+      exporter.write(getName(), LABELS[i], (int)totals[i]);
+    }
+    exporter.write(getName(), "ErrorRate", errorRate(totals));
+
+    for (OutcomeUnit unit : _series)
+    {
+      exporter.write(getName(), Long.toString(unit.time), errorRate(unit.counts));
+    }
+  }
+
+  public synchronized String getSummary()
+  {
+    if (windowcounts[NOT_FOUND]==0 && windowcounts[ERROR]==0)
+    {
+      windowcounts[SUCCESS]=0;
+      return "";
+    }
+    DecimalFormat d = new DecimalFormat("#.####");
+    String ret="["+getName()+" NotFound="+windowcounts[NOT_FOUND]+", Error="+windowcounts[ERROR]+", ErrorRate="+d.format(errorRate(windowcounts))+"]";
+    windowcounts[SUCCESS]=0;
+    windowcounts[NOT_FOUND]=0;
+    windowcounts[ERROR]=0;
+    return ret;
+  }
+}
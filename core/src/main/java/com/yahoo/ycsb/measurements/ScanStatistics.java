@@ -0,0 +1,133 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * Row and byte counts of a scan-like operation. Scans of different stores return very different
+ * numbers of rows for the same requested length, so latency alone can not be compared; this keeps
+ * the rows and bytes returned so the per row latency and the rows/sec can be reported. Rows/sec
+ * is computed over the time spent inside scans, i.e. it is the rate of a single scanning thread.
+ */
+public class ScanStatistics
+{
+  final String _name;
+
+  long scans;
+  long requestedrows;
+  long rows;
+  long bytes;
+  long totallatency;
+  long shortscans;
+  int minrows=-1;
+  int maxrows=-1;
+
+  //keep a windowed version of these stats for printing status
+  long windowrows;
+  long windowlatency;
+
+  public ScanStatistics(String name)
+  {
+    _name=name;
+  }
+
+  public String getName()
+  {
+    return _name;
+  }
+
+  /**
+   * Count one scan.
+   *
+   * @param requested The number of records asked for.
+   * @param returned The number of records returned.
+   * @param returnedbytes The size of the returned field values in bytes.
+   * @param latency The latency of the scan in microseconds.
+   */
+  public synchronized void measure(int requested, int returned, long returnedbytes, int latency)
+  {
+    scans++;
+    requestedrows+=requested;
+    rows+=returned;
+    bytes+=returnedbytes;
+    totallatency+=latency;
+    windowrows+=returned;
+    windowlatency+=latency;
+    if (returned<requested)
+    {
+      shortscans++;
+    }
+    if ( (minrows<0) || (returned<minrows) )
+    {
+      minrows=returned;
+    }
+    if (returned>maxrows)
+    {
+      maxrows=returned;
+    }
+  }
+
+  static double perSecond(long count, long latencyus)
+  {
+    if (latencyus==0)
+    {
+      return 0;
+    }
+    return 1000000.0*((double)count)/((double)latencyus);
+  }
+
+  public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException
+  {
+    if (scans==0)
+    {
+      return;
+    }
+    exporter.write(getName(), "Scans", (int)scans);
+    exporter.write(getName(), "Rows", (int)rows);
+    exporter.write(getName(), "Bytes", (double)bytes);
+    exporter.write(getName(), "AverageRowsPerScan", ((double)rows)/((double)scans));
+    exporter.write(getName(), "AverageRequestedRowsPerScan", ((double)requestedrows)/((double)scans));
+    exporter.write(getName(), "MinRowsPerScan", minrows);
+    exporter.write(getName(), "MaxRowsPerScan", maxrows);
+    exporter.write(getName(), "ShortScans", (int)shortscans);
+    exporter.write(getName(), "AverageBytesPerScan", ((double)bytes)/((double)scans));
+    if (rows>0)
+    {
+      exporter.write(getName(), "AverageLatencyPerRow(us)", ((double)totallatency)/((double)rows));
+    }
+    exporter.write(getName(), "Rows/sec", perSecond(rows, totallatency));
+    exporter.write(getName(), "Bytes/sec", perSecond(bytes, totallatency));
+  }
+
+  public synchronized String getSummary()
+  {
+    if (windowlatency==0)
+    {
+      return "";
+    }
+    DecimalFormat d = new DecimalFormat("#.##");
+    String ret="["+getName()+" Rows="+windowrows+", Rows/sec="+d.format(perSecond(windowrows, windowlatency))+"]";
+    windowrows=0;
+    windowlatency=0;
+    return ret;
+  }
+}
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import java.io.IOException;
+import java.text.DecimalFormat;
+
+import org.HdrHistogram.Histogram;
+
+import com.yahoo.ycsb.measurements.exporter.MeasurementsExporter;
+
+/**
+ * How stale the reads of an eventually consistent store are: the fraction of reads returning a
+ * version older than one already acknowledged to a writer, and for those the time since the newer
+ * version was acknowledged (staleness) and the number of versions missed (lag).
+ */
+public class StalenessStatistics
+{
+  final String _name;
+
+  long reads;
+  long stalereads;
+  long totallag;
+  long maxlag;
+  final Histogram staleness=new Histogram(3);
+
+  //keep a windowed version of these stats for printing status
+  long windowreads;
+  long windowstalereads;
+
+  public StalenessStatistics(String name)
+  {
+    _name=name;
+  }
+
+  public String getName()
+  {
+    return _name;
+  }
+
+  /**
+   * Count one read.
+   *
+   * @param lag The number of acknowledged versions newer than the one read, 0 for a fresh read.
+   * @param stalenessus For a stale read, the time since the first newer version was acknowledged, in microseconds.
+   */
+  public synchronized void measure(long lag, long stalenessus)
+  {
+    reads++;
+    windowreads++;
+    if (lag<=0)
+    {
+      return;
+    }
+    stalereads++;
+    windowstalereads++;
+    totallag+=lag;
+    maxlag=Math.max(maxlag,lag);
+    staleness.recordValue(Math.max(0,stalenessus));
+  }
+
+  static double fraction(long count, long total)
+  {
+    return total==0 ? 0 : ((double)count)/((double)total);
+  }
+
+  public synchronized void exportMeasurements(MeasurementsExporter exporter) throws IOException
+  {
+    if (reads==0)
+    {
+      return;
+    }
+    exporter.write(getName(), "Reads", (int)reads);
+    exporter.write(getName(), "StaleReads", (int)stalereads);
+    exporter.write(getName(), "StaleFraction", fraction(stalereads, reads));
+    if (stalereads==0)
+    {
+      return;
+    }
+    exporter.write(getName(), "AverageStaleness(us)", staleness.getMean());
+    exporter.write(getName(), "MaxStaleness(us)", (double)staleness.getMaxValue());
+    exporter.write(getName(), "95thPercentileStaleness(us)", (double)staleness.getValueAtPercentile(95));
+    exporter.write(getName(), "99thPercentileStaleness(us)", (double)staleness.getValueAtPercentile(99));
+    exporter.write(getName(), "AverageVersionLag", ((double)totallag)/((double)stalereads));
+    exporter.write(getName(), "MaxVersionLag", (int)maxlag);
+  }
+
+  public synchronized String getSummary()
+  {
+    if (windowreads==0)
+    {
+      return "";
+    }
+    DecimalFormat d = new DecimalFormat("#.####");
+    String ret="["+getName()+" Reads="+windowreads+", StaleFraction="+d.format(fraction(windowstalereads, windowreads))+"]";
+    windowreads=0;
+    windowstalereads=0;
+    return ret;
+  }
+}
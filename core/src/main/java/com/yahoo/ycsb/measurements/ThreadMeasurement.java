@@ -0,0 +1,95 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.measurements;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Latency of the operations done by one client thread, and so by the DB instance (connection)
+ * owned by that thread. Recorded by the client thread, read periodically by the StatusThread and
+ * once more at the end of the run.
+ */
+public class ThreadMeasurement
+{
+  final Recorder histogram = new Recorder(3);
+
+  Histogram totalHistogram;
+
+  /**
+   * Record the latency of one operation, in microseconds.
+   */
+  public void measure(int latencyInMicros)
+  {
+    histogram.recordValue(latencyInMicros);
+  }
+
+  /**
+   * Return the operations recorded since the last call, and add them to the total.
+   */
+  public synchronized Histogram getIntervalHistogram()
+  {
+    Histogram intervalHistogram = histogram.getIntervalHistogram();
+    if (totalHistogram == null)
+    {
+      totalHistogram = intervalHistogram.copy();
+    }
+    else
+    {
+      totalHistogram.add(intervalHistogram);
+    }
+    return intervalHistogram;
+  }
+
+  /**
+   * Return all the operations recorded so far.
+   */
+  public synchronized Histogram getTotalHistogram()
+  {
+    getIntervalHistogram();
+    return totalHistogram;
+  }
+
+  /**
+   * Return the smallest value, the largest value and the (population) standard deviation of the
+   * given values, e.g. the throughput of every thread.
+   */
+  public static double[] minMaxStdDev(double[] values)
+  {
+    if (values.length == 0)
+    {
+      return new double[] {0, 0, 0};
+    }
+    double min = values[0];
+    double max = values[0];
+    double sum = 0;
+    for (double v : values)
+    {
+      min = Math.min(min, v);
+      max = Math.max(max, v);
+      sum += v;
+    }
+    double mean = sum / values.length;
+    double squares = 0;
+    for (double v : values)
+    {
+      squares += (v - mean) * (v - mean);
+    }
+    return new double[] {min, max, Math.sqrt(squares / values.length)};
+  }
+}
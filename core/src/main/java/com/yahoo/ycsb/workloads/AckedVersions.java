@@ -0,0 +1,147 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * For data integrity checks, the version of the last acknowledged write of every key, kept only
+ * while the order of the writes of the key is known. Writes of a key that overlap can legally be
+ * applied in either order, whatever their versions, so from the start of a write that overlaps
+ * another until the key is idle again no version is kept, and a read is only checked if no write
+ * of its key started while it ran.
+ *
+ * Each key takes one long, safe for concurrent use without locks: the number of writes in flight,
+ * whether they overlapped, and the acknowledged version.
+ */
+public class AckedVersions
+{
+  static final int INFLIGHT_BITS=12;
+  static final long INFLIGHT_MASK=(1L<<INFLIGHT_BITS)-1;
+  static final long OVERLAPPED=1L<<INFLIGHT_BITS;
+  static final int VERSION_SHIFT=INFLIGHT_BITS+1;
+
+  /**
+   * The largest number of writes of one key that may be in flight at once.
+   */
+  public static final int MAX_IN_FLIGHT=(int)INFLIGHT_MASK;
+
+  /**
+   * The largest version that can be kept.
+   */
+  public static final long MAX_VERSION=Long.MAX_VALUE>>>VERSION_SHIFT;
+
+  final AtomicLongArray states;
+
+  /**
+   * Track the keys 0 to capacity-1.
+   */
+  public AckedVersions(int capacity)
+  {
+    states=new AtomicLongArray(capacity);
+  }
+
+  public int capacity()
+  {
+    return states.length();
+  }
+
+  /**
+   * Start a write of the key. Pass the key to end() once the write returned, whatever its outcome.
+   */
+  public void begin(int key)
+  {
+    if (key<0 || key>=states.length())
+    {
+      return;
+    }
+    while (true)
+    {
+      long old=states.get(key);
+      long inflight=old&INFLIGHT_MASK;
+      //the version is unknown while a write is in flight
+      long state=inflight==0 ? 1 : (inflight+1)|OVERLAPPED;
+      if (states.compareAndSet(key,old,state))
+      {
+        return;
+      }
+    }
+  }
+
+  /**
+   * End a write of the key started with begin(). Its version is kept if it succeeded and no other
+   * write of the key overlapped it.
+   *
+   * @param version The version written, between 1 and MAX_VERSION, or 0 if unknown.
+   */
+  public void end(int key, long version, boolean succeeded)
+  {
+    if (key<0 || key>=states.length())
+    {
+      return;
+    }
+    while (true)
+    {
+      long old=states.get(key);
+      long inflight=(old&INFLIGHT_MASK)-1;
+      long state;
+      if (inflight>0)
+      {
+        state=inflight|(old&OVERLAPPED);
+      }
+      else if ((old&OVERLAPPED)!=0 || !succeeded || version<=0 || version>MAX_VERSION)
+      {
+        state=0;
+      }
+      else
+      {
+        state=version<<VERSION_SHIFT;
+      }
+      if (states.compareAndSet(key,old,state))
+      {
+        return;
+      }
+    }
+  }
+
+  /**
+   * The state of the key before a read, to pass to version() after it.
+   */
+  public long state(int key)
+  {
+    if (key<0 || key>=states.length())
+    {
+      return 0;
+    }
+    return states.get(key);
+  }
+
+  /**
+   * The version of the last write of the key acknowledged before a read that started in the given
+   * state, or 0 if it is unknown: a write was in flight, overlapped other writes, or started while
+   * the read ran.
+   */
+  public long version(int key, long before)
+  {
+    if ((before&INFLIGHT_MASK)!=0 || state(key)!=before)
+    {
+      return 0;
+    }
+    return before>>>VERSION_SHIFT;
+  }
+}
@@ -0,0 +1,173 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Properties;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.CounterGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Measures atomic updates under contention: all the client threads update a counter in one of
+ * contention.hotkeys records, either with the increment operation of the DB, or by reading the
+ * counter and writing the next value with compareAndSet, retrying when another thread won the race.
+ * Varying the number of hot keys against the number of threads varies the contention.
+ *
+ * Every counter update is measured as CONTENTION-CAS or CONTENTION-INCREMENT, from the first read
+ * to the final write, with return code 0 when it succeeded and DB.COMPARE_FAILED when it gave up
+ * after contention.maxretries retries. The single attempts are measured by the DB wrapper as READ,
+ * CAS and INCREMENT, so the CAS return codes give the rate of failed attempts, and the number of
+ * CAS operations per CONTENTION-CAS the average number of attempts.
+ *
+ * Properties to control the client:
+ * <UL>
+ * <LI><b>recordcount</b>: the number of records created by the load phase
+ * <LI><b>contention.hotkeys</b>: the number of records updated, the first ones loaded (default: 10)
+ * <LI><b>contention.operation</b>: cas or increment (default: cas)
+ * <LI><b>contention.maxretries</b>: the number of retries of a failed compareAndSet (default: 10)
+ * <LI><b>table</b>: the name of the table (default: usertable)
+ * </ul>
+ */
+public class ContentionWorkload extends Workload
+{
+  public static final String HOT_KEYS_PROPERTY="contention.hotkeys";
+  public static final String HOT_KEYS_PROPERTY_DEFAULT="10";
+
+  public static final String OPERATION_PROPERTY="contention.operation";
+  public static final String OPERATION_PROPERTY_DEFAULT="cas";
+
+  public static final String MAX_RETRIES_PROPERTY="contention.maxretries";
+  public static final String MAX_RETRIES_PROPERTY_DEFAULT="10";
+
+  /** The field holding the counter. */
+  static final String COUNTER_FIELD="field0";
+
+  String table;
+  int hotkeys;
+  boolean cas;
+  int maxretries;
+
+  CounterGenerator insertsequence;
+
+  KeyEncoder keyencoder;
+
+  Measurements _measurements;
+
+  @Override
+  public void init(Properties p) throws WorkloadException
+  {
+    table=p.getProperty(CoreWorkload.TABLENAME_PROPERTY,CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
+    int recordcount=Integer.parseInt(p.getProperty(Client.RECORD_COUNT_PROPERTY,Client.DEFAULT_RECORD_COUNT));
+    hotkeys=Integer.parseInt(p.getProperty(HOT_KEYS_PROPERTY,HOT_KEYS_PROPERTY_DEFAULT));
+    if (hotkeys<=0)
+    {
+      throw new WorkloadException(HOT_KEYS_PROPERTY+" must be larger than 0");
+    }
+    if (recordcount>0 && hotkeys>recordcount)
+    {
+      System.err.println("Warning: "+HOT_KEYS_PROPERTY+" is larger than "+Client.RECORD_COUNT_PROPERTY+", only "+recordcount+" records are loaded");
+    }
+    String operation=p.getProperty(OPERATION_PROPERTY,OPERATION_PROPERTY_DEFAULT);
+    if (operation.equals("cas"))
+    {
+      cas=true;
+    }
+    else if (operation.equals("increment"))
+    {
+      cas=false;
+    }
+    else
+    {
+      throw new WorkloadException("Unknown "+OPERATION_PROPERTY+" \""+operation+"\"");
+    }
+    maxretries=Integer.parseInt(p.getProperty(MAX_RETRIES_PROPERTY,MAX_RETRIES_PROPERTY_DEFAULT));
+    insertsequence=new CounterGenerator(Integer.parseInt(p.getProperty(INSERT_START_PROPERTY,INSERT_START_PROPERTY_DEFAULT)));
+    keyencoder=KeyEncoder.create(p);
+    _measurements=Measurements.getMeasurements();
+  }
+
+  String buildKeyName(int keynum)
+  {
+    return keyencoder.encode(Utils.hash(keynum));
+  }
+
+  @Override
+  public boolean doInsert(DB db, Object threadstate)
+  {
+    int keynum=insertsequence.nextInt();
+    HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+    values.put(COUNTER_FIELD,new StringByteIterator("0"));
+    return db.insert(table,buildKeyName(keynum),values)==0;
+  }
+
+  @Override
+  public boolean doTransaction(DB db, Object threadstate)
+  {
+    String key=buildKeyName(Utils.random().nextInt(hotkeys));
+    String operation=cas ? "CONTENTION-CAS" : "CONTENTION-INCREMENT";
+
+    long ist=_measurements.getIntendedtartTimeNs();
+    long st=System.nanoTime();
+    int ret=cas ? casIncrement(db,key) : db.increment(table,key,COUNTER_FIELD,1);
+    long en=System.nanoTime();
+
+    _measurements.measure(operation,(int)((en-st)/1000));
+    _measurements.measureIntended(operation,(int)((en-ist)/1000));
+    _measurements.reportReturnCode(operation,ret);
+    return ret==0 || ret==DB.COMPARE_FAILED;
+  }
+
+  /**
+   * Add one to the counter with a read and a compareAndSet, retrying up to maxretries times.
+   */
+  int casIncrement(DB db, String key)
+  {
+    int ret=DB.COMPARE_FAILED;
+    for (int attempt=0; attempt<=maxretries && ret==DB.COMPARE_FAILED; attempt++)
+    {
+      HashMap<String,ByteIterator> result=new HashMap<String,ByteIterator>();
+      ret=db.read(table,key,Collections.singleton(COUNTER_FIELD),result);
+      if (ret!=0)
+      {
+        return ret;
+      }
+      ByteIterator current=result.get(COUNTER_FIELD);
+      String expected=current==null ? "0" : current.toString();
+      long next;
+      try
+      {
+        next=Long.parseLong(expected.trim())+1;
+      }
+      catch (NumberFormatException e)
+      {
+        return -1;
+      }
+      ret=db.compareAndSet(table,key,COUNTER_FIELD,new StringByteIterator(expected),new StringByteIterator(Long.toString(next)));
+    }
+    return ret;
+  }
+}
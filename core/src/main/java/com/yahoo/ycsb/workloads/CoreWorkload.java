@@ -21,6 +21,7 @@ import java.util.Properties;
 
 import com.yahoo.ycsb.*;
 import com.yahoo.ycsb.generator.CounterGenerator;
+import com.yahoo.ycsb.generator.DiurnalIntegerGenerator;
 import com.yahoo.ycsb.generator.DiscreteGenerator;
 import com.yahoo.ycsb.generator.ExponentialGenerator;
 import com.yahoo.ycsb.generator.Generator;
@@ -29,6 +30,7 @@ import com.yahoo.ycsb.generator.HotspotIntegerGenerator;
 import com.yahoo.ycsb.generator.HistogramGenerator;
 import com.yahoo.ycsb.generator.IntegerGenerator;
 import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
+import com.yahoo.ycsb.generator.ShiftingHotspotIntegerGenerator;
 import com.yahoo.ycsb.generator.SkewedLatestGenerator;
 import com.yahoo.ycsb.generator.UniformIntegerGenerator;
 import com.yahoo.ycsb.generator.ZipfianGenerator;
@@ -41,6 +43,8 @@ import java.util.Vector;
 import java.util.List;
 import java.util.Map;
 import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The core benchmark scenario. Represents a set of clients doing simple CRUD operations. The relative 
@@ -53,15 +57,47 @@ import java.util.ArrayList;
  * <LI><b>fieldlength</b>: the size of each field (default: 100)
  * <LI><b>readallfields</b>: should reads read all fields (true) or just one (false) (default: true)
  * <LI><b>writeallfields</b>: should updates and read/modify/writes update all fields (true) or just one (false) (default: false)
+ * <LI><b>valuegenerator</b>: the kind of random values - random, compressible, text or a ValueGenerator class, see {@link ValueGenerator} (default: random)
+ * <LI><b>valuecompressibility</b>: for compressible, the ratio by which values compress (default: 2.0)
+ * <LI><b>valuedictionary</b>: for text, a file of the words of values, one per line, most frequent first (default: made up words)
+ * <LI><b>valuevocabulary</b>: for text without valuedictionary, the number of made up words (default: 10000)
+ * <LI><b>valuepool</b>: should random values be slices of a slab of values generated once off the heap, see {@link ValuePool} (default: false)
+ * <LI><b>valuepool.size</b>: the size of the slab, in bytes, within -XX:MaxDirectMemorySize (default: 67108864)
+ * <LI><b>valuepool.entropy</b>: for the random valuegenerator, the bits of entropy per byte of the slab, from 1 to 6 (default: 6)
+ * <LI><b>dataintegrity</b>: should values be deterministic, and reads check them, reporting mismatches as VERIFY (default: false)
+ * <LI><b>dataintegrity.lostupdates</b>: with dataintegrity, should the version of the last write of every record be tracked, to also report lost updates, at 8 bytes of heap per record (default: false)
  * <LI><b>readproportion</b>: what proportion of operations should be reads (default: 0.95)
  * <LI><b>updateproportion</b>: what proportion of operations should be updates (default: 0.05)
  * <LI><b>insertproportion</b>: what proportion of operations should be inserts (default: 0)
  * <LI><b>scanproportion</b>: what proportion of operations should be scans (default: 0)
  * <LI><b>readmodifywriteproportion</b>: what proportion of operations should be read a record, modify it, write it back (default: 0)
- * <LI><b>requestdistribution</b>: what distribution should be used to select the records to operate on - uniform, zipfian, hotspot, or latest (default: uniform)
+ * <LI><b>deleteproportion</b>: what proportion of operations should delete a record (default: 0)
+ * <LI><b>reinsertdeleted</b>: should inserts re-insert the deleted records, oldest first, before new ones (default: true)
+ * <LI><b>batchreadproportion</b>: what proportion of operations should read batchsize records in one call (default: 0)
+ * <LI><b>batchupdateproportion</b>: what proportion of operations should update batchsize records in one call (default: 0)
+ * <LI><b>batchinsertproportion</b>: what proportion of operations should insert batchsize records in one call (default: 0)
+ * <LI><b>batchsize</b>: the number of records of a batch read, update or insert (default: 10)
+ * <LI><b>requestdistribution</b>: what distribution should be used to select the records to operate on - uniform, zipfian, hotspot, slidinghotspot, shufflinghotspot, diurnal or latest (default: uniform)
+ * <LI><b>hotspotcount</b>: for slidinghotspot and shufflinghotspot, the number of hot regions sharing hotspotdatafraction of the records (default: 1)
+ * <LI><b>hotspotperiod</b>: for slidinghotspot, the milliseconds to slide through all the records, for shufflinghotspot, between reshuffles (default: 60000)
+ * <LI><b>diurnalcohorts</b>: for diurnal, the number of groups of records, each most active at its own time of the day (default: 24)
+ * <LI><b>diurnalamplitude</b>: for diurnal, how much the activity of a group varies over the day, between 0 and 1 (default: 0.8)
+ * <LI><b>diurnalperiod</b>: for diurnal, the length of a day in milliseconds (default: 86400000)
  * <LI><b>maxscanlength</b>: for scans, what is the maximum number of records to scan (default: 1000)
+ * <LI><b>parallelscanproportion</b>: what proportion of operations should scan in parallel segments of scan length/parallelscansegments records, starting at the database's region boundaries if it knows them, else splitting the range from the start key for ordered inserts or the key space from the start key for hashed ones (default: 0)
+ * <LI><b>parallelscansegments</b>: the number of segments of a parallel scan, each with its own DB instance and thread (default: 4)
+ * <LI><b>streamingscans</b>: should scans pass the records one at a time to a consumer (true) rather than collect them (false), measured as STREAM-SCAN (default: false)
+ * <LI><b>queryproportion</b>: what proportion of operations should query the records by the value of queryfield, which needs an index in the database (default: 0)
+ * <LI><b>queryfield</b>: the field queried, whose values become numbers from 0 to querycardinality-1 rather than random bytes (default: field0)
+ * <LI><b>querycardinality</b>: the number of distinct values of queryfield, spread uniformly over the records (default: 1000)
+ * <LI><b>querylength</b>: the number of consecutive values matched by a query, 1 for an equality lookup; a query selects querylength/querycardinality of the records (default: 1)
+ * <LI><b>querylimit</b>: the largest number of records returned by a query (default: 100)
  * <LI><b>scanlengthdistribution</b>: for scans, what distribution should be used to choose the number of records to scan, for each scan, between 1 and maxscanlength (default: uniform)
  * <LI><b>insertorder</b>: should records be inserted in order by key ("ordered"), or in hashed order ("hashed") (default: hashed)
+ * <LI><b>keyencoding</b>: how record numbers are turned into keys - default, fixed, binary, uuid, tenant or a KeyEncoder class, see {@link KeyEncoder} (default: default)
+ * <LI><b>keyprefix</b>: the prefix of default, fixed and tenant keys (default: user)
+ * <LI><b>keydigits</b>: the number of digits of fixed keys (default: 19)
+ * <LI><b>keytenants</b>: the number of tenants of tenant keys (default: 100)
  * </ul> 
  */
 public class CoreWorkload extends Workload
@@ -77,7 +113,11 @@ public class CoreWorkload extends Workload
 	 */
 	public static final String TABLENAME_PROPERTY_DEFAULT="usertable";
 
-	public static String table;
+	/**
+	 * The table this workload runs against. Kept per workload instance, so several workloads in one
+	 * JVM (see {@link MultiTableWorkload}) can each use their own table.
+	 */
+	protected String table;
 
 
 	/**
@@ -92,7 +132,7 @@ public class CoreWorkload extends Workload
 
 	int fieldcount;
 
-	private List<String> fieldnames;
+	List<String> fieldnames;
 
 	/**
 	 * The name of the property for the field length distribution. Options are "uniform", "zipfian" (favoring short records), "constant", and "histogram".
@@ -165,11 +205,41 @@ public class CoreWorkload extends Workload
    */
   public static final String DATA_INTEGRITY_PROPERTY_DEFAULT = "false";
 
+  /**
+   * The name of the property for deciding whether data integrity checks
+   * also track the versions written, to report lost updates.
+   */
+  public static final String LOST_UPDATES_PROPERTY = "dataintegrity.lostupdates";
+
+  /**
+   * The default value for the dataintegrity.lostupdates property.
+   */
+  public static final String LOST_UPDATES_PROPERTY_DEFAULT = "false";
+
   /**
    * Set to true if want to check correctness of reads. Must also
-   * be set to true during loading phase to function.
+   * be set to true during loading phase to function. Values are built
+   * by {@link IntegrityValues}, so any field length distribution works.
+   */
+  boolean dataintegrity;
+
+  /**
+   * The version of the last value built for a data integrity check, and
+   * the first one of this run. Versions start from the clock, so that they
+   * keep increasing from the load to the run.
    */
-  private boolean dataintegrity;
+  final AtomicLong writeversion = new AtomicLong();
+  long firstversion;
+
+  /**
+   * For lost update checks, the writes in flight and the last version
+   * acknowledged of every record, see {@link AckedVersions}. A version counts
+   * from the first version, shifted left by 16 bits, with the index of the
+   * field written in the low bits, or ALL_FIELDS.
+   */
+  AckedVersions ackedversions;
+  Map<String, Integer> fieldindexes;
+  static final int ALL_FIELDS = 0xffff;
 
   /**
    * Response values for data integrity checks.
@@ -179,6 +249,7 @@ public class CoreWorkload extends Workload
   private final int DATA_INT_MATCH = 0;
   private final int DATA_INT_DEVIATE = 1000;
   private final int DATA_INT_UNEXPECTED_NULL = 2000;
+  private final int DATA_INT_LOST_UPDATE = 3000;
 
 
 	/**
@@ -231,6 +302,66 @@ public class CoreWorkload extends Workload
 	 */
 	public static final String READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT="0.0";
 	
+	/**
+	 * The name of the property for the proportion of transactions that are deletes.
+	 */
+	public static final String DELETE_PROPORTION_PROPERTY="deleteproportion";
+
+	/**
+	 * The default proportion of transactions that are deletes.
+	 */
+	public static final String DELETE_PROPORTION_PROPERTY_DEFAULT="0.0";
+
+	/**
+	 * The name of the property deciding whether inserts re-insert the deleted records first.
+	 */
+	public static final String REINSERT_DELETED_PROPERTY="reinsertdeleted";
+
+	/**
+	 * The default is to re-insert the deleted records, so the data set churns rather than shrinks.
+	 */
+	public static final String REINSERT_DELETED_PROPERTY_DEFAULT="true";
+
+	/**
+	 * The name of the property for the proportion of transactions that read several records in one call.
+	 */
+	public static final String BATCH_READ_PROPORTION_PROPERTY="batchreadproportion";
+
+	/**
+	 * The default proportion of transactions that are batch reads.
+	 */
+	public static final String BATCH_READ_PROPORTION_PROPERTY_DEFAULT="0.0";
+
+	/**
+	 * The name of the property for the proportion of transactions that update several records in one call.
+	 */
+	public static final String BATCH_UPDATE_PROPORTION_PROPERTY="batchupdateproportion";
+
+	/**
+	 * The default proportion of transactions that are batch updates.
+	 */
+	public static final String BATCH_UPDATE_PROPORTION_PROPERTY_DEFAULT="0.0";
+
+	/**
+	 * The name of the property for the proportion of transactions that insert several records in one call.
+	 */
+	public static final String BATCH_INSERT_PROPORTION_PROPERTY="batchinsertproportion";
+
+	/**
+	 * The default proportion of transactions that are batch inserts.
+	 */
+	public static final String BATCH_INSERT_PROPORTION_PROPERTY_DEFAULT="0.0";
+
+	/**
+	 * The name of the property for the number of records in a batch read, update or insert.
+	 */
+	public static final String BATCH_SIZE_PROPERTY="batchsize";
+
+	/**
+	 * The default number of records in a batch.
+	 */
+	public static final String BATCH_SIZE_PROPERTY_DEFAULT="10";
+
 	/**
 	 * The name of the property for the the distribution of requests across the keyspace. Options are "uniform", "zipfian" and "latest"
 	 */
@@ -260,6 +391,86 @@ public class CoreWorkload extends Workload
 	 * The default max scan length.
 	 */
 	public static final String SCAN_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT="uniform";
+
+	/**
+	 * The name of the property for the proportion of transactions that are parallel scans.
+	 */
+	public static final String PARALLEL_SCAN_PROPORTION_PROPERTY="parallelscanproportion";
+
+	/**
+	 * The default proportion of transactions that are parallel scans.
+	 */
+	public static final String PARALLEL_SCAN_PROPORTION_PROPERTY_DEFAULT="0.0";
+
+	/**
+	 * The name of the property for the number of segments of a parallel scan, each scanned by its own DB instance.
+	 */
+	public static final String PARALLEL_SCAN_SEGMENTS_PROPERTY="parallelscansegments";
+
+	/**
+	 * The default number of segments of a parallel scan.
+	 */
+	public static final String PARALLEL_SCAN_SEGMENTS_PROPERTY_DEFAULT="4";
+
+	/**
+	 * The name of the property for whether scans stream the records to a consumer rather than collect them.
+	 */
+	public static final String STREAMING_SCANS_PROPERTY="streamingscans";
+
+	/**
+	 * The default is to collect the records of scans.
+	 */
+	public static final String STREAMING_SCANS_PROPERTY_DEFAULT="false";
+
+	/**
+	 * The name of the property for the proportion of transactions that are queries by a secondary attribute.
+	 */
+	public static final String QUERY_PROPORTION_PROPERTY="queryproportion";
+
+	/**
+	 * The default proportion of transactions that are queries.
+	 */
+	public static final String QUERY_PROPORTION_PROPERTY_DEFAULT="0.0";
+
+	/**
+	 * The name of the property for the field holding the queried attribute.
+	 */
+	public static final String QUERY_FIELD_PROPERTY="queryfield";
+
+	/**
+	 * The default field holding the queried attribute.
+	 */
+	public static final String QUERY_FIELD_PROPERTY_DEFAULT="field0";
+
+	/**
+	 * The name of the property for the number of distinct values of the queried attribute.
+	 */
+	public static final String QUERY_CARDINALITY_PROPERTY="querycardinality";
+
+	/**
+	 * The default number of distinct values of the queried attribute.
+	 */
+	public static final String QUERY_CARDINALITY_PROPERTY_DEFAULT="1000";
+
+	/**
+	 * The name of the property for the number of consecutive attribute values matched by a query.
+	 */
+	public static final String QUERY_LENGTH_PROPERTY="querylength";
+
+	/**
+	 * The default is an equality lookup.
+	 */
+	public static final String QUERY_LENGTH_PROPERTY_DEFAULT="1";
+
+	/**
+	 * The name of the property for the largest number of records returned by a query.
+	 */
+	public static final String QUERY_LIMIT_PROPERTY="querylimit";
+
+	/**
+	 * The default largest number of records returned by a query.
+	 */
+	public static final String QUERY_LIMIT_PROPERTY_DEFAULT="100";
 	
 	/**
 	 * The name of the property for the order to insert records. Options are "ordered" or "hashed"
@@ -290,6 +501,56 @@ public class CoreWorkload extends Workload
    * Default value of the percentage operations accessing the hot set.
    */
   public static final String HOTSPOT_OPN_FRACTION_DEFAULT = "0.8";
+
+  /**
+   * Number of hot regions of the slidinghotspot and shufflinghotspot distributions.
+   */
+  public static final String HOTSPOT_COUNT = "hotspotcount";
+
+  /**
+   * Default number of hot regions.
+   */
+  public static final String HOTSPOT_COUNT_DEFAULT = "1";
+
+  /**
+   * Time in milliseconds for the hot regions to slide through the keyspace, or between reshuffles.
+   */
+  public static final String HOTSPOT_PERIOD = "hotspotperiod";
+
+  /**
+   * Default period of the hot regions.
+   */
+  public static final String HOTSPOT_PERIOD_DEFAULT = "60000";
+
+  /**
+   * Number of cohorts of the diurnal distribution, each most active at its own time of the day.
+   */
+  public static final String DIURNAL_COHORTS = "diurnalcohorts";
+
+  /**
+   * Default number of cohorts.
+   */
+  public static final String DIURNAL_COHORTS_DEFAULT = "24";
+
+  /**
+   * How much the activity of a cohort varies over the day, between 0 and 1.
+   */
+  public static final String DIURNAL_AMPLITUDE = "diurnalamplitude";
+
+  /**
+   * Default amplitude of the activity.
+   */
+  public static final String DIURNAL_AMPLITUDE_DEFAULT = "0.8";
+
+  /**
+   * Length of a day of the diurnal distribution in milliseconds.
+   */
+  public static final String DIURNAL_PERIOD = "diurnalperiod";
+
+  /**
+   * Default length of a day.
+   */
+  public static final String DIURNAL_PERIOD_DEFAULT = "86400000";
 	
 	IntegerGenerator keysequence;
 
@@ -305,8 +566,45 @@ public class CoreWorkload extends Workload
 	
 	boolean orderedinserts;
 
+	boolean streamingscans;
+
+	int parallelscansegments;
+
+	/** The parallel scanners of all the client threads, to clean up. */
+	final List<ParallelScanner> parallelscanners=new ArrayList<ParallelScanner>();
+
+	/** The field holding the queried attribute, or null if there are no queries. */
+	String queryfield;
+
+	/** The values of the queried attribute written to records, and the first values of queries. */
+	IntegerGenerator queryvalues;
+	IntegerGenerator querystarts;
+
+	int querydigits;
+	int querylength;
+	int querylimit;
+
+	KeyEncoder keyencoder;
+
+	ValueGenerator valuegenerator;
+
+	/** The pool random values are taken from, or null to generate them. */
+	ValuePool valuepool;
+
 	int recordcount;
 
+	int batchsize;
+
+	/**
+	 * The records present in the database, tracked only if there are deletes.
+	 */
+	LiveKeySet livekeys;
+
+	/**
+	 * The deleted records waiting to be re-inserted, oldest first.
+	 */
+	ConcurrentLinkedQueue<Integer> deletedkeys;
+
     private Measurements _measurements = Measurements.getMeasurements();
 	
 	protected static IntegerGenerator getFieldLengthGenerator(Properties p) throws WorkloadException{
@@ -352,6 +650,11 @@ public class CoreWorkload extends Workload
 		double insertproportion=Double.parseDouble(p.getProperty(INSERT_PROPORTION_PROPERTY,INSERT_PROPORTION_PROPERTY_DEFAULT));
 		double scanproportion=Double.parseDouble(p.getProperty(SCAN_PROPORTION_PROPERTY,SCAN_PROPORTION_PROPERTY_DEFAULT));
 		double readmodifywriteproportion=Double.parseDouble(p.getProperty(READMODIFYWRITE_PROPORTION_PROPERTY,READMODIFYWRITE_PROPORTION_PROPERTY_DEFAULT));
+		double deleteproportion=Double.parseDouble(p.getProperty(DELETE_PROPORTION_PROPERTY,DELETE_PROPORTION_PROPERTY_DEFAULT));
+		double batchreadproportion=Double.parseDouble(p.getProperty(BATCH_READ_PROPORTION_PROPERTY,BATCH_READ_PROPORTION_PROPERTY_DEFAULT));
+		double batchupdateproportion=Double.parseDouble(p.getProperty(BATCH_UPDATE_PROPORTION_PROPERTY,BATCH_UPDATE_PROPORTION_PROPERTY_DEFAULT));
+		double batchinsertproportion=Double.parseDouble(p.getProperty(BATCH_INSERT_PROPORTION_PROPERTY,BATCH_INSERT_PROPORTION_PROPERTY_DEFAULT));
+		batchsize=Integer.parseInt(p.getProperty(BATCH_SIZE_PROPERTY,BATCH_SIZE_PROPERTY_DEFAULT));
 		recordcount=Integer.parseInt(p.getProperty(Client.RECORD_COUNT_PROPERTY, Client.DEFAULT_RECORD_COUNT));
 		if(recordcount == 0)
 		    recordcount = Integer.MAX_VALUE;
@@ -365,13 +668,8 @@ public class CoreWorkload extends Workload
 		writeallfields=Boolean.parseBoolean(p.getProperty(WRITE_ALL_FIELDS_PROPERTY,WRITE_ALL_FIELDS_PROPERTY_DEFAULT));
 		
     dataintegrity = Boolean.parseBoolean(p.getProperty(DATA_INTEGRITY_PROPERTY, DATA_INTEGRITY_PROPERTY_DEFAULT));
-    //Confirm that fieldlengthgenerator returns a constant if data
-    //integrity check requested.
-    if (dataintegrity && !(p.getProperty(FIELD_LENGTH_DISTRIBUTION_PROPERTY, FIELD_LENGTH_DISTRIBUTION_PROPERTY_DEFAULT)).equals("constant"))
-    {
-      System.err.println("Must have constant field size to check data integrity.");
-      System.exit(-1);
-    }
+    firstversion = System.currentTimeMillis() << 20;
+    writeversion.set(firstversion);
 
 		if (p.getProperty(INSERT_ORDER_PROPERTY,INSERT_ORDER_PROPERTY_DEFAULT).compareTo("hashed")==0)
 		{
@@ -390,6 +688,10 @@ public class CoreWorkload extends Workload
 			orderedinserts=true;
 		}
 
+		keyencoder=KeyEncoder.create(p);
+		valuegenerator=ValueGenerator.create(p);
+		valuepool=ValuePool.create(p,valuegenerator,Integer.parseInt(p.getProperty(FIELD_LENGTH_PROPERTY,FIELD_LENGTH_PROPERTY_DEFAULT)));
+		streamingscans=Boolean.parseBoolean(p.getProperty(STREAMING_SCANS_PROPERTY,STREAMING_SCANS_PROPERTY_DEFAULT));
 		keysequence=new CounterGenerator(insertstart);
 		operationchooser=new DiscreteGenerator();
 		if (readproportion>0)
@@ -417,7 +719,110 @@ public class CoreWorkload extends Workload
 			operationchooser.addValue(readmodifywriteproportion,"READMODIFYWRITE");
 		}
 
+		if (deleteproportion>0)
+		{
+			operationchooser.addValue(deleteproportion,"DELETE");
+		}
+
+		if (batchreadproportion>0)
+		{
+			operationchooser.addValue(batchreadproportion,"BATCHREAD");
+		}
+
+		double parallelscanproportion=Double.parseDouble(p.getProperty(PARALLEL_SCAN_PROPORTION_PROPERTY,PARALLEL_SCAN_PROPORTION_PROPERTY_DEFAULT));
+		if (parallelscanproportion>0)
+		{
+			operationchooser.addValue(parallelscanproportion,"PARALLELSCAN");
+			parallelscansegments=Integer.parseInt(p.getProperty(PARALLEL_SCAN_SEGMENTS_PROPERTY,PARALLEL_SCAN_SEGMENTS_PROPERTY_DEFAULT));
+			if (parallelscansegments<1)
+			{
+				throw new WorkloadException(PARALLEL_SCAN_SEGMENTS_PROPERTY+" must be larger than 0");
+			}
+		}
+
+		double queryproportion=Double.parseDouble(p.getProperty(QUERY_PROPORTION_PROPERTY,QUERY_PROPORTION_PROPERTY_DEFAULT));
+		if (queryproportion>0)
+		{
+			operationchooser.addValue(queryproportion,"QUERY");
+			queryfield=p.getProperty(QUERY_FIELD_PROPERTY,QUERY_FIELD_PROPERTY_DEFAULT);
+			if (!fieldnames.contains(queryfield))
+			{
+				throw new WorkloadException(QUERY_FIELD_PROPERTY+" \""+queryfield+"\" is not one of the fields");
+			}
+			int querycardinality=Integer.parseInt(p.getProperty(QUERY_CARDINALITY_PROPERTY,QUERY_CARDINALITY_PROPERTY_DEFAULT));
+			querylength=Integer.parseInt(p.getProperty(QUERY_LENGTH_PROPERTY,QUERY_LENGTH_PROPERTY_DEFAULT));
+			querylimit=Integer.parseInt(p.getProperty(QUERY_LIMIT_PROPERTY,QUERY_LIMIT_PROPERTY_DEFAULT));
+			if (querycardinality<1 || querylength<1 || querylength>querycardinality)
+			{
+				throw new WorkloadException(QUERY_LENGTH_PROPERTY+" must be between 1 and "+QUERY_CARDINALITY_PROPERTY);
+			}
+			queryvalues=new UniformIntegerGenerator(0,querycardinality-1);
+			querystarts=new UniformIntegerGenerator(0,querycardinality-querylength);
+			querydigits=Integer.toString(querycardinality-1).length();
+		}
+
+		if (batchupdateproportion>0)
+		{
+			operationchooser.addValue(batchupdateproportion,"BATCHUPDATE");
+		}
+
+		if (batchinsertproportion>0)
+		{
+			operationchooser.addValue(batchinsertproportion,"BATCHINSERT");
+		}
+
 		transactioninsertkeysequence=new CounterGenerator(recordcount);
+		//room for the records inserted during the run
+		long runops=Long.parseLong(p.getProperty(Client.OPERATION_COUNT_PROPERTY,"0"));
+		long runinserts=(long)(runops*(insertproportion+batchinsertproportion*batchsize)*2.0); //2 is fudge factor
+		if (dataintegrity && Boolean.parseBoolean(p.getProperty(LOST_UPDATES_PROPERTY,LOST_UPDATES_PROPERTY_DEFAULT)))
+		{
+			if (recordcount==Integer.MAX_VALUE)
+			{
+				throw new WorkloadException(LOST_UPDATES_PROPERTY+" needs the "+Client.RECORD_COUNT_PROPERTY+" to track the records");
+			}
+			//the records inserted beyond the capacity are not tracked
+			int capacity=(int)Math.min(Integer.MAX_VALUE-8,recordcount+runinserts);
+			long bytes=8L*capacity;
+			if (bytes>Runtime.getRuntime().maxMemory()/2)
+			{
+				throw new WorkloadException(LOST_UPDATES_PROPERTY+" needs "+(bytes>>20)+" MB of heap for "+capacity
+					+" records, more than half of the "+(Runtime.getRuntime().maxMemory()>>20)
+					+" MB available; lower the "+Client.OPERATION_COUNT_PROPERTY+" or raise -Xmx");
+			}
+			int threadcount=Integer.parseInt(p.getProperty(Client.THREAD_COUNT_PROPERTY,"1"));
+			if ((long)threadcount*batchsize>AckedVersions.MAX_IN_FLIGHT)
+			{
+				throw new WorkloadException(LOST_UPDATES_PROPERTY+" supports at most "+AckedVersions.MAX_IN_FLIGHT
+					+" threads times "+BATCH_SIZE_PROPERTY);
+			}
+			try
+			{
+				ackedversions=new AckedVersions(capacity);
+			}
+			catch (OutOfMemoryError e)
+			{
+				throw new WorkloadException("Not enough heap for "+LOST_UPDATES_PROPERTY+" with "+capacity+" records");
+			}
+			fieldindexes=new HashMap<String,Integer>();
+			for (int i=0; i<fieldnames.size() && i<ALL_FIELDS; i++)
+			{
+				fieldindexes.put(fieldnames.get(i),i);
+			}
+		}
+		if (deleteproportion>0)
+		{
+			if (recordcount==Integer.MAX_VALUE)
+			{
+				throw new WorkloadException("Deletes need the "+Client.RECORD_COUNT_PROPERTY+" to track the records present");
+			}
+			//track the loaded records, and the inserted ones
+			livekeys=new LiveKeySet((int)Math.min(Integer.MAX_VALUE,recordcount+runinserts),recordcount);
+			if (Boolean.parseBoolean(p.getProperty(REINSERT_DELETED_PROPERTY,REINSERT_DELETED_PROPERTY_DEFAULT)))
+			{
+				deletedkeys=new ConcurrentLinkedQueue<Integer>();
+			}
+		}
 		if (requestdistrib.compareTo("uniform")==0)
 		{
 			keychooser=new UniformIntegerGenerator(0,recordcount-1);
@@ -432,7 +837,7 @@ public class CoreWorkload extends Workload
 			//just ignore it and pick another key. this way, the size of the keyspace doesn't change from the perspective of the scrambled zipfian generator
 			
 			int opcount=Integer.parseInt(p.getProperty(Client.OPERATION_COUNT_PROPERTY));
-			int expectednewkeys=(int)(((double)opcount)*insertproportion*2.0); //2 is fudge factor
+			int expectednewkeys=(int)(((double)opcount)*(insertproportion+batchinsertproportion*batchsize)*2.0); //2 is fudge factor
 			
 			keychooser=new ScrambledZipfianGenerator(recordcount+expectednewkeys);
 		}
@@ -448,6 +853,31 @@ public class CoreWorkload extends Workload
           HOTSPOT_OPN_FRACTION, HOTSPOT_OPN_FRACTION_DEFAULT));
       keychooser = new HotspotIntegerGenerator(0, recordcount - 1, 
           hotsetfraction, hotopnfraction);
+    }
+		else if (requestdistrib.equals("slidinghotspot") || requestdistrib.equals("shufflinghotspot"))
+		{
+      double hotsetfraction = Double.parseDouble(p.getProperty(
+          HOTSPOT_DATA_FRACTION, HOTSPOT_DATA_FRACTION_DEFAULT));
+      double hotopnfraction = Double.parseDouble(p.getProperty(
+          HOTSPOT_OPN_FRACTION, HOTSPOT_OPN_FRACTION_DEFAULT));
+      int hotspotcount = Integer.parseInt(p.getProperty(
+          HOTSPOT_COUNT, HOTSPOT_COUNT_DEFAULT));
+      long hotspotperiod = Long.parseLong(p.getProperty(
+          HOTSPOT_PERIOD, HOTSPOT_PERIOD_DEFAULT));
+      keychooser = new ShiftingHotspotIntegerGenerator(0, recordcount - 1,
+          hotsetfraction, hotopnfraction, hotspotcount,
+          requestdistrib.equals("shufflinghotspot"), hotspotperiod);
+    }
+		else if (requestdistrib.equals("diurnal"))
+		{
+      int cohorts = Integer.parseInt(p.getProperty(
+          DIURNAL_COHORTS, DIURNAL_COHORTS_DEFAULT));
+      double amplitude = Double.parseDouble(p.getProperty(
+          DIURNAL_AMPLITUDE, DIURNAL_AMPLITUDE_DEFAULT));
+      long period = Long.parseLong(p.getProperty(
+          DIURNAL_PERIOD, DIURNAL_PERIOD_DEFAULT));
+      keychooser = new DiurnalIntegerGenerator(0, recordcount - 1,
+          cohorts, amplitude, period);
     }
 		else
 		{
@@ -475,22 +905,36 @@ public class CoreWorkload extends Workload
  		{
  			keynum=Utils.hash(keynum);
  		}
-		return "user"+keynum;
+		return keyencoder.encode(keynum);
 	}
 	
+  /**
+   * Chooses the fields to read: all of them (null) if readallfields, else a randomly chosen field.
+   */
+  protected HashSet<String> buildReadFields() {
+    if (readallfields) {
+      return null;
+    }
+    HashSet<String> fields = new HashSet<String>();
+    fields.add(fieldnames.get(Integer.parseInt(fieldchooser.nextString())));
+    return fields;
+  }
+
   /**
    * Builds a value for a randomly chosen field.
    */
-  private HashMap<String, ByteIterator> buildSingleValue(String key) {
+  protected HashMap<String, ByteIterator> buildSingleValue(String key) {
     HashMap<String,ByteIterator> value = new HashMap<String,ByteIterator>();
 
     String fieldkey = fieldnames.get(Integer.parseInt(fieldchooser.nextString()));
     ByteIterator data;
-    if (dataintegrity) {
+    if (fieldkey.equals(queryfield)) {
+      data = new StringByteIterator(buildAttributeValue(queryvalues.nextInt()));
+    } else if (dataintegrity) {
       data = new StringByteIterator(buildDeterministicValue(key, fieldkey));
     } else {
       //fill with random data
-      data = new RandomByteIterator(fieldlengthgenerator.nextInt());
+      data = buildRandomValue(fieldlengthgenerator.nextInt());
     }
     value.put(fieldkey,data);
 
@@ -500,16 +944,18 @@ public class CoreWorkload extends Workload
   /**
    * Builds values for all fields.
    */
-  private HashMap<String, ByteIterator> buildValues(String key) {        
+  protected HashMap<String, ByteIterator> buildValues(String key) {        
     HashMap<String,ByteIterator> values = new HashMap<String,ByteIterator>();
 
     for (String fieldkey : fieldnames) {
       ByteIterator data;
-      if (dataintegrity) {
+      if (fieldkey.equals(queryfield)) {
+        data = new StringByteIterator(buildAttributeValue(queryvalues.nextInt()));
+      } else if (dataintegrity) {
         data = new StringByteIterator(buildDeterministicValue(key, fieldkey));
       } else {
         //fill with random data
-        data = new RandomByteIterator(fieldlengthgenerator.nextInt());
+        data = buildRandomValue(fieldlengthgenerator.nextInt());
       }
       values.put(fieldkey,data);
     }
@@ -517,23 +963,158 @@ public class CoreWorkload extends Workload
   }
 
   /**
-   * Build a deterministic value given the key information.
+   * Builds a random value, a slice of the value pool if there is one.
+   */
+  protected ByteIterator buildRandomValue(int length) {
+    return valuepool != null ? valuepool.next(length) : valuegenerator.next(length);
+  }
+
+  /**
+   * Builds a value of the queried attribute, zero padded so that values compare as strings
+   * in the same order as numbers.
+   */
+  protected String buildAttributeValue(int value) {
+    StringBuilder sb = new StringBuilder(querydigits);
+    String digits = Integer.toString(value);
+    for (int i = digits.length(); i < querydigits; i++) {
+      sb.append('0');
+    }
+    return sb.append(digits).toString();
+  }
+
+  /**
+   * Build a deterministic value given the key information, with the next version.
+   */
+  protected String buildDeterministicValue(String key, String fieldkey) {
+    return IntegrityValues.build(key, fieldkey, writeversion.incrementAndGet(), fieldlengthgenerator.nextInt());
+  }
+
+  /**
+   * The version of a write of the values, to pass to endWrite() once it returned. It must be
+   * taken before the write, which consumes the values.
+   */
+  protected long writtenVersion(HashMap<String, ByteIterator> values) {
+    if (ackedversions == null) {
+      return 0;
+    }
+    //every field of the write has a version at least the lowest one of them
+    long version = Long.MAX_VALUE;
+    int field = ALL_FIELDS;
+    for (Map.Entry<String, ByteIterator> entry : values.entrySet()) {
+      long written = IntegrityValues.versionOf(entry.getValue().toString());
+      if (written < 0) {
+        //not an integrity value, e.g. the queried attribute
+        continue;
+      }
+      version = Math.min(version, written - firstversion);
+      if (values.size() == 1) {
+        Integer index = fieldindexes.get(entry.getKey());
+        field = index == null ? ALL_FIELDS : index;
+      }
+    }
+    if (version <= 0 || version > AckedVersions.MAX_VERSION >>> 16) {
+      //unknown, or too late in a very long run to be tracked
+      return 0;
+    }
+    return (version << 16) | field;
+  }
+
+  /**
+   * The versions of the writes of a batch, see writtenVersion().
+   */
+  protected long[] writtenVersions(List<HashMap<String, ByteIterator>> values) {
+    long[] written = new long[values.size()];
+    for (int i = 0; i < written.length; i++) {
+      written[i] = writtenVersion(values.get(i));
+    }
+    return written;
+  }
+
+  /**
+   * Right before a write of the record, mark it in flight, so that reads do not check it against
+   * writes that may legally be applied in either order. Call endWrite() once it returned.
    */
-  private String buildDeterministicValue(String key, String fieldkey) {
-    int size = fieldlengthgenerator.nextInt();
-    StringBuilder sb = new StringBuilder(size);
-    sb.append(key);
-    sb.append(':');
-    sb.append(fieldkey);
-    while (sb.length() < size) {
-      sb.append(':');
-      sb.append(sb.toString().hashCode());
+  protected void beginWrite(int keynum) {
+    if (ackedversions != null) {
+      ackedversions.begin(keynum);
     }
-    sb.setLength(size);
+  }
+
+  /**
+   * After a write of the record returned, remember its version if it was acknowledged and did not
+   * overlap other writes of the record, for verifyRow() to catch lost updates.
+   */
+  protected void endWrite(int keynum, long written, boolean succeeded) {
+    if (ackedversions != null) {
+      ackedversions.end(keynum, written, succeeded);
+    }
+  }
+
+  /**
+   * Mark every record of a batch write in flight, see beginWrite().
+   */
+  protected void beginWrites(int[] keynums) {
+    for (int keynum : keynums) {
+      beginWrite(keynum);
+    }
+  }
 
-    return sb.toString();
+  /**
+   * After a batch write returned, remember the version of every record of it, see endWrite().
+   */
+  protected void endWrites(int[] keynums, long[] written, boolean succeeded) {
+    for (int i = 0; i < keynums.length; i++) {
+      endWrite(keynums[i], written[i], succeeded);
+    }
+  }
+
+  /**
+   * The state of the writes of the record right before a read, to pass to ackedVersion() after it.
+   */
+  protected long ackedState(int keynum) {
+    return ackedversions == null ? 0 : ackedversions.state(keynum);
+  }
+
+  /**
+   * The version of the last write of the record acknowledged before a read, to pass to
+   * verifyRow(), or 0 if the order of its writes is unknown, e.g. because one started during the
+   * read.
+   */
+  protected long ackedVersion(int keynum, long before) {
+    return ackedversions == null ? 0 : ackedversions.version(keynum, before);
   }
 
+	/**
+	 * Create the parallel scanner of a client thread if parallel scans are enabled.
+	 */
+	@Override
+	public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException
+	{
+		if (parallelscansegments==0)
+		{
+			return null;
+		}
+		ParallelScanner scanner=new ParallelScanner(p,parallelscansegments);
+		synchronized (parallelscanners)
+		{
+			parallelscanners.add(scanner);
+		}
+		return scanner;
+	}
+
+	@Override
+	public void cleanup() throws WorkloadException
+	{
+		synchronized (parallelscanners)
+		{
+			for (ParallelScanner scanner : parallelscanners)
+			{
+				scanner.cleanup();
+			}
+			parallelscanners.clear();
+		}
+	}
+
 	/**
 	 * Do one insert operation. Because it will be called concurrently from multiple client threads, this 
 	 * function must be thread safe. However, avoid synchronized, or the threads will block waiting for each 
@@ -545,10 +1126,11 @@ public class CoreWorkload extends Workload
 		int keynum=keysequence.nextInt();
 		String dbkey = buildKeyName(keynum);
 		HashMap<String, ByteIterator> values = buildValues(dbkey);
-		if (db.insert(table,dbkey,values) == 0)
-			return true;
-		else
-			return false;
+		long written=writtenVersion(values);
+		beginWrite(keynum);
+		boolean succeeded=db.insert(table,dbkey,values) == 0;
+		endWrite(keynum,written,succeeded);
+		return succeeded;
 	}
 
 	/**
@@ -577,6 +1159,30 @@ public class CoreWorkload extends Workload
 		{
 			doTransactionScan(db);
 		}
+		else if (op.compareTo("DELETE")==0)
+		{
+			doTransactionDelete(db);
+		}
+		else if (op.compareTo("BATCHREAD")==0)
+		{
+			doTransactionBatchRead(db);
+		}
+		else if (op.compareTo("QUERY")==0)
+		{
+			doTransactionQuery(db);
+		}
+		else if (op.compareTo("PARALLELSCAN")==0)
+		{
+			doTransactionParallelScan(db,(ParallelScanner)threadstate);
+		}
+		else if (op.compareTo("BATCHUPDATE")==0)
+		{
+			doTransactionBatchUpdate(db);
+		}
+		else if (op.compareTo("BATCHINSERT")==0)
+		{
+			doTransactionBatchInsert(db);
+		}
 		else
 		{
 			doTransactionReadModifyWrite(db);
@@ -591,16 +1197,37 @@ public class CoreWorkload extends Workload
    * Bucket 0 means the expected data was returned.
    * Bucket 1 means incorrect data was returned.
    * Bucket 2 means null data was returned when some data was expected. 
+   * Bucket 3 means a field was older than the last write of it acknowledged
+   * before the read, as passed from ackedVersion(), i.e. a lost update. Writes
+   * that overlapped each other or the read are not checked, as they may
+   * legally be applied in either order.
+   * Without the key (null), only the lengths and checksums are checked.
    */
   protected void verifyRow(String key, HashMap<String,ByteIterator> cells) {
+    verifyRow(key, cells, 0);
+  }
+
+  protected void verifyRow(String key, HashMap<String,ByteIterator> cells, long acked) {
     int matchType = DATA_INT_MATCH;
+    long ackedversion = (acked >>> 16) + firstversion;
+    int ackedfield = (int)(acked & ALL_FIELDS);
     if (!cells.isEmpty()) {
       for (Map.Entry<String, ByteIterator> entry : cells.entrySet()) {
-        if (!entry.getValue().toString().equals(
-            buildDeterministicValue(key, entry.getKey()))) {
+        if (entry.getKey().equals(queryfield)) {
+          //the queried attribute is random, not derived from the key
+          continue;
+        }
+        String value = entry.getValue().toString();
+        long version = key == null ? IntegrityValues.check(value)
+            : IntegrityValues.verify(value, key, entry.getKey());
+        if (version < 0) {
           matchType = DATA_INT_DEVIATE;
           break;
         }
+        if (acked != 0 && version < ackedversion && (ackedfield == ALL_FIELDS
+            || fieldnames.get(ackedfield).equals(entry.getKey()))) {
+          matchType = DATA_INT_LOST_UPDATE;
+        }
       }
     } else {
       //This assumes that null data is never valid
@@ -624,9 +1251,45 @@ public class CoreWorkload extends Workload
                 }
             while (keynum > transactioninsertkeysequence.lastInt());
         }
+        if (livekeys != null && !livekeys.contains(keynum)) {
+            //the record was deleted, use the next one present
+            int live = livekeys.next(keynum, transactioninsertkeysequence.lastInt() + 1);
+            if (live >= 0) {
+                keynum = live;
+            }
+        }
         return keynum;
     }
 
+    /**
+     * The key of the next record to insert: a deleted record if any is waiting to be re-inserted,
+     * else a new one. Pass it to insertDone() once the insert returned.
+     */
+    int nextInsertKeynum() {
+        if (deletedkeys != null) {
+            Integer keynum = deletedkeys.poll();
+            if (keynum != null) {
+                return keynum;
+            }
+        }
+        return transactioninsertkeysequence.nextInt();
+    }
+
+    /**
+     * Mark a key from nextInsertKeynum() present once its insert succeeded, so that reads and
+     * updates only choose records that exist, or else queue it to be inserted again.
+     */
+    void insertDone(int keynum, boolean succeeded) {
+        if (livekeys == null) {
+            return;
+        }
+        if (succeeded) {
+            livekeys.add(keynum);
+        } else if (deletedkeys != null) {
+            deletedkeys.add(keynum);
+        }
+    }
+
 	public void doTransactionRead(DB db)
 	{
 		//choose a random key
@@ -634,23 +1297,16 @@ public class CoreWorkload extends Workload
 		
 		String keyname = buildKeyName(keynum);
 		
-		HashSet<String> fields=null;
-
-		if (!readallfields)
-		{
-			//read a random field  
-			String fieldname=fieldnames.get(Integer.parseInt(fieldchooser.nextString()));
-
-			fields=new HashSet<String>();
-			fields.add(fieldname);
-		}
+		HashSet<String> fields=buildReadFields();
 
     HashMap<String,ByteIterator> cells =
         new HashMap<String,ByteIterator>();
+    long before = ackedState(keynum);
 		db.read(table,keyname,fields,cells);
+    long acked = ackedVersion(keynum, before);
 
     if (dataintegrity) {
-      verifyRow(keyname, cells);
+      verifyRow(keyname, cells, acked);
     }
 	}
 	
@@ -661,16 +1317,7 @@ public class CoreWorkload extends Workload
 
 		String keyname = buildKeyName(keynum);
 
-		HashSet<String> fields=null;
-
-		if (!readallfields)
-		{
-			//read a random field  
-			String fieldname=fieldnames.get(Integer.parseInt(fieldchooser.nextString()));
-
-			fields=new HashSet<String>();
-			fields.add(fieldname);
-		}
+		HashSet<String> fields=buildReadFields();
 		
 		HashMap<String,ByteIterator> values;
 
@@ -691,16 +1338,20 @@ public class CoreWorkload extends Workload
 		    new HashMap<String,ByteIterator>();
 
 		
+		long written=writtenVersion(values);
+		long before=ackedState(keynum);
 		long ist=_measurements.getIntendedtartTimeNs();
 	    long st = System.nanoTime();
 		db.read(table,keyname,fields,cells);
+		long acked=ackedVersion(keynum,before);
 		
-		db.update(table,keyname,values);
+		beginWrite(keynum);
+		endWrite(keynum,written,db.update(table,keyname,values)==0);
 
 		long en=System.nanoTime();
 
     if (dataintegrity) {
-      verifyRow(keyname, cells);
+      verifyRow(keyname, cells, acked);
     }
 
 		_measurements .measure("READ-MODIFY-WRITE", (int)((en-st)/1000));
@@ -717,18 +1368,77 @@ public class CoreWorkload extends Workload
 		//choose a random scan length
 		int len=scanlength.nextInt();
 
-		HashSet<String> fields=null;
+		HashSet<String> fields=buildReadFields();
 
-		if (!readallfields)
+		if (streamingscans)
 		{
-			//read a random field  
-			String fieldname=fieldnames.get(Integer.parseInt(fieldchooser.nextString()));
+			//drop the records as they arrive, checking them if asked to
+			db.streamScan(table,startkeyname,len,fields,new ScanConsumer()
+			{
+				public boolean consume(String key, HashMap<String,ByteIterator> values)
+				{
+					//without the key, verifyRow checks the lengths and checksums
+					if (dataintegrity)
+					{
+						verifyRow(key,values);
+					}
+					return true;
+				}
+			});
+		}
+		else
+		{
+			db.scan(table,startkeyname,len,fields,new Vector<HashMap<String,ByteIterator>>());
+		}
+	}
+
+	/**
+	 * Scan in parallelscansegments segments at once, each reading scan length/segments records.
+	 * The segments start at the natural boundaries of the database after the start key if it
+	 * knows them, e.g. at the start of each following HBase region, so that they are spread over
+	 * the table rather than one contiguous range. Else, with ordered inserts, they split the range
+	 * of scan length records from the start key; with hashed inserts, whose keys are not in the
+	 * order of the record numbers, they split the key space from the start key to its end.
+	 */
+	public void doTransactionParallelScan(DB db, ParallelScanner scanner)
+	{
+		int keynum = nextKeynum();
+		String startkeyname = buildKeyName(keynum);
+		int len=scanlength.nextInt();
+		HashSet<String> fields=buildReadFields();
 
-			fields=new HashSet<String>();
-			fields.add(fieldname);
+		int segments=scanner.segments();
+		List<String> startkeys=db.splitRange(table,startkeyname,segments);
+		if (startkeys==null || startkeys.isEmpty())
+		{
+			if (orderedinserts)
+			{
+				startkeys=new ArrayList<String>(segments);
+				for (int i=0; i<segments; i++)
+				{
+					startkeys.add(buildKeyName(keynum+(long)i*len/segments));
+				}
+			}
+			else
+			{
+				startkeys=KeyEncoder.splitKeySpace(startkeyname,segments);
+			}
 		}
+		scanner.scan(table,startkeys,len,fields);
+	}
 
-		db.scan(table,startkeyname,len,fields,new Vector<HashMap<String,ByteIterator>>());
+	/**
+	 * Query the records whose queried attribute is one of querylength consecutive values.
+	 */
+	public void doTransactionQuery(DB db)
+	{
+		int start=querystarts.nextInt();
+		String lowvalue=buildAttributeValue(start);
+		String highvalue=buildAttributeValue(start+querylength-1);
+
+		HashSet<String> fields=buildReadFields();
+
+		db.query(table,queryfield,lowvalue,highvalue,querylimit,fields,new Vector<HashMap<String,ByteIterator>>());
 	}
 
 	public void doTransactionUpdate(DB db)
@@ -751,17 +1461,129 @@ public class CoreWorkload extends Workload
 		   values = buildSingleValue(keyname);
 		}
 
-		db.update(table,keyname,values);
+		long written=writtenVersion(values);
+		beginWrite(keynum);
+		endWrite(keynum,written,db.update(table,keyname,values)==0);
 	}
 
 	public void doTransactionInsert(DB db)
 	{
 		//choose the next key
-		int keynum=transactioninsertkeysequence.nextInt();
+		int keynum=nextInsertKeynum();
 
 		String dbkey = buildKeyName(keynum);
 
 		HashMap<String, ByteIterator> values = buildValues(dbkey);
-		db.insert(table,dbkey,values);
+		long written=writtenVersion(values);
+		beginWrite(keynum);
+		boolean succeeded=db.insert(table,dbkey,values)==0;
+		endWrite(keynum,written,succeeded);
+		insertDone(keynum,succeeded);
+	}
+
+	public void doTransactionDelete(DB db)
+	{
+		//choose a random record present
+		int keynum=nextKeynum();
+
+		//only the thread that removed it from the live records deletes it; none does if no record
+		//was present, or another thread got it first. Keys beyond the tracked ones are always deleted
+		boolean removed=livekeys.remove(keynum);
+		if (!removed && keynum<livekeys.capacity())
+		{
+			return;
+		}
+
+		if (db.delete(table,buildKeyName(keynum))!=0)
+		{
+			livekeys.add(keynum);
+		}
+		else if (removed && deletedkeys!=null)
+		{
+			deletedkeys.add(keynum);
+		}
+	}
+
+	public void doTransactionBatchRead(DB db)
+	{
+		//choose batchsize random keys
+		List<String> keynames=new ArrayList<String>(batchsize);
+		int[] keynums=new int[batchsize];
+		long[] acked=new long[batchsize];
+		for (int i=0; i<batchsize; i++)
+		{
+			keynums[i]=nextKeynum();
+			keynames.add(buildKeyName(keynums[i]));
+			acked[i]=ackedState(keynums[i]);
+		}
+
+		HashSet<String> fields=buildReadFields();
+
+		List<HashMap<String,ByteIterator>> results=new ArrayList<HashMap<String,ByteIterator>>(batchsize);
+		db.batchRead(table,keynames,fields,results);
+		for (int i=0; i<batchsize; i++)
+		{
+			acked[i]=ackedVersion(keynums[i],acked[i]);
+		}
+
+		if (dataintegrity)
+		{
+			for (int i=0; i<results.size(); i++)
+			{
+				verifyRow(keynames.get(i), results.get(i), acked[i]);
+			}
+		}
+	}
+
+	public void doTransactionBatchUpdate(DB db)
+	{
+		//choose batchsize random keys
+		List<String> keynames=new ArrayList<String>(batchsize);
+		List<HashMap<String,ByteIterator>> values=new ArrayList<HashMap<String,ByteIterator>>(batchsize);
+		int[] keynums=new int[batchsize];
+		for (int i=0; i<batchsize; i++)
+		{
+			keynums[i]=nextKeynum();
+			String keyname=buildKeyName(keynums[i]);
+			keynames.add(keyname);
+			if (writeallfields)
+			{
+				//new data for all the fields
+				values.add(buildValues(keyname));
+			}
+			else
+			{
+				//update a random field
+				values.add(buildSingleValue(keyname));
+			}
+		}
+
+		long[] written=writtenVersions(values);
+		beginWrites(keynums);
+		endWrites(keynums,written,db.batchUpdate(table,keynames,values)==0);
+	}
+
+	public void doTransactionBatchInsert(DB db)
+	{
+		//choose the next batchsize keys
+		List<String> keynames=new ArrayList<String>(batchsize);
+		List<HashMap<String,ByteIterator>> values=new ArrayList<HashMap<String,ByteIterator>>(batchsize);
+		int[] keynums=new int[batchsize];
+		for (int i=0; i<batchsize; i++)
+		{
+			keynums[i]=nextInsertKeynum();
+			String dbkey=buildKeyName(keynums[i]);
+			keynames.add(dbkey);
+			values.add(buildValues(dbkey));
+		}
+
+		long[] written=writtenVersions(values);
+		beginWrites(keynums);
+		boolean succeeded=db.batchInsert(table,keynames,values)==0;
+		endWrites(keynums,written,succeeded);
+		for (int keynum : keynums)
+		{
+			insertDone(keynum,succeeded);
+		}
 	}
 }
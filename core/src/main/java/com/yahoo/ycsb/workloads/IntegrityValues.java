@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import com.yahoo.ycsb.Utils;
+
+/**
+ * Deterministic field values for data integrity checks. A value is a header of 32 hex digits,
+ * holding its version, its length and a checksum of the rest, followed by printable characters
+ * from a xorshift generator seeded with the key, the field and the version. A value can thus be
+ * checked against its key and field at the speed of generating it, for any length, and its
+ * version compared with the last one written; without the key, its length and checksum can still
+ * be checked. Values are never shorter than MIN_LENGTH, so that some characters depend on the key.
+ */
+public final class IntegrityValues
+{
+  public static final int HEADER_LENGTH=32;
+  public static final int MIN_LENGTH=HEADER_LENGTH+8;
+
+  static final char[] ALPHABET="ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+  static final char[] HEX="0123456789abcdef".toCharArray();
+
+  private IntegrityValues()
+  {
+  }
+
+  /**
+   * Build the value of a field of a record, with at least MIN_LENGTH characters.
+   */
+  public static String build(String key, String field, long version, int length)
+  {
+    length=Math.max(length,MIN_LENGTH);
+    char[] value=new char[length];
+    long x=seed(key,field,version);
+    int checksum=Utils.FNV_offset_basis_32;
+    int i=HEADER_LENGTH;
+    while (i<length)
+    {
+      x=next(x);
+      long r=x*0x2545F4914F6CDD1DL;
+      for (int j=0; j<10 && i<length; j++, i++)
+      {
+        char c=ALPHABET[(int)(r&63)];
+        r>>>=6;
+        value[i]=c;
+        checksum=(checksum^c)*Utils.FNV_prime_32;
+      }
+    }
+    putHex(value,0,version,16);
+    putHex(value,16,length,8);
+    putHex(value,24,checksum,8);
+    return new String(value);
+  }
+
+  /**
+   * Return the version of the value if it is the one built for the key and field, else -1.
+   */
+  public static long verify(String value, String key, String field)
+  {
+    if (value==null || value.length()<HEADER_LENGTH)
+    {
+      return -1;
+    }
+    long version=parseHex(value,0,16);
+    int length=value.length();
+    if (version<0 || parseHex(value,16,8)!=length)
+    {
+      return -1;
+    }
+    long x=seed(key,field,version);
+    int checksum=Utils.FNV_offset_basis_32;
+    int i=HEADER_LENGTH;
+    while (i<length)
+    {
+      x=next(x);
+      long r=x*0x2545F4914F6CDD1DL;
+      for (int j=0; j<10 && i<length; j++, i++)
+      {
+        char c=ALPHABET[(int)(r&63)];
+        r>>>=6;
+        if (value.charAt(i)!=c)
+        {
+          return -1;
+        }
+        checksum=(checksum^c)*Utils.FNV_prime_32;
+      }
+    }
+    return parseHex(value,24,8)==(checksum&0xffffffffL) ? version : -1;
+  }
+
+  /**
+   * Return the version of the value if its length and checksum are right, else -1. This does not
+   * need the key, but does not catch a value returned for the wrong record or field.
+   */
+  public static long check(String value)
+  {
+    if (value==null || value.length()<HEADER_LENGTH)
+    {
+      return -1;
+    }
+    long version=parseHex(value,0,16);
+    if (version<0 || parseHex(value,16,8)!=value.length())
+    {
+      return -1;
+    }
+    int checksum=Utils.FNV_offset_basis_32;
+    for (int i=HEADER_LENGTH; i<value.length(); i++)
+    {
+      checksum=(checksum^value.charAt(i))*Utils.FNV_prime_32;
+    }
+    return parseHex(value,24,8)==(checksum&0xffffffffL) ? version : -1;
+  }
+
+  /**
+   * The version of the value, as written in its header, or -1 if the header is malformed.
+   */
+  public static long versionOf(String value)
+  {
+    return value==null || value.length()<HEADER_LENGTH ? -1 : parseHex(value,0,16);
+  }
+
+  static long seed(String key, String field, long version)
+  {
+    long h=Utils.FNV_offset_basis_64;
+    for (int i=0; i<key.length(); i++)
+    {
+      h=(h^key.charAt(i))*Utils.FNV_prime_64;
+    }
+    h=(h^':')*Utils.FNV_prime_64;
+    for (int i=0; i<field.length(); i++)
+    {
+      h=(h^field.charAt(i))*Utils.FNV_prime_64;
+    }
+    h=(h^version)*Utils.FNV_prime_64;
+    // xorshift never leaves 0
+    return h==0 ? 1 : h;
+  }
+
+  static long next(long x)
+  {
+    x^=x>>>12;
+    x^=x<<25;
+    x^=x>>>27;
+    return x;
+  }
+
+  static void putHex(char[] value, int off, long n, int digits)
+  {
+    for (int i=off+digits-1; i>=off; i--)
+    {
+      value[i]=HEX[(int)(n&15)];
+      n>>>=4;
+    }
+  }
+
+  /**
+   * Parse digits hex digits, or return -1 if one is not a lower case hex digit.
+   */
+  static long parseHex(String value, int off, int digits)
+  {
+    long n=0;
+    for (int i=off; i<off+digits; i++)
+    {
+      char c=value.charAt(i);
+      int d=c>='0' && c<='9' ? c-'0' : c>='a' && c<='f' ? c-'a'+10 : -1;
+      if (d<0)
+      {
+        return -1;
+      }
+      n=(n<<4)|d;
+    }
+    return n;
+  }
+}
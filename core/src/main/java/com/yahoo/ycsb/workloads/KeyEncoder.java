@@ -0,0 +1,321 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.WorkloadException;
+
+/**
+ * Turns key numbers into the record keys sent to the database. The length and shape of keys
+ * drive index size and comparison cost, so they can be chosen to match the application:
+ * <UL>
+ * <LI><b>default</b>: the prefix and the decimal number, e.g. user6284781860667377211
+ * <LI><b>fixed</b>: the prefix and the number zero-padded to keydigits digits
+ * <LI><b>binary</b>: the 8 bytes of the number, big-endian, one char of code 0 to 255 per byte;
+ * bindings encoding keys as ISO-8859-1 send them as 8 bytes, UTF-8 may widen them
+ * <LI><b>uuid</b>: a UUID-like string of 36 hex digits and dashes, scattered but unique per number
+ * <LI><b>tenant</b>: the prefix, one of keytenants zero-padded tenant numbers, a colon and the
+ * number within the tenant, e.g. user42:62847818
+ * <LI>the name of a subclass of KeyEncoder, built with its public no-argument constructor
+ * </ul>
+ * Keys are built in a char array of the right size rather than by concatenation. Encoders are
+ * shared by the client threads, so they must be thread safe.
+ */
+public abstract class KeyEncoder
+{
+  public static final String KEY_ENCODING_PROPERTY="keyencoding";
+  public static final String KEY_ENCODING_PROPERTY_DEFAULT="default";
+
+  public static final String KEY_PREFIX_PROPERTY="keyprefix";
+  public static final String KEY_PREFIX_PROPERTY_DEFAULT="user";
+
+  public static final String KEY_DIGITS_PROPERTY="keydigits";
+  /** Enough for any hashed key number. */
+  public static final String KEY_DIGITS_PROPERTY_DEFAULT="19";
+
+  public static final String KEY_TENANTS_PROPERTY="keytenants";
+  public static final String KEY_TENANTS_PROPERTY_DEFAULT="100";
+
+  static final char[] HEX="0123456789abcdef".toCharArray();
+
+  /**
+   * Initialize the encoder from the workload properties.
+   */
+  public void init(Properties p) throws WorkloadException
+  {
+  }
+
+  /**
+   * Return the key of a record number, which is non-negative.
+   */
+  public abstract String encode(long keynum);
+
+  /**
+   * Create the encoder chosen by the keyencoding property.
+   */
+  public static KeyEncoder create(Properties p) throws WorkloadException
+  {
+    String encoding=p.getProperty(KEY_ENCODING_PROPERTY,KEY_ENCODING_PROPERTY_DEFAULT);
+    KeyEncoder encoder;
+    if (encoding.equals("default"))
+    {
+      encoder=new DecimalKeyEncoder();
+    }
+    else if (encoding.equals("fixed"))
+    {
+      encoder=new FixedWidthKeyEncoder();
+    }
+    else if (encoding.equals("binary"))
+    {
+      encoder=new BinaryKeyEncoder();
+    }
+    else if (encoding.equals("uuid"))
+    {
+      encoder=new UuidKeyEncoder();
+    }
+    else if (encoding.equals("tenant"))
+    {
+      encoder=new TenantKeyEncoder();
+    }
+    else
+    {
+      try
+      {
+        encoder=(KeyEncoder)Class.forName(encoding).newInstance();
+      }
+      catch (Exception e)
+      {
+        throw new WorkloadException("Unknown "+KEY_ENCODING_PROPERTY+" \""+encoding+"\": "+e);
+      }
+    }
+    encoder.init(p);
+    return encoder;
+  }
+
+  /**
+   * Return the number of decimal digits of a non-negative number.
+   */
+  static int digits(long n)
+  {
+    int d=1;
+    while (n>=10)
+    {
+      n/=10;
+      d++;
+    }
+    return d;
+  }
+
+  /**
+   * Write the last width decimal digits of a non-negative number to buf, ending before end,
+   * zero-padded on the left.
+   */
+  static void putDigits(char[] buf, int end, int width, long n)
+  {
+    for (int i=end-1; i>=end-width; i--)
+    {
+      buf[i]=(char)('0'+(n%10));
+      n/=10;
+    }
+  }
+
+  /** The number of leading characters of a key interpolated by splitKeySpace(). */
+  static final int SPLIT_CHARS=8;
+
+  /**
+   * Split the key space from startkey to its end into segments intervals of the same width,
+   * reading keys as numbers whose digits are their first SPLIT_CHARS printable ASCII characters,
+   * and return the start of each interval in order, starting with startkey. This is where hashed
+   * keys of any encoding divide evenly, without knowing the keys present.
+   */
+  public static List<String> splitKeySpace(String startkey, int segments)
+  {
+    long start=0;
+    for (int i=0; i<SPLIT_CHARS; i++)
+    {
+      // characters outside the range count as its ends, which keeps the order
+      int c=i<startkey.length() ? Math.max(' ',Math.min('~',startkey.charAt(i))) : ' ';
+      start=start*95+(c-' ');
+    }
+    long end=1;
+    for (int i=0; i<SPLIT_CHARS; i++)
+    {
+      end*=95;
+    }
+    long step=(end-start)/segments;
+    List<String> splits=new ArrayList<String>(segments);
+    splits.add(startkey);
+    for (int i=1; i<segments && step>0; i++)
+    {
+      long n=start+step*i;
+      char[] buf=new char[SPLIT_CHARS];
+      for (int j=SPLIT_CHARS-1; j>=0; j--)
+      {
+        buf[j]=(char)(' '+n%95);
+        n/=95;
+      }
+      splits.add(new String(buf));
+    }
+    return splits;
+  }
+
+  static void putHex(char[] buf, int pos, int width, long n)
+  {
+    for (int i=pos+width-1; i>=pos; i--)
+    {
+      buf[i]=HEX[(int)(n&0xf)];
+      n>>>=4;
+    }
+  }
+
+  /**
+   * The prefix and the decimal number, the key format of the original YCSB.
+   */
+  public static class DecimalKeyEncoder extends KeyEncoder
+  {
+    char[] prefix;
+
+    @Override
+    public void init(Properties p)
+    {
+      prefix=p.getProperty(KEY_PREFIX_PROPERTY,KEY_PREFIX_PROPERTY_DEFAULT).toCharArray();
+    }
+
+    @Override
+    public String encode(long keynum)
+    {
+      int width=digits(keynum);
+      char[] buf=new char[prefix.length+width];
+      System.arraycopy(prefix,0,buf,0,prefix.length);
+      putDigits(buf,buf.length,width,keynum);
+      return new String(buf);
+    }
+  }
+
+  /**
+   * The prefix and the number zero-padded to keydigits digits, so that all keys have the same
+   * length and sort in numeric order. Numbers with more digits keep only the last keydigits ones.
+   */
+  public static class FixedWidthKeyEncoder extends KeyEncoder
+  {
+    char[] prefix;
+    int width;
+
+    @Override
+    public void init(Properties p) throws WorkloadException
+    {
+      prefix=p.getProperty(KEY_PREFIX_PROPERTY,KEY_PREFIX_PROPERTY_DEFAULT).toCharArray();
+      width=Integer.parseInt(p.getProperty(KEY_DIGITS_PROPERTY,KEY_DIGITS_PROPERTY_DEFAULT));
+      if (width<1 || width>19)
+      {
+        throw new WorkloadException(KEY_DIGITS_PROPERTY+" must be between 1 and 19");
+      }
+    }
+
+    @Override
+    public String encode(long keynum)
+    {
+      char[] buf=new char[prefix.length+width];
+      System.arraycopy(prefix,0,buf,0,prefix.length);
+      putDigits(buf,buf.length,width,keynum);
+      return new String(buf);
+    }
+  }
+
+  /**
+   * The 8 bytes of the number, big-endian, as chars of code 0 to 255.
+   */
+  public static class BinaryKeyEncoder extends KeyEncoder
+  {
+    @Override
+    public String encode(long keynum)
+    {
+      char[] buf=new char[8];
+      for (int i=7; i>=0; i--)
+      {
+        buf[i]=(char)(keynum&0xff);
+        keynum>>>=8;
+      }
+      return new String(buf);
+    }
+  }
+
+  /**
+   * A UUID-like string: the hash of the number, then the number itself, in the 8-4-4-4-12 hex
+   * digit layout of a UUID. Keys are scattered like random UUIDs whatever the insert order.
+   */
+  public static class UuidKeyEncoder extends KeyEncoder
+  {
+    @Override
+    public String encode(long keynum)
+    {
+      long high=Utils.FNVhash64(keynum);
+      char[] buf=new char[36];
+      putHex(buf,0,8,high>>>32);
+      buf[8]='-';
+      putHex(buf,9,4,high>>>16);
+      buf[13]='-';
+      putHex(buf,14,4,high);
+      buf[18]='-';
+      putHex(buf,19,4,keynum>>>48);
+      buf[23]='-';
+      putHex(buf,24,12,keynum);
+      return new String(buf);
+    }
+  }
+
+  /**
+   * The prefix, a zero-padded tenant number, a colon and the number within the tenant. The key
+   * numbers are spread round robin over keytenants tenants.
+   */
+  public static class TenantKeyEncoder extends KeyEncoder
+  {
+    char[] prefix;
+    int tenants;
+    int tenantwidth;
+
+    @Override
+    public void init(Properties p) throws WorkloadException
+    {
+      prefix=p.getProperty(KEY_PREFIX_PROPERTY,KEY_PREFIX_PROPERTY_DEFAULT).toCharArray();
+      tenants=Integer.parseInt(p.getProperty(KEY_TENANTS_PROPERTY,KEY_TENANTS_PROPERTY_DEFAULT));
+      if (tenants<1)
+      {
+        throw new WorkloadException(KEY_TENANTS_PROPERTY+" must be larger than 0");
+      }
+      tenantwidth=digits(tenants-1);
+    }
+
+    @Override
+    public String encode(long keynum)
+    {
+      long id=keynum/tenants;
+      int width=digits(id);
+      char[] buf=new char[prefix.length+tenantwidth+1+width];
+      System.arraycopy(prefix,0,buf,0,prefix.length);
+      putDigits(buf,prefix.length+tenantwidth,tenantwidth,keynum%tenants);
+      buf[prefix.length+tenantwidth]=':';
+      putDigits(buf,buf.length,width,id);
+      return new String(buf);
+    }
+  }
+}
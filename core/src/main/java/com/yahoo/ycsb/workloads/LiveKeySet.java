@@ -0,0 +1,158 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The set of key numbers currently present in the database, as a bitmap safe for concurrent
+ * use without locks: one bit per key, so a billion keys take 128MB.
+ */
+public class LiveKeySet
+{
+  final AtomicLongArray words;
+  final int capacity;
+
+  /**
+   * Create a set of keys 0 to capacity-1, where the keys below live are present.
+   */
+  public LiveKeySet(int capacity, int live)
+  {
+    this.capacity=capacity;
+    words=new AtomicLongArray((int)((capacity+63L)/64));
+    live=Math.min(live,capacity);
+    for (int i=0; i<live/64; i++)
+    {
+      words.set(i,-1L);
+    }
+    for (int key=live-live%64; key<live; key++)
+    {
+      add(key);
+    }
+  }
+
+  public int capacity()
+  {
+    return capacity;
+  }
+
+  /**
+   * Return whether the key is present. Keys beyond the capacity are not tracked and always present.
+   */
+  public boolean contains(int key)
+  {
+    if (key<0 || key>=capacity)
+    {
+      return true;
+    }
+    return (words.get(key>>>6)&(1L<<(key&63)))!=0;
+  }
+
+  /**
+   * Mark the key present.
+   *
+   * @return false if it already was.
+   */
+  public boolean add(int key)
+  {
+    if (key<0 || key>=capacity)
+    {
+      return false;
+    }
+    int w=key>>>6;
+    long bit=1L<<(key&63);
+    while (true)
+    {
+      long old=words.get(w);
+      if ((old&bit)!=0)
+      {
+        return false;
+      }
+      if (words.compareAndSet(w,old,old|bit))
+      {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Mark the key absent.
+   *
+   * @return false if it already was, e.g. because another thread removed it first.
+   */
+  public boolean remove(int key)
+  {
+    if (key<0 || key>=capacity)
+    {
+      return false;
+    }
+    int w=key>>>6;
+    long bit=1L<<(key&63);
+    while (true)
+    {
+      long old=words.get(w);
+      if ((old&bit)==0)
+      {
+        return false;
+      }
+      if (words.compareAndSet(w,old,old&~bit))
+      {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Return the first present key at or after from and below limit, wrapping around to 0, or -1
+   * if no key below limit is present.
+   */
+  public int next(int from, int limit)
+  {
+    limit=Math.min(limit,capacity);
+    if (limit<=0)
+    {
+      return -1;
+    }
+    from=(from<0 || from>=limit) ? 0 : from;
+    int key=scan(from,limit);
+    if (key<0 && from>0)
+    {
+      key=scan(0,from);
+    }
+    return key;
+  }
+
+  int scan(int from, int limit)
+  {
+    int w=from>>>6;
+    long word=words.get(w)&(-1L<<(from&63));
+    while (true)
+    {
+      if (word!=0)
+      {
+        int key=(w<<6)+Long.numberOfTrailingZeros(word);
+        return key<limit ? key : -1;
+      }
+      if (++w>=words.length() || (w<<6)>=limit)
+      {
+        return -1;
+      }
+      word=words.get(w);
+    }
+  }
+}
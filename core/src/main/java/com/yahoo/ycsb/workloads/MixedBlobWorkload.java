@@ -0,0 +1,175 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Properties;
+
+import com.yahoo.ycsb.BlobByteIterator;
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.IntegerGenerator;
+import com.yahoo.ycsb.generator.UniformIntegerGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A CoreWorkload where a small share of the records also carry a large blob, e.g. 1% of them
+ * with 1 to 16MB, next to the usual small fields. Blobs are BlobByteIterators, so bindings
+ * reading them with nextBuf() get them in chunks at memory copy speed rather than byte by byte.
+ *
+ * Whether a record has a blob is a function of its key number, so the load and run phases agree.
+ * Reads and updates of blob records read and rewrite the blob. Besides the usual READ, UPDATE and
+ * INSERT, the latencies are reported separately for small and blob records as READ-SMALL,
+ * READ-BLOB, and so on, to show how the blobs slow down the small operations sharing the store.
+ *
+ * All the properties of CoreWorkload apply, except dataintegrity. Properties to control the client:
+ * <UL>
+ * <LI><b>blobproportion</b>: the fraction of records with a blob (default: 0.01)
+ * <LI><b>blobminsize</b>: the smallest blob, in bytes (default: 1048576)
+ * <LI><b>blobmaxsize</b>: the largest blob, in bytes; sizes are uniform in between (default: 16777216)
+ * </ul>
+ */
+public class MixedBlobWorkload extends CoreWorkload
+{
+  public static final String BLOB_PROPORTION_PROPERTY="blobproportion";
+  public static final String BLOB_PROPORTION_PROPERTY_DEFAULT="0.01";
+
+  public static final String BLOB_MIN_SIZE_PROPERTY="blobminsize";
+  public static final String BLOB_MIN_SIZE_PROPERTY_DEFAULT="1048576";
+
+  public static final String BLOB_MAX_SIZE_PROPERTY="blobmaxsize";
+  public static final String BLOB_MAX_SIZE_PROPERTY_DEFAULT="16777216";
+
+  /** The field holding the blob of a blob record. */
+  static final String BLOB_FIELD="blob";
+
+  /** Blob records are those whose key number hashes below this, out of a million. */
+  long blobthreshold;
+
+  IntegerGenerator blobsize;
+
+  Measurements _measurements;
+
+  @Override
+  public void init(Properties p) throws WorkloadException
+  {
+    super.init(p);
+    if (dataintegrity)
+    {
+      throw new WorkloadException(DATA_INTEGRITY_PROPERTY+" is not supported with blobs");
+    }
+    double blobproportion=Double.parseDouble(p.getProperty(BLOB_PROPORTION_PROPERTY,BLOB_PROPORTION_PROPERTY_DEFAULT));
+    int minsize=Integer.parseInt(p.getProperty(BLOB_MIN_SIZE_PROPERTY,BLOB_MIN_SIZE_PROPERTY_DEFAULT));
+    int maxsize=Integer.parseInt(p.getProperty(BLOB_MAX_SIZE_PROPERTY,BLOB_MAX_SIZE_PROPERTY_DEFAULT));
+    if (minsize<0 || maxsize<minsize)
+    {
+      throw new WorkloadException(BLOB_MIN_SIZE_PROPERTY+" must be between 0 and "+BLOB_MAX_SIZE_PROPERTY);
+    }
+    blobthreshold=(long)(blobproportion*1000000);
+    blobsize=new UniformIntegerGenerator(minsize,maxsize);
+    _measurements=Measurements.getMeasurements();
+  }
+
+  boolean isBlob(long keynum)
+  {
+    return Math.abs(Utils.FNVhash64(keynum)%1000000)<blobthreshold;
+  }
+
+  HashMap<String,ByteIterator> withBlob(HashMap<String,ByteIterator> values)
+  {
+    values.put(BLOB_FIELD,new BlobByteIterator(blobsize.nextInt()));
+    return values;
+  }
+
+  void measure(String op, boolean blob, long st, long ist, int ret)
+  {
+    long en=System.nanoTime();
+    op+=blob ? "-BLOB" : "-SMALL";
+    _measurements.measure(op,(int)((en-st)/1000));
+    _measurements.measureIntended(op,(int)((en-ist)/1000));
+    _measurements.reportReturnCode(op,ret);
+  }
+
+  @Override
+  public boolean doInsert(DB db, Object threadstate)
+  {
+    int keynum=keysequence.nextInt();
+    return insert(db,keynum)==0;
+  }
+
+  @Override
+  public void doTransactionInsert(DB db)
+  {
+    int keynum=nextInsertKeynum();
+    insertDone(keynum,insert(db,keynum)==0);
+  }
+
+  int insert(DB db, int keynum)
+  {
+    String dbkey=buildKeyName(keynum);
+    boolean blob=isBlob(keynum);
+    HashMap<String,ByteIterator> values=buildValues(dbkey);
+    if (blob)
+    {
+      withBlob(values);
+    }
+    long ist=_measurements.getIntendedtartTimeNs();
+    long st=System.nanoTime();
+    int ret=db.insert(table,dbkey,values);
+    measure("INSERT",blob,st,ist,ret);
+    return ret;
+  }
+
+  @Override
+  public void doTransactionRead(DB db)
+  {
+    int keynum=nextKeynum();
+    String keyname=buildKeyName(keynum);
+    boolean blob=isBlob(keynum);
+    HashSet<String> fields=buildReadFields();
+    if (blob && fields!=null)
+    {
+      fields.add(BLOB_FIELD);
+    }
+    HashMap<String,ByteIterator> cells=new HashMap<String,ByteIterator>();
+    long ist=_measurements.getIntendedtartTimeNs();
+    long st=System.nanoTime();
+    int ret=db.read(table,keyname,fields,cells);
+    measure("READ",blob,st,ist,ret);
+  }
+
+  @Override
+  public void doTransactionUpdate(DB db)
+  {
+    int keynum=nextKeynum();
+    String keyname=buildKeyName(keynum);
+    boolean blob=isBlob(keynum);
+    HashMap<String,ByteIterator> values=writeallfields ? buildValues(keyname) : buildSingleValue(keyname);
+    if (blob)
+    {
+      withBlob(values);
+    }
+    long ist=_measurements.getIntendedtartTimeNs();
+    long st=System.nanoTime();
+    int ret=db.update(table,keyname,values);
+    measure("UPDATE",blob,st,ist,ret);
+  }
+}
@@ -0,0 +1,262 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.CounterGenerator;
+
+/**
+ * A workload spreading operations across several tables, each with its own key space, record
+ * schema, request distribution and share of the traffic. Every table is run by its own
+ * {@link CoreWorkload}, configured with the global properties overridden by the properties
+ * prefixed with "table.&lt;name&gt;.".
+ *
+ * Properties to control the client:
+ * <UL>
+ * <LI><b>tables</b>: comma separated names of the tables (default: none, see tablecount)
+ * <LI><b>tablecount</b>: if tables is not set, the number of tables, named table0, table1, ... after the table property (default: 1)
+ * <LI><b>table.&lt;name&gt;.proportion</b>: relative share of the transactions going to this table (default: 1)
+ * <LI><b>table.&lt;name&gt;.&lt;property&gt;</b>: any CoreWorkload property for this table only, e.g.
+ * table.orders.recordcount, table.orders.fieldcount or table.orders.requestdistribution
+ * </ul>
+ *
+ * The load phase inserts the records of all the tables, so the recordcount of the run is set to
+ * the sum of the record counts of the tables. The operationcount of each table is set to its
+ * share of the global operationcount unless it is given explicitly.
+ */
+public class MultiTableWorkload extends Workload
+{
+  /**
+   * The name of the property for the comma separated list of tables.
+   */
+  public static final String TABLES_PROPERTY="tables";
+
+  /**
+   * The name of the property for the number of tables, if they are not listed by name.
+   */
+  public static final String TABLE_COUNT_PROPERTY="tablecount";
+
+  /**
+   * The default number of tables.
+   */
+  public static final String TABLE_COUNT_PROPERTY_DEFAULT="1";
+
+  /**
+   * The prefix of the properties that apply to a single table.
+   */
+  public static final String TABLE_PROPERTY_PREFIX="table.";
+
+  /**
+   * The name of the per table property for its relative share of the transactions.
+   */
+  public static final String PROPORTION_PROPERTY="proportion";
+
+  /**
+   * The default relative share of the transactions of a table.
+   */
+  public static final String PROPORTION_PROPERTY_DEFAULT="1";
+
+  List<String> tablenames;
+  CoreWorkload[] workloads;
+
+  /** Cumulative share of the transactions, ending with 1.0. */
+  double[] cumulativeproportions;
+
+  /** Cumulative record counts, used to spread the load phase across the tables. */
+  long[] cumulativerecords;
+
+  CounterGenerator insertsequence;
+
+  /**
+   * Return the properties of one table: the global ones, overridden by the ones prefixed
+   * with "table.&lt;name&gt;.".
+   */
+  static Properties tableProperties(Properties p, String name)
+  {
+    Properties tp=new Properties();
+    String prefix=TABLE_PROPERTY_PREFIX+name+".";
+    Set<String> props=p.stringPropertyNames();
+    for (String prop : props)
+    {
+      tp.setProperty(prop,p.getProperty(prop));
+    }
+    for (String prop : props)
+    {
+      if (prop.startsWith(prefix))
+      {
+        tp.setProperty(prop.substring(prefix.length()),p.getProperty(prop));
+      }
+    }
+    tp.setProperty(CoreWorkload.TABLENAME_PROPERTY,name);
+    return tp;
+  }
+
+  @Override
+  public void init(Properties p) throws WorkloadException
+  {
+    tablenames=new ArrayList<String>();
+    String tables=p.getProperty(TABLES_PROPERTY);
+    if (tables!=null)
+    {
+      for (String name : tables.split(","))
+      {
+        if (name.trim().length()>0)
+        {
+          tablenames.add(name.trim());
+        }
+      }
+    }
+    else
+    {
+      String basename=p.getProperty(CoreWorkload.TABLENAME_PROPERTY,CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
+      int tablecount=Integer.parseInt(p.getProperty(TABLE_COUNT_PROPERTY,TABLE_COUNT_PROPERTY_DEFAULT));
+      for (int i=0; i<tablecount; i++)
+      {
+        tablenames.add(basename+i);
+      }
+    }
+    if (tablenames.isEmpty())
+    {
+      throw new WorkloadException("No tables specified");
+    }
+
+    int n=tablenames.size();
+    Properties[] tableprops=new Properties[n];
+    double[] proportions=new double[n];
+    double totalproportion=0;
+    long totalrecords=0;
+    cumulativerecords=new long[n];
+    for (int i=0; i<n; i++)
+    {
+      tableprops[i]=tableProperties(p,tablenames.get(i));
+      proportions[i]=Double.parseDouble(tableprops[i].getProperty(PROPORTION_PROPERTY,PROPORTION_PROPERTY_DEFAULT));
+      totalproportion+=proportions[i];
+      totalrecords+=Long.parseLong(tableprops[i].getProperty(Client.RECORD_COUNT_PROPERTY,Client.DEFAULT_RECORD_COUNT));
+      cumulativerecords[i]=totalrecords;
+    }
+    if (totalproportion<=0)
+    {
+      throw new WorkloadException("The proportions of the tables must add up to more than 0");
+    }
+    if (totalrecords>Integer.MAX_VALUE)
+    {
+      throw new WorkloadException("The tables can not hold more than "+Integer.MAX_VALUE+" records in total");
+    }
+
+    long operationcount=Long.parseLong(p.getProperty(Client.OPERATION_COUNT_PROPERTY,"0"));
+    workloads=new CoreWorkload[n];
+    cumulativeproportions=new double[n];
+    double cumulative=0;
+    for (int i=0; i<n; i++)
+    {
+      cumulative+=proportions[i]/totalproportion;
+      cumulativeproportions[i]=cumulative;
+      if (p.getProperty(TABLE_PROPERTY_PREFIX+tablenames.get(i)+"."+Client.OPERATION_COUNT_PROPERTY)==null)
+      {
+        long share=(long)Math.ceil(operationcount*proportions[i]/totalproportion);
+        tableprops[i].setProperty(Client.OPERATION_COUNT_PROPERTY,share+"");
+      }
+      workloads[i]=new CoreWorkload();
+      workloads[i].init(tableprops[i]);
+    }
+    cumulativeproportions[n-1]=1.0;
+
+    // the client sizes the load phase from the record count, which now spans all the tables
+    p.setProperty(Client.RECORD_COUNT_PROPERTY,totalrecords+"");
+    insertsequence=new CounterGenerator(0);
+  }
+
+  @Override
+  public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException
+  {
+    Object[] states=new Object[workloads.length];
+    for (int i=0; i<workloads.length; i++)
+    {
+      states[i]=workloads[i].initThread(p,mythreadid,threadcount);
+    }
+    return states;
+  }
+
+  @Override
+  public void cleanup() throws WorkloadException
+  {
+    for (CoreWorkload w : workloads)
+    {
+      w.cleanup();
+    }
+  }
+
+  /**
+   * Insert the next record of the load phase. Records are numbered across the tables in turn,
+   * so each table receives exactly its record count.
+   */
+  @Override
+  public boolean doInsert(DB db, Object threadstate)
+  {
+    int recordnum=insertsequence.nextInt();
+    // the record belongs to the first table whose cumulative count is larger than its number
+    int i=Arrays.binarySearch(cumulativerecords,recordnum);
+    i=(i>=0) ? i : -i-1;
+    while (i<cumulativerecords.length && cumulativerecords[i]<=recordnum)
+    {
+      i++;
+    }
+    if (i>=workloads.length)
+    {
+      return false;
+    }
+    return workloads[i].doInsert(db,((Object[])threadstate)[i]);
+  }
+
+  @Override
+  public boolean doTransaction(DB db, Object threadstate)
+  {
+    double r=Utils.random().nextDouble();
+    int i=Arrays.binarySearch(cumulativeproportions,r);
+    i=(i>=0) ? i : -i-1;
+    while (i<cumulativeproportions.length && cumulativeproportions[i]<=r)
+    {
+      i++;
+    }
+    if (i>=workloads.length)
+    {
+      i=workloads.length-1;
+    }
+    return workloads[i].doTransaction(db,((Object[])threadstate)[i]);
+  }
+
+  @Override
+  public void requestStop()
+  {
+    super.requestStop();
+    for (CoreWorkload w : workloads)
+    {
+      w.requestStop();
+    }
+  }
+}
@@ -0,0 +1,213 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.DBFactory;
+import com.yahoo.ycsb.ScanConsumer;
+import com.yahoo.ycsb.UnknownDBException;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Runs the segments of a parallel scan concurrently for one client thread, the way analytics
+ * jobs read a large range: each segment streams its rows through its own DB instance on its own
+ * pool thread, since DB instances are not thread safe. The segments are measured by their DB
+ * wrappers as STREAM-SCAN; the whole scan, from the first segment started to the last one
+ * finished, as PARALLEL-SCAN, with its rows and aggregate rows/sec; and the time the slowest
+ * segment took beyond the median one as PARALLEL-SCAN-STRAGGLER.
+ */
+public class ParallelScanner
+{
+  final DB[] dbs;
+  final ExecutorService pool;
+
+  /**
+   * The result of one segment.
+   */
+  static class Segment implements Callable<Segment>, ScanConsumer
+  {
+    final DB db;
+    final String table;
+    final String startkey;
+    final int recordcount;
+    final Set<String> fields;
+    int code;
+    int rows;
+    long bytes;
+    long latencyns;
+
+    Segment(DB db, String table, String startkey, int recordcount, Set<String> fields)
+    {
+      this.db=db;
+      this.table=table;
+      this.startkey=startkey;
+      this.recordcount=recordcount;
+      this.fields=fields;
+    }
+
+    public Segment call()
+    {
+      long st=System.nanoTime();
+      code=db.streamScan(table,startkey,recordcount,fields,this);
+      latencyns=System.nanoTime()-st;
+      return this;
+    }
+
+    public boolean consume(String key, HashMap<String,ByteIterator> values)
+    {
+      rows++;
+      for (ByteIterator value : values.values())
+      {
+        bytes+=value.bytesLeft();
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Create segments DB instances of the client's DB class, and as many pool threads.
+   */
+  public ParallelScanner(Properties p, int segments) throws WorkloadException
+  {
+    String dbname=p.getProperty(Client.DB_PROPERTY,"com.yahoo.ycsb.BasicDB");
+    dbs=new DB[segments];
+    try
+    {
+      for (int i=0; i<segments; i++)
+      {
+        dbs[i]=DBFactory.newDB(dbname,p);
+        if (dbs[i]==null)
+        {
+          throw new WorkloadException("Could not create DB "+dbname+" for parallel scans");
+        }
+        dbs[i].init();
+      }
+    }
+    catch (UnknownDBException e)
+    {
+      throw new WorkloadException("Unknown DB "+dbname+" for parallel scans");
+    }
+    catch (DBException e)
+    {
+      throw new WorkloadException(e);
+    }
+    pool=Executors.newFixedThreadPool(segments,new ThreadFactory()
+    {
+      public Thread newThread(Runnable r)
+      {
+        Thread t=new Thread(r,"parallel-scan");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+  }
+
+  public int segments()
+  {
+    return dbs.length;
+  }
+
+  /**
+   * Scan recordcount records from each start key in parallel, in equal shares, and measure the
+   * whole scan.
+   *
+   * @return Zero if all the segments succeeded, else the return code of a failed one.
+   */
+  public int scan(String table, List<String> startkeys, int recordcount, Set<String> fields)
+  {
+    int n=Math.min(startkeys.size(),dbs.length);
+    int share=Math.max(1,recordcount/n);
+    Measurements measurements=Measurements.getMeasurements();
+    long ist=measurements.getIntendedtartTimeNs();
+    long st=System.nanoTime();
+    List<Future<Segment>> futures=new ArrayList<Future<Segment>>(n);
+    for (int i=0; i<n; i++)
+    {
+      futures.add(pool.submit(new Segment(dbs[i],table,startkeys.get(i),share,fields)));
+    }
+    int code=0;
+    int rows=0;
+    long bytes=0;
+    long[] latencies=new long[n];
+    for (int i=0; i<n; i++)
+    {
+      try
+      {
+        Segment segment=futures.get(i).get();
+        if (segment.code!=0)
+        {
+          code=segment.code;
+        }
+        rows+=segment.rows;
+        bytes+=segment.bytes;
+        latencies[i]=segment.latencyns;
+      }
+      catch (Exception e)
+      {
+        code=-1;
+      }
+    }
+    long en=System.nanoTime();
+
+    measurements.measure("PARALLEL-SCAN",(int)((en-st)/1000));
+    measurements.measureIntended("PARALLEL-SCAN",(int)((en-ist)/1000));
+    measurements.reportReturnCode("PARALLEL-SCAN",code);
+    if (code==0)
+    {
+      measurements.measureScan("PARALLEL-SCAN",share*n,rows,bytes,(int)((en-st)/1000));
+      Arrays.sort(latencies);
+      measurements.measure("PARALLEL-SCAN-STRAGGLER",(int)((latencies[n-1]-latencies[n/2])/1000));
+    }
+    return code;
+  }
+
+  /**
+   * Stop the pool and clean up the DB instances.
+   */
+  public void cleanup() throws WorkloadException
+  {
+    pool.shutdown();
+    try
+    {
+      for (DB db : dbs)
+      {
+        db.cleanup();
+      }
+    }
+    catch (DBException e)
+    {
+      throw new WorkloadException(e);
+    }
+  }
+}
@@ -0,0 +1,255 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.CounterGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Measures how stale the reads of a store are under load, e.g. Cassandra with
+ * readconsistencylevel=ONE, Mongo reading from secondaries or DynamoDB eventually consistent reads.
+ *
+ * The first staleness.writers client threads are writers: each owns a share of the recordcount
+ * records and keeps overwriting them with a new version, stamped with the run, the version number
+ * and the write time. The other threads are readers. When a reader gets a version older than one
+ * whose write had already been acknowledged before the read started, the read is stale; its
+ * staleness is the time since the first newer version was acknowledged. The fraction of stale
+ * reads and the staleness histogram are reported as STALENESS, next to the READ and UPDATE latencies.
+ *
+ * Versions are only compared within the run, so the load phase just creates the records.
+ *
+ * Properties to control the client:
+ * <UL>
+ * <LI><b>recordcount</b>: the number of records written and read
+ * <LI><b>staleness.writers</b>: the number of writer threads, the other threads read (default: 1)
+ * <LI><b>staleness.history</b>: the number of recent versions of every record whose acknowledgement
+ * time is kept, 8 bytes each; a read more versions behind is measured from the oldest one kept (default: 8)
+ * <LI><b>table</b>: the name of the table (default: usertable)
+ * </ul>
+ */
+public class StalenessWorkload extends Workload
+{
+  public static final String WRITERS_PROPERTY="staleness.writers";
+  public static final String WRITERS_PROPERTY_DEFAULT="1";
+
+  public static final String HISTORY_PROPERTY="staleness.history";
+  public static final String HISTORY_PROPERTY_DEFAULT="8";
+
+  /** The field holding the stamp of the version. */
+  static final String VERSION_FIELD="field0";
+
+
+  String table;
+  int recordcount;
+  int writers;
+
+  /** The number of recent versions per record whose acknowledgement time is kept. */
+  int history;
+
+  /** Identifies the versions written by this run. */
+  long runid;
+
+  /** The latest acknowledged version of every record. */
+  AtomicLongArray acked;
+
+  /** The acknowledgement time (System.nanoTime()) of the last history versions of every record. */
+  AtomicLongArray acktimes;
+
+  CounterGenerator insertsequence;
+
+  KeyEncoder keyencoder;
+
+  Measurements _measurements;
+
+  /**
+   * The state of a client thread: whether it writes, and the records it owns if it does.
+   */
+  static class Role
+  {
+    final boolean writer;
+    final int writerid;
+    /** The next version to write of every record, for the records owned by this writer. */
+    final long[] nextversion;
+
+    Role(boolean writer, int writerid, int recordcount)
+    {
+      this.writer=writer;
+      this.writerid=writerid;
+      this.nextversion=writer ? new long[recordcount] : null;
+    }
+  }
+
+  @Override
+  public void init(Properties p) throws WorkloadException
+  {
+    table=p.getProperty(CoreWorkload.TABLENAME_PROPERTY,CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
+    recordcount=Integer.parseInt(p.getProperty(Client.RECORD_COUNT_PROPERTY,Client.DEFAULT_RECORD_COUNT));
+    writers=Integer.parseInt(p.getProperty(WRITERS_PROPERTY,WRITERS_PROPERTY_DEFAULT));
+    if (recordcount<=0 || writers<=0)
+    {
+      throw new WorkloadException(Client.RECORD_COUNT_PROPERTY+" and "+WRITERS_PROPERTY+" must be larger than 0");
+    }
+    int threadcount=Integer.parseInt(p.getProperty(Client.THREAD_COUNT_PROPERTY,"1"));
+    if (writers>=threadcount)
+    {
+      System.err.println("Warning: all the "+threadcount+" threads are writers, no reads will be measured");
+    }
+    history=Integer.parseInt(p.getProperty(HISTORY_PROPERTY,HISTORY_PROPERTY_DEFAULT));
+    if (history<=0)
+    {
+      throw new WorkloadException(HISTORY_PROPERTY+" must be larger than 0");
+    }
+    if ((long)recordcount*history>Integer.MAX_VALUE)
+    {
+      throw new WorkloadException(Client.RECORD_COUNT_PROPERTY+" times "+HISTORY_PROPERTY+" must be at most "+Integer.MAX_VALUE);
+    }
+    runid=System.currentTimeMillis();
+    acked=new AtomicLongArray(recordcount);
+    acktimes=new AtomicLongArray(recordcount*history);
+    insertsequence=new CounterGenerator(Integer.parseInt(p.getProperty(INSERT_START_PROPERTY,INSERT_START_PROPERTY_DEFAULT)));
+    keyencoder=KeyEncoder.create(p);
+    _measurements=Measurements.getMeasurements();
+  }
+
+  @Override
+  public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException
+  {
+    return new Role(mythreadid<writers,mythreadid,recordcount);
+  }
+
+  String buildKeyName(int keynum)
+  {
+    return keyencoder.encode(Utils.hash(keynum));
+  }
+
+  static String stamp(long runid, long version)
+  {
+    return runid+":"+version+":"+System.currentTimeMillis();
+  }
+
+  /**
+   * Return the version of a stamp, or 0 if it was written by another run.
+   */
+  long versionOf(HashMap<String,ByteIterator> result)
+  {
+    ByteIterator value=result.get(VERSION_FIELD);
+    if (value==null)
+    {
+      return 0;
+    }
+    String[] parts=value.toString().split(":");
+    try
+    {
+      if (parts.length<2 || Long.parseLong(parts[0])!=runid)
+      {
+        return 0;
+      }
+      return Long.parseLong(parts[1]);
+    }
+    catch (NumberFormatException e)
+    {
+      return 0;
+    }
+  }
+
+  @Override
+  public boolean doInsert(DB db, Object threadstate)
+  {
+    int keynum=insertsequence.nextInt();
+    HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+    values.put(VERSION_FIELD,new StringByteIterator(stamp(0,0)));
+    return db.insert(table,buildKeyName(keynum),values)==0;
+  }
+
+  @Override
+  public boolean doTransaction(DB db, Object threadstate)
+  {
+    Role role=(Role)threadstate;
+    if (role.writer)
+    {
+      doWrite(db,role);
+    }
+    else
+    {
+      doRead(db);
+    }
+    return true;
+  }
+
+  /**
+   * Overwrite one of the records owned by the writer with its next version. Each record has a
+   * single writer, so its versions are written in order.
+   */
+  void doWrite(DB db, Role role)
+  {
+    int owned=(recordcount-role.writerid+writers-1)/writers;
+    if (owned<=0)
+    {
+      return;
+    }
+    int keynum=role.writerid+writers*Utils.random().nextInt(owned);
+    long version=++role.nextversion[keynum];
+    HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+    values.put(VERSION_FIELD,new StringByteIterator(stamp(runid,version)));
+    if (db.update(table,buildKeyName(keynum),values)==0)
+    {
+      acktimes.set(keynum*history+(int)(version%history),System.nanoTime());
+      acked.set(keynum,version);
+    }
+  }
+
+  /**
+   * Read a random record and compare its version with the latest one acknowledged before the read.
+   */
+  void doRead(DB db)
+  {
+    int keynum=Utils.random().nextInt(recordcount);
+    long latest=acked.get(keynum);
+    long st=System.nanoTime();
+    Set<String> fields=new HashSet<String>();
+    fields.add(VERSION_FIELD);
+    HashMap<String,ByteIterator> result=new HashMap<String,ByteIterator>();
+    if (db.read(table,buildKeyName(keynum),fields,result)!=0 || latest==0)
+    {
+      return;
+    }
+    long version=versionOf(result);
+    if (version>=latest)
+    {
+      _measurements.measureStaleness("STALENESS",0,0);
+      return;
+    }
+    // the first newer version, or the oldest one still known if the reader is far behind
+    long newer=Math.max(version+1,latest-history+1);
+    long acktime=acktimes.get(keynum*history+(int)(newer%history));
+    _measurements.measureStaleness("STALENESS",latest-version,(st-acktime)/1000);
+  }
+}
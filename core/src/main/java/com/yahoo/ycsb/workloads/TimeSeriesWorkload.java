@@ -0,0 +1,291 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.HashMap;
+import java.util.PriorityQueue;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Vector;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.RandomByteIterator;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.IntegerGenerator;
+import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
+import com.yahoo.ycsb.generator.UniformIntegerGenerator;
+
+/**
+ * A metrics ingestion workload: many series, each receiving a point every series.interval
+ * milliseconds, stored under time ordered composite keys "&lt;series id&gt;:&lt;timestamp&gt;",
+ * and queries reading the last series.window milliseconds of one series with a scan.
+ *
+ * Time is simulated: the points are written round robin across the series, and the clock of the
+ * workload advances by series.interval every time each series received a point. The load phase
+ * writes the first recordcount points and the transaction phase continues after them, so both
+ * phases must use the same series.count, series.interval and series.starttime, and the window
+ * queries read the loaded points. The real rate is set as usual with the target throughput. A
+ * fraction of the points arrive late, i.e. are written after points of later timestamps of the
+ * same series; late points still held back when the load or the run ends are not written.
+ *
+ * Properties to control the client:
+ * <UL>
+ * <LI><b>series.count</b>: the number of series (default: 1000)
+ * <LI><b>series.interval</b>: the milliseconds between two points of a series (default: 10000)
+ * <LI><b>series.starttime</b>: the timestamp of the first points, in milliseconds since the epoch (default: 1420070400000, i.e. 2015-01-01)
+ * <LI><b>series.outoforder</b>: the fraction of the points arriving late (default: 0)
+ * <LI><b>series.maxdelay</b>: the largest delay of a late point, in series.interval (default: 10)
+ * <LI><b>series.window</b>: the milliseconds read by a query, ending at the current time (default: 300000)
+ * <LI><b>series.queryproportion</b>: the proportion of transactions that are window queries, the others are writes (default: 0.1)
+ * <LI><b>series.querydistribution</b>: which series are queried, uniform or zipfian (default: zipfian)
+ * <LI><b>fieldcount</b>: the number of values of a point (default: 1)
+ * <LI><b>fieldlength</b>: the size of every value of a point (default: 8)
+ * <LI><b>table</b>: the name of the table (default: usertable)
+ * </ul>
+ *
+ * The scans rely on the store keeping the keys in order, as HBase, Accumulo or an ordered
+ * partitioner of Cassandra do; with hashed keys a window query returns unrelated points.
+ */
+public class TimeSeriesWorkload extends Workload
+{
+  public static final String SERIES_COUNT_PROPERTY="series.count";
+  public static final String SERIES_COUNT_PROPERTY_DEFAULT="1000";
+
+  public static final String INTERVAL_PROPERTY="series.interval";
+  public static final String INTERVAL_PROPERTY_DEFAULT="10000";
+
+  public static final String START_TIME_PROPERTY="series.starttime";
+  public static final String START_TIME_PROPERTY_DEFAULT="1420070400000";
+
+  public static final String OUT_OF_ORDER_PROPERTY="series.outoforder";
+  public static final String OUT_OF_ORDER_PROPERTY_DEFAULT="0";
+
+  public static final String MAX_DELAY_PROPERTY="series.maxdelay";
+  public static final String MAX_DELAY_PROPERTY_DEFAULT="10";
+
+  public static final String WINDOW_PROPERTY="series.window";
+  public static final String WINDOW_PROPERTY_DEFAULT="300000";
+
+  public static final String QUERY_PROPORTION_PROPERTY="series.queryproportion";
+  public static final String QUERY_PROPORTION_PROPERTY_DEFAULT="0.1";
+
+  public static final String QUERY_DISTRIBUTION_PROPERTY="series.querydistribution";
+  public static final String QUERY_DISTRIBUTION_PROPERTY_DEFAULT="zipfian";
+
+  public static final String FIELD_COUNT_PROPERTY_DEFAULT="1";
+  public static final String FIELD_LENGTH_PROPERTY_DEFAULT="8";
+
+  /** The number of digits of the timestamps in the keys, enough for milliseconds since the epoch. */
+  static final int TIMESTAMP_DIGITS=13;
+
+  String table;
+  int seriescount;
+  int seriesdigits;
+  long interval;
+  long starttime;
+  double outoforder;
+  int maxdelay;
+  long window;
+  double queryproportion;
+  int fieldcount;
+  int fieldlength;
+
+  IntegerGenerator querychooser;
+
+  /**
+   * The number of points generated so far, which drives the clock of the workload: from insertstart
+   * in the load phase, and from recordcount in the transaction phase, which continues the load.
+   */
+  AtomicLong loadpoints;
+  AtomicLong points;
+
+  /**
+   * A point held back to arrive late, written once the point counter reaches due.
+   */
+  static class LatePoint implements Comparable<LatePoint>
+  {
+    final long due;
+    final int series;
+    final long timestamp;
+
+    LatePoint(long due, int series, long timestamp)
+    {
+      this.due=due;
+      this.series=series;
+      this.timestamp=timestamp;
+    }
+
+    public int compareTo(LatePoint o)
+    {
+      return due<o.due ? -1 : (due>o.due ? 1 : 0);
+    }
+  }
+
+  @Override
+  public void init(Properties p) throws WorkloadException
+  {
+    table=p.getProperty(CoreWorkload.TABLENAME_PROPERTY,CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
+    seriescount=Integer.parseInt(p.getProperty(SERIES_COUNT_PROPERTY,SERIES_COUNT_PROPERTY_DEFAULT));
+    interval=Long.parseLong(p.getProperty(INTERVAL_PROPERTY,INTERVAL_PROPERTY_DEFAULT));
+    starttime=Long.parseLong(p.getProperty(START_TIME_PROPERTY,START_TIME_PROPERTY_DEFAULT));
+    outoforder=Double.parseDouble(p.getProperty(OUT_OF_ORDER_PROPERTY,OUT_OF_ORDER_PROPERTY_DEFAULT));
+    maxdelay=Integer.parseInt(p.getProperty(MAX_DELAY_PROPERTY,MAX_DELAY_PROPERTY_DEFAULT));
+    window=Long.parseLong(p.getProperty(WINDOW_PROPERTY,WINDOW_PROPERTY_DEFAULT));
+    queryproportion=Double.parseDouble(p.getProperty(QUERY_PROPORTION_PROPERTY,QUERY_PROPORTION_PROPERTY_DEFAULT));
+    fieldcount=Integer.parseInt(p.getProperty(CoreWorkload.FIELD_COUNT_PROPERTY,FIELD_COUNT_PROPERTY_DEFAULT));
+    fieldlength=Integer.parseInt(p.getProperty(CoreWorkload.FIELD_LENGTH_PROPERTY,FIELD_LENGTH_PROPERTY_DEFAULT));
+    if (seriescount<=0 || interval<=0 || window<=0)
+    {
+      throw new WorkloadException(SERIES_COUNT_PROPERTY+", "+INTERVAL_PROPERTY+" and "+WINDOW_PROPERTY+" must be larger than 0");
+    }
+    seriesdigits=Integer.toString(seriescount-1).length();
+    loadpoints=new AtomicLong(Long.parseLong(p.getProperty(INSERT_START_PROPERTY,INSERT_START_PROPERTY_DEFAULT)));
+    points=new AtomicLong(Long.parseLong(p.getProperty(Client.RECORD_COUNT_PROPERTY,Client.DEFAULT_RECORD_COUNT)));
+
+    String querydistribution=p.getProperty(QUERY_DISTRIBUTION_PROPERTY,QUERY_DISTRIBUTION_PROPERTY_DEFAULT);
+    if (querydistribution.equals("uniform"))
+    {
+      querychooser=new UniformIntegerGenerator(0,seriescount-1);
+    }
+    else if (querydistribution.equals("zipfian"))
+    {
+      querychooser=new ScrambledZipfianGenerator(seriescount);
+    }
+    else
+    {
+      throw new WorkloadException("Unknown "+QUERY_DISTRIBUTION_PROPERTY+" \""+querydistribution+"\"");
+    }
+  }
+
+  @Override
+  public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException
+  {
+    return new PriorityQueue<LatePoint>();
+  }
+
+  static void pad(StringBuilder sb, long value, int digits)
+  {
+    String s=Long.toString(value);
+    for (int i=s.length(); i<digits; i++)
+    {
+      sb.append('0');
+    }
+    sb.append(s);
+  }
+
+  /**
+   * Return the key of a point: the zero padded series id and timestamp, so the points of a
+   * series are contiguous and in time order.
+   */
+  String buildKeyName(int series, long timestamp)
+  {
+    StringBuilder sb=new StringBuilder(seriesdigits+TIMESTAMP_DIGITS+1);
+    pad(sb,series,seriesdigits);
+    sb.append(':');
+    pad(sb,timestamp,TIMESTAMP_DIGITS);
+    return sb.toString();
+  }
+
+  /**
+   * The timestamp of the latest points, i.e. the current time of the workload.
+   */
+  long now()
+  {
+    return starttime+(points.get()/seriescount)*interval;
+  }
+
+  HashMap<String,ByteIterator> buildValues()
+  {
+    HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+    for (int i=0; i<fieldcount; i++)
+    {
+      values.put("field"+i,new RandomByteIterator(fieldlength));
+    }
+    return values;
+  }
+
+  /**
+   * Write one point: a late point of this thread if one is due, else the next point of the
+   * round robin of the phase, possibly holding it back to arrive late.
+   */
+  @SuppressWarnings("unchecked")
+  void writePoint(DB db, Object threadstate, AtomicLong points)
+  {
+    PriorityQueue<LatePoint> late=(PriorityQueue<LatePoint>)threadstate;
+    LatePoint due=late.peek();
+    if (due!=null && due.due<=points.get())
+    {
+      late.poll();
+      db.insert(table,buildKeyName(due.series,due.timestamp),buildValues());
+      return;
+    }
+
+    long n=points.getAndIncrement();
+    int series=(int)(n%seriescount);
+    long timestamp=starttime+(n/seriescount)*interval;
+    Random random=Utils.random();
+    if (outoforder>0 && random.nextDouble()<outoforder)
+    {
+      // arrive after 1 to maxdelay later points of the series
+      long delay=1+random.nextInt(Math.max(1,maxdelay));
+      late.add(new LatePoint(n+delay*seriescount,series,timestamp));
+      n=points.getAndIncrement();
+      series=(int)(n%seriescount);
+      timestamp=starttime+(n/seriescount)*interval;
+    }
+    db.insert(table,buildKeyName(series,timestamp),buildValues());
+  }
+
+  /**
+   * Read the last series.window milliseconds of one series.
+   */
+  void queryWindow(DB db)
+  {
+    int series=querychooser.nextInt();
+    long end=now();
+    long start=Math.max(starttime,end-window);
+    int count=(int)Math.max(1,(end-start)/interval);
+    db.scan(table,buildKeyName(series,start),count,null,new Vector<HashMap<String,ByteIterator>>());
+  }
+
+  @Override
+  public boolean doInsert(DB db, Object threadstate)
+  {
+    writePoint(db,threadstate,loadpoints);
+    return true;
+  }
+
+  @Override
+  public boolean doTransaction(DB db, Object threadstate)
+  {
+    if (queryproportion>0 && Utils.random().nextDouble()<queryproportion)
+    {
+      queryWindow(db);
+    }
+    else
+    {
+      writePoint(db,threadstate,points);
+    }
+    return true;
+  }
+}
@@ -0,0 +1,675 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.RandomByteIterator;
+import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A workload replaying a trace of recorded operations, one per line:
+ *
+ * <pre>
+ * timestamp,op,table,key,fields,valuesize
+ * </pre>
+ *
+ * where op is one of READ, UPDATE, INSERT, DELETE, SCAN, CAS or INCREMENT, fields is a ';'
+ * separated list of field names (empty for all the fields) and valuesize is the size in bytes of
+ * every field written by an UPDATE, INSERT or CAS, or the number of records of a SCAN. The fields
+ * and valuesize columns may be left out. Empty lines and lines starting with '#' are ignored.
+ *
+ * A CAS or an INCREMENT names the one field it changes. Traces do not hold values, so an
+ * INCREMENT adds 1, and a CAS expects the value of the field last read by a single field READ of
+ * the record, as in a read then compare-and-set loop; if it is a number, the CAS writes the next
+ * one, else random bytes of valuesize. A CAS without such a READ expects an empty value.
+ *
+ * The trace file is memory mapped and read once by a reader thread, which parses every line and
+ * hands it to the client thread its key hashes to, through a queue of QUEUE_SIZE lines per thread.
+ * This keeps the operations on a key in trace order, at the cost of putting all the load of a hot
+ * key on a single thread; when a thread falls behind and its queue is full, the reader waits.
+ *
+ * Properties to control the client:
+ * <UL>
+ * <LI><b>tracefile</b>: the trace to replay (required)
+ * <LI><b>trace.speed</b>: "max" to replay as fast as possible, or a factor applied to the original
+ * timing of the trace: 1 replays at the recorded pace, 2 twice as fast (default: max)
+ * <LI><b>trace.timeunit</b>: the unit of the timestamps, one of ns, us, ms or s (default: ms)
+ * <LI><b>fieldcount</b>: the number of fields written by an UPDATE or INSERT without a field list (default: 10)
+ * <LI><b>fieldlength</b>: the size of the fields written by an UPDATE or INSERT without a valuesize (default: 100)
+ * </ul>
+ *
+ * Each thread stops when it reaches the end of the trace, so set operationcount to 0 to replay
+ * the whole of it. When replaying with the original timing, the latency of an operation is
+ * measured from the time it was due, so falling behind the trace shows up in the latencies.
+ */
+public class TraceWorkload extends Workload
+{
+  /**
+   * The name of the property for the trace file to replay.
+   */
+  public static final String TRACE_FILE_PROPERTY="tracefile";
+
+  /**
+   * The name of the property for the replay speed.
+   */
+  public static final String SPEED_PROPERTY="trace.speed";
+
+  /**
+   * The default replay speed, as fast as possible.
+   */
+  public static final String SPEED_PROPERTY_DEFAULT="max";
+
+  /**
+   * The name of the property for the unit of the timestamps of the trace.
+   */
+  public static final String TIME_UNIT_PROPERTY="trace.timeunit";
+
+  /**
+   * The default unit of the timestamps of the trace.
+   */
+  public static final String TIME_UNIT_PROPERTY_DEFAULT="ms";
+
+  /**
+   * The size of the part of the trace mapped at once.
+   */
+  static final int MAP_WINDOW=64*1024*1024;
+
+  /**
+   * The number of parsed lines waiting for each client thread.
+   */
+  static final int QUEUE_SIZE=1024;
+
+  /**
+   * The number of fields read whose value is kept by each client thread for the CASes.
+   */
+  static final int LAST_READ_SIZE=1024;
+
+  /**
+   * Queued after the last line of every thread.
+   */
+  static final TraceRecord END=new TraceRecord();
+
+  static final Charset UTF8=Charset.forName("UTF-8");
+
+  static final int COLUMNS=6;
+
+  String tracefile;
+  RandomAccessFile file;
+  FileChannel channel;
+
+  /** Nanoseconds of replay per unit of trace time, or 0 to replay as fast as possible. */
+  double nanosperunit;
+
+  long firsttimestamp;
+
+  /** The time the replay started, set by the first operation of any thread. */
+  final AtomicLong replaystart=new AtomicLong();
+
+  final AtomicLong malformedlines=new AtomicLong();
+
+  /** The lines of every client thread, created with the reader by the first thread started. */
+  List<BlockingQueue<TraceRecord>> queues;
+
+  Thread reader;
+
+  int fieldcount;
+  int fieldlength;
+
+  Measurements _measurements;
+
+  /**
+   * One line of the trace.
+   */
+  static class TraceRecord
+  {
+    long timestamp;
+    String op;
+    String table;
+    String key;
+    Set<String> fields;
+    int valuesize;
+  }
+
+  /**
+   * The position of the reader in the trace. The trace is mapped in windows of MAP_WINDOW bytes,
+   * so traces larger than 2GB can be replayed.
+   */
+  static class TraceCursor
+  {
+    final FileChannel channel;
+    final long size;
+
+    MappedByteBuffer buffer;
+    long base;
+
+    /** The offsets of the columns of the current line in buffer, and the end of the line. */
+    final int[] starts=new int[COLUMNS];
+    final int[] ends=new int[COLUMNS];
+
+    TraceCursor(FileChannel channel) throws IOException
+    {
+      this.channel=channel;
+      this.size=channel.size();
+      map(0);
+    }
+
+    void map(long position) throws IOException
+    {
+      base=position;
+      buffer=channel.map(FileChannel.MapMode.READ_ONLY,base,Math.min(MAP_WINDOW,size-base));
+    }
+
+    /**
+     * Move to the next line of the trace and split it into columns.
+     *
+     * @return the number of columns of the line, or -1 at the end of the trace.
+     */
+    int nextLine() throws IOException
+    {
+      while (true)
+      {
+        int start=buffer.position();
+        int end=start;
+        int limit=buffer.limit();
+        while (end<limit && buffer.get(end)!='\n')
+        {
+          end++;
+        }
+        if (end==limit && base+limit<size)
+        {
+          // the line continues past the mapped window
+          if (start==0)
+          {
+            throw new IOException("Trace line longer than "+MAP_WINDOW+" bytes at offset "+base);
+          }
+          map(base+start);
+          continue;
+        }
+        if (start==limit)
+        {
+          return -1;
+        }
+        buffer.position(Math.min(end+1,limit));
+
+        int lineend=end;
+        if (lineend>start && buffer.get(lineend-1)=='\r')
+        {
+          lineend--;
+        }
+        if (lineend==start || buffer.get(start)=='#')
+        {
+          continue;
+        }
+
+        int columns=0;
+        starts[0]=start;
+        for (int i=start; i<lineend && columns<COLUMNS; i++)
+        {
+          if (buffer.get(i)==',')
+          {
+            ends[columns++]=i;
+            if (columns<COLUMNS)
+            {
+              starts[columns]=i+1;
+            }
+          }
+        }
+        if (columns<COLUMNS)
+        {
+          ends[columns++]=lineend;
+        }
+        for (int c=columns; c<COLUMNS; c++)
+        {
+          // missing optional columns read as empty
+          starts[c]=ends[c]=lineend;
+        }
+        return columns;
+      }
+    }
+
+    String column(int c)
+    {
+      int length=ends[c]-starts[c];
+      byte[] bytes=new byte[length];
+      for (int i=0; i<length; i++)
+      {
+        bytes[i]=buffer.get(starts[c]+i);
+      }
+      return new String(bytes,UTF8).trim();
+    }
+  }
+
+  static long nanosPerUnit(String unit) throws WorkloadException
+  {
+    if (unit.equals("ns"))
+    {
+      return 1;
+    }
+    else if (unit.equals("us"))
+    {
+      return TimeUnit.MICROSECONDS.toNanos(1);
+    }
+    else if (unit.equals("ms"))
+    {
+      return TimeUnit.MILLISECONDS.toNanos(1);
+    }
+    else if (unit.equals("s"))
+    {
+      return TimeUnit.SECONDS.toNanos(1);
+    }
+    throw new WorkloadException("Unknown "+TIME_UNIT_PROPERTY+" \""+unit+"\"");
+  }
+
+  @Override
+  public void init(Properties p) throws WorkloadException
+  {
+    tracefile=p.getProperty(TRACE_FILE_PROPERTY);
+    if (tracefile==null)
+    {
+      throw new WorkloadException("Missing property "+TRACE_FILE_PROPERTY);
+    }
+    fieldcount=Integer.parseInt(p.getProperty(CoreWorkload.FIELD_COUNT_PROPERTY,CoreWorkload.FIELD_COUNT_PROPERTY_DEFAULT));
+    fieldlength=Integer.parseInt(p.getProperty(CoreWorkload.FIELD_LENGTH_PROPERTY,CoreWorkload.FIELD_LENGTH_PROPERTY_DEFAULT));
+    _measurements=Measurements.getMeasurements();
+
+    String speed=p.getProperty(SPEED_PROPERTY,SPEED_PROPERTY_DEFAULT);
+    long unit=nanosPerUnit(p.getProperty(TIME_UNIT_PROPERTY,TIME_UNIT_PROPERTY_DEFAULT));
+    if (speed.equals("max"))
+    {
+      nanosperunit=0;
+    }
+    else
+    {
+      double factor=Double.parseDouble(speed);
+      if (factor<=0)
+      {
+        throw new WorkloadException(SPEED_PROPERTY+" must be \"max\" or larger than 0");
+      }
+      nanosperunit=unit/factor;
+    }
+
+    try
+    {
+      file=new RandomAccessFile(tracefile,"r");
+      channel=file.getChannel();
+      TraceRecord record=new TraceRecord();
+      if (next(new TraceCursor(channel),record))
+      {
+        firsttimestamp=record.timestamp;
+      }
+      malformedlines.set(0);
+    }
+    catch (IOException e)
+    {
+      throw new WorkloadException("Can not read trace "+tracefile+": "+e);
+    }
+  }
+
+  /**
+   * The state of a client thread: its queue of lines, and the values of the fields last read by
+   * single field READs, expected by the CASes that follow them.
+   */
+  static class Replayer
+  {
+    final BlockingQueue<TraceRecord> queue;
+
+    final Map<String,String> lastread=new LinkedHashMap<String,String>(16,0.75f,true)
+    {
+      private static final long serialVersionUID=1L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String,String> eldest)
+      {
+        return size()>LAST_READ_SIZE;
+      }
+    };
+
+    Replayer(BlockingQueue<TraceRecord> queue)
+    {
+      this.queue=queue;
+    }
+  }
+
+  @Override
+  public Object initThread(Properties p, int mythreadid, int threadcount) throws WorkloadException
+  {
+    return new Replayer(startReader(threadcount).get(mythreadid));
+  }
+
+  /**
+   * Create the queues of the client threads and start the reader filling them, once.
+   */
+  synchronized List<BlockingQueue<TraceRecord>> startReader(final int threadcount) throws WorkloadException
+  {
+    if (queues!=null)
+    {
+      return queues;
+    }
+    final TraceCursor cursor;
+    try
+    {
+      cursor=new TraceCursor(channel);
+    }
+    catch (IOException e)
+    {
+      throw new WorkloadException("Can not read trace "+tracefile+": "+e);
+    }
+    queues=new ArrayList<BlockingQueue<TraceRecord>>(threadcount);
+    for (int i=0; i<threadcount; i++)
+    {
+      queues.add(new ArrayBlockingQueue<TraceRecord>(QUEUE_SIZE));
+    }
+    reader=new Thread("trace-reader")
+    {
+      @Override
+      public void run()
+      {
+        dispatch(cursor,queues);
+      }
+    };
+    reader.setDaemon(true);
+    reader.start();
+    return queues;
+  }
+
+  /**
+   * Parse every line of the trace once, and queue it for the thread its key hashes to, then
+   * queue END for every thread.
+   */
+  void dispatch(TraceCursor cursor, List<BlockingQueue<TraceRecord>> queues)
+  {
+    try
+    {
+      while (true)
+      {
+        TraceRecord record=new TraceRecord();
+        if (!next(cursor,record))
+        {
+          break;
+        }
+        queues.get((record.key.hashCode()&Integer.MAX_VALUE)%queues.size()).put(record);
+      }
+      for (BlockingQueue<TraceRecord> queue : queues)
+      {
+        queue.put(END);
+      }
+    }
+    catch (InterruptedException e)
+    {
+      // stopped by cleanup()
+    }
+  }
+
+  @Override
+  public void cleanup() throws WorkloadException
+  {
+    synchronized (this)
+    {
+      if (reader!=null)
+      {
+        reader.interrupt();
+      }
+    }
+    if (malformedlines.get()>0)
+    {
+      System.err.println("Skipped "+malformedlines.get()+" malformed lines of trace "+tracefile);
+    }
+    try
+    {
+      file.close();
+    }
+    catch (IOException e)
+    {
+      throw new WorkloadException("Can not close trace "+tracefile+": "+e);
+    }
+  }
+
+  /**
+   * Decode the current line of the cursor into record.
+   *
+   * @return false if the line is malformed.
+   */
+  boolean parse(TraceCursor cursor, TraceRecord record)
+  {
+    try
+    {
+      record.timestamp=Long.parseLong(cursor.column(0));
+      record.op=cursor.column(1).toUpperCase();
+      record.table=cursor.column(2);
+      record.key=cursor.column(3);
+      record.fields=null;
+      record.valuesize=-1;
+      String fields=cursor.column(4);
+      if (fields.length()>0)
+      {
+        record.fields=new HashSet<String>();
+        for (String field : fields.split(";"))
+        {
+          record.fields.add(field);
+        }
+      }
+      String valuesize=cursor.column(5);
+      if (valuesize.length()>0)
+      {
+        record.valuesize=Integer.parseInt(valuesize);
+      }
+      return true;
+    }
+    catch (NumberFormatException e)
+    {
+      return false;
+    }
+  }
+
+  /**
+   * Move the cursor to the next well-formed line.
+   *
+   * @return false at the end of the trace.
+   */
+  boolean next(TraceCursor cursor, TraceRecord record)
+  {
+    try
+    {
+      while (true)
+      {
+        int columns=cursor.nextLine();
+        if (columns<0)
+        {
+          return false;
+        }
+        if (columns<4)
+        {
+          malformedlines.incrementAndGet();
+          continue;
+        }
+        if (parse(cursor,record))
+        {
+          return true;
+        }
+        malformedlines.incrementAndGet();
+      }
+    }
+    catch (IOException e)
+    {
+      System.err.println("Error reading trace "+tracefile+": "+e);
+      return false;
+    }
+  }
+
+  /**
+   * Wait until the record is due, following the timing of the trace.
+   */
+  void waitFor(TraceRecord record)
+  {
+    if (nanosperunit==0)
+    {
+      return;
+    }
+    replaystart.compareAndSet(0,System.nanoTime());
+    long deadline=replaystart.get()+(long)((record.timestamp-firsttimestamp)*nanosperunit);
+    long now;
+    while ((now=System.nanoTime())<deadline)
+    {
+      LockSupport.parkNanos(deadline-now);
+    }
+    _measurements.setIntendedStartTimeNs(deadline);
+  }
+
+  HashMap<String,ByteIterator> buildValues(TraceRecord record)
+  {
+    HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+    int length=record.valuesize>=0 ? record.valuesize : fieldlength;
+    if (record.fields!=null)
+    {
+      for (String field : record.fields)
+      {
+        values.put(field,new RandomByteIterator(length));
+      }
+    }
+    else
+    {
+      for (int i=0; i<fieldcount; i++)
+      {
+        values.put("field"+i,new RandomByteIterator(length));
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public boolean doInsert(DB db, Object threadstate)
+  {
+    return doTransaction(db,threadstate);
+  }
+
+  @Override
+  public boolean doTransaction(DB db, Object threadstate)
+  {
+    Replayer replayer=(Replayer)threadstate;
+    BlockingQueue<TraceRecord> queue=replayer.queue;
+    TraceRecord record;
+    try
+    {
+      record=queue.take();
+    }
+    catch (InterruptedException e)
+    {
+      return false;
+    }
+    if (record==END)
+    {
+      // for the next call
+      queue.offer(END);
+      return false;
+    }
+    waitFor(record);
+
+    if (record.op.equals("READ"))
+    {
+      HashMap<String,ByteIterator> result=new HashMap<String,ByteIterator>();
+      String field=singleField(record);
+      if (db.read(record.table,record.key,record.fields,result)==0 && field!=null && result.get(field)!=null)
+      {
+        replayer.lastread.put(record.table+'\0'+record.key+'\0'+field,result.get(field).toString());
+      }
+    }
+    else if (record.op.equals("UPDATE"))
+    {
+      db.update(record.table,record.key,buildValues(record));
+    }
+    else if (record.op.equals("INSERT"))
+    {
+      db.insert(record.table,record.key,buildValues(record));
+    }
+    else if (record.op.equals("DELETE"))
+    {
+      db.delete(record.table,record.key);
+    }
+    else if (record.op.equals("SCAN"))
+    {
+      int len=record.valuesize>0 ? record.valuesize : 1;
+      db.scan(record.table,record.key,len,record.fields,new Vector<HashMap<String,ByteIterator>>());
+    }
+    else if (record.op.equals("CAS") && singleField(record)!=null)
+    {
+      String field=singleField(record);
+      String expected=replayer.lastread.remove(record.table+'\0'+record.key+'\0'+field);
+      db.compareAndSet(record.table,record.key,field,new StringByteIterator(expected==null ? "" : expected),nextValue(expected,record));
+    }
+    else if (record.op.equals("INCREMENT") && singleField(record)!=null)
+    {
+      db.increment(record.table,record.key,singleField(record),1);
+    }
+    else
+    {
+      malformedlines.incrementAndGet();
+    }
+    return true;
+  }
+
+  /**
+   * The one field of the record, or null if it has none or several.
+   */
+  static String singleField(TraceRecord record)
+  {
+    return record.fields!=null && record.fields.size()==1 ? record.fields.iterator().next() : null;
+  }
+
+  /**
+   * The value written by a CAS expecting a value: the next number if it is one, else random bytes.
+   */
+  ByteIterator nextValue(String expected, TraceRecord record)
+  {
+    if (expected!=null)
+    {
+      try
+      {
+        return new StringByteIterator(Long.toString(Long.parseLong(expected.trim())+1));
+      }
+      catch (NumberFormatException e)
+      {
+        // not a counter
+      }
+    }
+    return new RandomByteIterator(record.valuesize>=0 ? record.valuesize : fieldlength);
+  }
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Random;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.CounterGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * Measures multi-key transactions: every operation moves an amount between the balances of two
+ * accounts in one transaction, reading both and writing both, as for money or inventory. The
+ * binding must support beginTransaction(), commitTransaction() and abortTransaction().
+ *
+ * A transfer.hotproportion of the transfers are between two of the transfer.hotaccounts first
+ * accounts, the others between any two accounts, so raising the proportion or lowering the number
+ * of hot accounts raises the chance that concurrent transactions conflict. A transaction aborted
+ * by a conflict is retried up to transfer.maxretries times.
+ *
+ * Every transfer is measured as TRANSFER, including its retries, with return code 0 or
+ * DB.TRANSACTION_ABORTED when it gave up. The DB wrapper measures the single attempts as BEGIN,
+ * READ, UPDATE, COMMIT and ABORT, so the COMMIT return codes give the rate of aborts at commit,
+ * and the ABORT count the transactions rolled back before.
+ *
+ * Properties to control the client:
+ * <UL>
+ * <LI><b>recordcount</b>: the number of accounts, created by the load phase
+ * <LI><b>transfer.hotaccounts</b>: the number of hot accounts (default: 10)
+ * <LI><b>transfer.hotproportion</b>: the fraction of transfers between hot accounts (default: 0)
+ * <LI><b>transfer.maxretries</b>: the number of retries of an aborted transfer (default: 10)
+ * <LI><b>transfer.initialbalance</b>: the balance of every account after the load (default: 1000)
+ * <LI><b>transfer.maxamount</b>: the largest amount moved, amounts are uniform from 1, and capped by the balance (default: 100)
+ * <LI><b>table</b>: the name of the table (default: usertable)
+ * </ul>
+ */
+public class TransferWorkload extends Workload
+{
+  public static final String HOT_ACCOUNTS_PROPERTY="transfer.hotaccounts";
+  public static final String HOT_ACCOUNTS_PROPERTY_DEFAULT="10";
+
+  public static final String HOT_PROPORTION_PROPERTY="transfer.hotproportion";
+  public static final String HOT_PROPORTION_PROPERTY_DEFAULT="0.0";
+
+  public static final String MAX_RETRIES_PROPERTY="transfer.maxretries";
+  public static final String MAX_RETRIES_PROPERTY_DEFAULT="10";
+
+  public static final String INITIAL_BALANCE_PROPERTY="transfer.initialbalance";
+  public static final String INITIAL_BALANCE_PROPERTY_DEFAULT="1000";
+
+  public static final String MAX_AMOUNT_PROPERTY="transfer.maxamount";
+  public static final String MAX_AMOUNT_PROPERTY_DEFAULT="100";
+
+  /** The field holding the balance. */
+  static final String BALANCE_FIELD="field0";
+
+  String table;
+  int recordcount;
+  int hotaccounts;
+  double hotproportion;
+  int maxretries;
+  long initialbalance;
+  int maxamount;
+
+  CounterGenerator insertsequence;
+
+  KeyEncoder keyencoder;
+
+  Measurements _measurements;
+
+  @Override
+  public void init(Properties p) throws WorkloadException
+  {
+    table=p.getProperty(CoreWorkload.TABLENAME_PROPERTY,CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
+    recordcount=Integer.parseInt(p.getProperty(Client.RECORD_COUNT_PROPERTY,Client.DEFAULT_RECORD_COUNT));
+    if (recordcount<2)
+    {
+      throw new WorkloadException(Client.RECORD_COUNT_PROPERTY+" must be at least 2");
+    }
+    hotaccounts=Math.min(recordcount,Integer.parseInt(p.getProperty(HOT_ACCOUNTS_PROPERTY,HOT_ACCOUNTS_PROPERTY_DEFAULT)));
+    hotproportion=Double.parseDouble(p.getProperty(HOT_PROPORTION_PROPERTY,HOT_PROPORTION_PROPERTY_DEFAULT));
+    if (hotproportion>0 && hotaccounts<2)
+    {
+      throw new WorkloadException(HOT_ACCOUNTS_PROPERTY+" must be at least 2");
+    }
+    maxretries=Integer.parseInt(p.getProperty(MAX_RETRIES_PROPERTY,MAX_RETRIES_PROPERTY_DEFAULT));
+    initialbalance=Long.parseLong(p.getProperty(INITIAL_BALANCE_PROPERTY,INITIAL_BALANCE_PROPERTY_DEFAULT));
+    maxamount=Integer.parseInt(p.getProperty(MAX_AMOUNT_PROPERTY,MAX_AMOUNT_PROPERTY_DEFAULT));
+    if (maxamount<1)
+    {
+      throw new WorkloadException(MAX_AMOUNT_PROPERTY+" must be larger than 0");
+    }
+    insertsequence=new CounterGenerator(Integer.parseInt(p.getProperty(INSERT_START_PROPERTY,INSERT_START_PROPERTY_DEFAULT)));
+    keyencoder=KeyEncoder.create(p);
+    _measurements=Measurements.getMeasurements();
+  }
+
+  String buildKeyName(int keynum)
+  {
+    return keyencoder.encode(Utils.hash(keynum));
+  }
+
+  @Override
+  public boolean doInsert(DB db, Object threadstate)
+  {
+    int keynum=insertsequence.nextInt();
+    HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+    values.put(BALANCE_FIELD,new StringByteIterator(Long.toString(initialbalance)));
+    return db.insert(table,buildKeyName(keynum),values)==0;
+  }
+
+  @Override
+  public boolean doTransaction(DB db, Object threadstate)
+  {
+    Random random=Utils.random();
+    int accounts=random.nextDouble()<hotproportion ? hotaccounts : recordcount;
+    int from=random.nextInt(accounts);
+    // a different account, uniform over the others
+    int to=(from+1+random.nextInt(accounts-1))%accounts;
+    long amount=1+random.nextInt(maxamount);
+
+    long ist=_measurements.getIntendedtartTimeNs();
+    long st=System.nanoTime();
+    int ret=DB.TRANSACTION_ABORTED;
+    for (int attempt=0; attempt<=maxretries && ret==DB.TRANSACTION_ABORTED; attempt++)
+    {
+      ret=transfer(db,buildKeyName(from),buildKeyName(to),amount);
+    }
+    long en=System.nanoTime();
+
+    _measurements.measure("TRANSFER",(int)((en-st)/1000));
+    _measurements.measureIntended("TRANSFER",(int)((en-ist)/1000));
+    _measurements.reportReturnCode("TRANSFER",ret);
+    return ret==0 || ret==DB.TRANSACTION_ABORTED;
+  }
+
+  /**
+   * Move up to amount from one balance to the other in one transaction, rolled back if any of
+   * its operations fails.
+   */
+  int transfer(DB db, String fromkey, String tokey, long amount)
+  {
+    int ret=db.beginTransaction();
+    if (ret!=0)
+    {
+      return ret;
+    }
+    long[] balances=new long[2];
+    ret=readBalance(db,fromkey,balances,0);
+    if (ret==0)
+    {
+      ret=readBalance(db,tokey,balances,1);
+    }
+    if (ret==0)
+    {
+      amount=Math.min(amount,Math.max(0,balances[0]));
+      ret=writeBalance(db,fromkey,balances[0]-amount);
+    }
+    if (ret==0)
+    {
+      ret=writeBalance(db,tokey,balances[1]+amount);
+    }
+    if (ret!=0)
+    {
+      db.abortTransaction();
+      return ret;
+    }
+    return db.commitTransaction();
+  }
+
+  int readBalance(DB db, String key, long[] balances, int i)
+  {
+    HashMap<String,ByteIterator> result=new HashMap<String,ByteIterator>();
+    int ret=db.read(table,key,Collections.singleton(BALANCE_FIELD),result);
+    if (ret!=0)
+    {
+      return ret;
+    }
+    ByteIterator balance=result.get(BALANCE_FIELD);
+    try
+    {
+      balances[i]=balance==null ? 0 : Long.parseLong(balance.toString().trim());
+    }
+    catch (NumberFormatException e)
+    {
+      return -1;
+    }
+    return 0;
+  }
+
+  int writeBalance(DB db, String key, long balance)
+  {
+    HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+    values.put(BALANCE_FIELD,new StringByteIterator(Long.toString(balance)));
+    return db.update(table,key,values);
+  }
+}
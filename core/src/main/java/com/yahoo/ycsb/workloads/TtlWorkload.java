@@ -0,0 +1,253 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.Client;
+import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.RandomByteIterator;
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.Workload;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.ConstantIntegerGenerator;
+import com.yahoo.ycsb.generator.CounterGenerator;
+import com.yahoo.ycsb.generator.ExponentialGenerator;
+import com.yahoo.ycsb.generator.IntegerGenerator;
+import com.yahoo.ycsb.generator.ScrambledZipfianGenerator;
+import com.yahoo.ycsb.generator.UniformIntegerGenerator;
+import com.yahoo.ycsb.measurements.Measurements;
+
+/**
+ * A cache-like workload of records written with a time to live, e.g. for Redis, Aerospike or
+ * Cassandra with TTLs, where the expiry, eviction and tombstones cost server capacity.
+ *
+ * Every write sets all the fields of a record and a TTL drawn from ttl.distribution. Writing a
+ * record expected to have expired inserts it again, writing a live one updates it. The workload
+ * remembers when every record it wrote is due to expire, and measures each read by what it
+ * expects to find:
+ * <UL>
+ * <LI><b>READ-LIVE</b>: the record had not expired when the read started
+ * <LI><b>READ-EXPIRED</b>: the record had expired, with some grace for clocks and expiry
+ * granularity; "not found" return codes here are expected misses, not errors
+ * <LI><b>READ-UNCERTAIN</b>: the read raced the expiry, or the record was not written during
+ * this run, e.g. only loaded
+ * </ul>
+ * The READ, INSERT and UPDATE operations are measured as usual by the DB wrapper.
+ *
+ * Properties to control the client:
+ * <UL>
+ * <LI><b>recordcount</b>: the number of records
+ * <LI><b>readproportion</b>: the proportion of reads, the other operations write (default: 0.8)
+ * <LI><b>requestdistribution</b>: how records are chosen, uniform or zipfian (default: uniform)
+ * <LI><b>ttl</b>: the average time to live in seconds (default: 60)
+ * <LI><b>ttl.distribution</b>: constant, uniform between 1 and twice ttl, or exponential (default: constant)
+ * <LI><b>ttl.grace</b>: the milliseconds after its expiry before a record is expected to be gone (default: 1000)
+ * <LI><b>fieldcount</b>: the number of fields in a record (default: 10)
+ * <LI><b>fieldlength</b>: the size of each field (default: 100)
+ * <LI><b>table</b>: the name of the table (default: usertable)
+ * </ul>
+ */
+public class TtlWorkload extends Workload
+{
+  public static final String READ_PROPORTION_PROPERTY_DEFAULT="0.8";
+
+  public static final String TTL_PROPERTY="ttl";
+  public static final String TTL_PROPERTY_DEFAULT="60";
+
+  public static final String TTL_DISTRIBUTION_PROPERTY="ttl.distribution";
+  public static final String TTL_DISTRIBUTION_PROPERTY_DEFAULT="constant";
+
+  public static final String TTL_GRACE_PROPERTY="ttl.grace";
+  public static final String TTL_GRACE_PROPERTY_DEFAULT="1000";
+
+  String table;
+  int recordcount;
+  int fieldcount;
+  int fieldlength;
+  double readproportion;
+  long grace;
+
+  IntegerGenerator keychooser;
+  IntegerGenerator ttlgenerator;
+  CounterGenerator insertsequence;
+
+  /** The time (System.currentTimeMillis()) the write of every record started plus its TTL, 0 if not written. */
+  AtomicLongArray liveuntil;
+
+  /** The time the write of every record was acknowledged plus its TTL and the grace. */
+  AtomicLongArray goneafter;
+
+  KeyEncoder keyencoder;
+
+  Measurements _measurements;
+
+  @Override
+  public void init(Properties p) throws WorkloadException
+  {
+    table=p.getProperty(CoreWorkload.TABLENAME_PROPERTY,CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
+    recordcount=Integer.parseInt(p.getProperty(Client.RECORD_COUNT_PROPERTY,Client.DEFAULT_RECORD_COUNT));
+    if (recordcount<=0)
+    {
+      throw new WorkloadException(Client.RECORD_COUNT_PROPERTY+" must be larger than 0");
+    }
+    fieldcount=Integer.parseInt(p.getProperty(CoreWorkload.FIELD_COUNT_PROPERTY,CoreWorkload.FIELD_COUNT_PROPERTY_DEFAULT));
+    fieldlength=Integer.parseInt(p.getProperty(CoreWorkload.FIELD_LENGTH_PROPERTY,CoreWorkload.FIELD_LENGTH_PROPERTY_DEFAULT));
+    readproportion=Double.parseDouble(p.getProperty(CoreWorkload.READ_PROPORTION_PROPERTY,READ_PROPORTION_PROPERTY_DEFAULT));
+    grace=Long.parseLong(p.getProperty(TTL_GRACE_PROPERTY,TTL_GRACE_PROPERTY_DEFAULT));
+
+    String requestdistrib=p.getProperty(CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY,CoreWorkload.REQUEST_DISTRIBUTION_PROPERTY_DEFAULT);
+    if (requestdistrib.equals("uniform"))
+    {
+      keychooser=new UniformIntegerGenerator(0,recordcount-1);
+    }
+    else if (requestdistrib.equals("zipfian"))
+    {
+      keychooser=new ScrambledZipfianGenerator(recordcount);
+    }
+    else
+    {
+      throw new WorkloadException("Unknown request distribution \""+requestdistrib+"\"");
+    }
+
+    int ttl=Integer.parseInt(p.getProperty(TTL_PROPERTY,TTL_PROPERTY_DEFAULT));
+    if (ttl<=0)
+    {
+      throw new WorkloadException(TTL_PROPERTY+" must be larger than 0");
+    }
+    String ttldistrib=p.getProperty(TTL_DISTRIBUTION_PROPERTY,TTL_DISTRIBUTION_PROPERTY_DEFAULT);
+    if (ttldistrib.equals("constant"))
+    {
+      ttlgenerator=new ConstantIntegerGenerator(ttl);
+    }
+    else if (ttldistrib.equals("uniform"))
+    {
+      ttlgenerator=new UniformIntegerGenerator(1,2*ttl);
+    }
+    else if (ttldistrib.equals("exponential"))
+    {
+      ttlgenerator=new ExponentialGenerator(ttl);
+    }
+    else
+    {
+      throw new WorkloadException("Unknown "+TTL_DISTRIBUTION_PROPERTY+" \""+ttldistrib+"\"");
+    }
+
+    liveuntil=new AtomicLongArray(recordcount);
+    goneafter=new AtomicLongArray(recordcount);
+    insertsequence=new CounterGenerator(Integer.parseInt(p.getProperty(INSERT_START_PROPERTY,INSERT_START_PROPERTY_DEFAULT)));
+    keyencoder=KeyEncoder.create(p);
+    _measurements=Measurements.getMeasurements();
+  }
+
+  String buildKeyName(int keynum)
+  {
+    return keyencoder.encode(Utils.hash(keynum));
+  }
+
+  HashMap<String,ByteIterator> buildValues()
+  {
+    HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+    for (int i=0; i<fieldcount; i++)
+    {
+      values.put("field"+i,new RandomByteIterator(fieldlength));
+    }
+    return values;
+  }
+
+  /**
+   * The next TTL, at least one second: a TTL of 0 means no expiry to some stores.
+   */
+  int nextTtl()
+  {
+    return Math.max(1,ttlgenerator.nextInt());
+  }
+
+  @Override
+  public boolean doInsert(DB db, Object threadstate)
+  {
+    int keynum=insertsequence.nextInt();
+    return write(db,keynum,true)==0;
+  }
+
+  @Override
+  public boolean doTransaction(DB db, Object threadstate)
+  {
+    int keynum=keychooser.nextInt();
+    if (Utils.random().nextDouble()<readproportion)
+    {
+      doRead(db,keynum);
+    }
+    else
+    {
+      // a record gone for sure is inserted again, the others are updated
+      long gone=goneafter.get(keynum);
+      write(db,keynum,gone!=0 && System.currentTimeMillis()>gone);
+    }
+    return true;
+  }
+
+  int write(DB db, int keynum, boolean insert)
+  {
+    int ttl=nextTtl();
+    HashMap<String,ByteIterator> values=buildValues();
+    long st=System.currentTimeMillis();
+    int ret=insert ? db.insert(table,buildKeyName(keynum),values,ttl) : db.update(table,buildKeyName(keynum),values,ttl);
+    long en=System.currentTimeMillis();
+    if (ret==0 && keynum<recordcount)
+    {
+      liveuntil.set(keynum,st+ttl*1000L);
+      goneafter.set(keynum,en+ttl*1000L+grace);
+    }
+    return ret;
+  }
+
+  void doRead(DB db, int keynum)
+  {
+    long live=liveuntil.get(keynum);
+    long gone=goneafter.get(keynum);
+    HashMap<String,ByteIterator> result=new HashMap<String,ByteIterator>();
+
+    long ist=_measurements.getIntendedtartTimeNs();
+    long stms=System.currentTimeMillis();
+    long st=System.nanoTime();
+    int ret=db.read(table,buildKeyName(keynum),null,result);
+    long en=System.nanoTime();
+    long enms=System.currentTimeMillis();
+
+    String operation;
+    if (live!=0 && enms<live)
+    {
+      operation="READ-LIVE";
+    }
+    else if (gone!=0 && stms>gone)
+    {
+      operation="READ-EXPIRED";
+    }
+    else
+    {
+      operation="READ-UNCERTAIN";
+    }
+    _measurements.measure(operation,(int)((en-st)/1000));
+    _measurements.measureIntended(operation,(int)((en-ist)/1000));
+    _measurements.reportReturnCode(operation,ret);
+  }
+}
@@ -0,0 +1,189 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Properties;
+
+import com.yahoo.ycsb.ByteIterator;
+import com.yahoo.ycsb.StringByteIterator;
+import com.yahoo.ycsb.WorkloadException;
+import com.yahoo.ycsb.generator.ConstantIntegerGenerator;
+import com.yahoo.ycsb.generator.IntegerGenerator;
+import com.yahoo.ycsb.generator.UniformIntegerGenerator;
+import com.yahoo.ycsb.generator.ZipfianGenerator;
+
+/**
+ * A CoreWorkload of wide, sparse records: out of fieldcount possible columns (thousands, say),
+ * every record fills only widerow.fillcount of them, chosen with a skew so that a few columns are
+ * present in most records and most columns in few. Reads and updates touch a chosen number of
+ * columns, which may be missing from the record, as with column families of HBase, Cassandra or
+ * Accumulo. With a large fill count, records also reach the row size limits of the stores.
+ *
+ * All the properties of CoreWorkload apply, with the defaults below changed. Properties to control
+ * the client:
+ * <UL>
+ * <LI><b>fieldcount</b>: the number of possible columns (default: 5000)
+ * <LI><b>widerow.fillcount</b>: the average number of columns filled per record (default: 100)
+ * <LI><b>widerow.fillcountdistribution</b>: the distribution of the filled columns per record,
+ * constant or uniform between 1 and twice the fill count (default: constant)
+ * <LI><b>widerow.fielddistribution</b>: which columns are filled, read and updated, zipfian or uniform (default: zipfian)
+ * <LI><b>widerow.readfieldcount</b>: the number of columns of a read or scan, unless readallfields (default: 10)
+ * <LI><b>widerow.updatefieldcount</b>: the number of columns of an update, unless writeallfields (default: 10)
+ * </ul>
+ */
+public class WideRowWorkload extends CoreWorkload
+{
+  public static final String FIELD_COUNT_PROPERTY_DEFAULT="5000";
+
+  public static final String FILL_COUNT_PROPERTY="widerow.fillcount";
+  public static final String FILL_COUNT_PROPERTY_DEFAULT="100";
+
+  public static final String FILL_COUNT_DISTRIBUTION_PROPERTY="widerow.fillcountdistribution";
+  public static final String FILL_COUNT_DISTRIBUTION_PROPERTY_DEFAULT="constant";
+
+  public static final String FIELD_DISTRIBUTION_PROPERTY="widerow.fielddistribution";
+  public static final String FIELD_DISTRIBUTION_PROPERTY_DEFAULT="zipfian";
+
+  public static final String READ_FIELD_COUNT_PROPERTY="widerow.readfieldcount";
+  public static final String READ_FIELD_COUNT_PROPERTY_DEFAULT="10";
+
+  public static final String UPDATE_FIELD_COUNT_PROPERTY="widerow.updatefieldcount";
+  public static final String UPDATE_FIELD_COUNT_PROPERTY_DEFAULT="10";
+
+  IntegerGenerator fillcountgenerator;
+  IntegerGenerator columnchooser;
+  int readfieldcount;
+  int updatefieldcount;
+
+  @Override
+  public void init(Properties p) throws WorkloadException
+  {
+    if (p.getProperty(FIELD_COUNT_PROPERTY)==null)
+    {
+      p.setProperty(FIELD_COUNT_PROPERTY,FIELD_COUNT_PROPERTY_DEFAULT);
+    }
+    super.init(p);
+
+    int fillcount=Math.min(fieldcount,Integer.parseInt(p.getProperty(FILL_COUNT_PROPERTY,FILL_COUNT_PROPERTY_DEFAULT)));
+    String fillcountdistribution=p.getProperty(FILL_COUNT_DISTRIBUTION_PROPERTY,FILL_COUNT_DISTRIBUTION_PROPERTY_DEFAULT);
+    if (fillcountdistribution.equals("constant"))
+    {
+      fillcountgenerator=new ConstantIntegerGenerator(fillcount);
+    }
+    else if (fillcountdistribution.equals("uniform"))
+    {
+      fillcountgenerator=new UniformIntegerGenerator(1,Math.min(fieldcount,2*fillcount));
+    }
+    else
+    {
+      throw new WorkloadException("Unknown "+FILL_COUNT_DISTRIBUTION_PROPERTY+" \""+fillcountdistribution+"\"");
+    }
+
+    String fielddistribution=p.getProperty(FIELD_DISTRIBUTION_PROPERTY,FIELD_DISTRIBUTION_PROPERTY_DEFAULT);
+    if (fielddistribution.equals("zipfian"))
+    {
+      columnchooser=new ZipfianGenerator(0,fieldcount-1);
+    }
+    else if (fielddistribution.equals("uniform"))
+    {
+      columnchooser=new UniformIntegerGenerator(0,fieldcount-1);
+    }
+    else
+    {
+      throw new WorkloadException("Unknown "+FIELD_DISTRIBUTION_PROPERTY+" \""+fielddistribution+"\"");
+    }
+
+    readfieldcount=Math.min(fieldcount,Integer.parseInt(p.getProperty(READ_FIELD_COUNT_PROPERTY,READ_FIELD_COUNT_PROPERTY_DEFAULT)));
+    updatefieldcount=Math.min(fieldcount,Integer.parseInt(p.getProperty(UPDATE_FIELD_COUNT_PROPERTY,UPDATE_FIELD_COUNT_PROPERTY_DEFAULT)));
+  }
+
+  /**
+   * Choose count distinct columns. Once the skewed chooser keeps hitting columns already chosen,
+   * the rest are taken in order from a random column, so large counts finish quickly.
+   */
+  HashSet<String> chooseFields(int count)
+  {
+    HashSet<String> fields=new HashSet<String>();
+    int attempts=0;
+    while (fields.size()<count && attempts<4*count)
+    {
+      fields.add(fieldnames.get(columnchooser.nextInt()));
+      attempts++;
+    }
+    int next=Integer.parseInt(fieldchooser.nextString());
+    while (fields.size()<count)
+    {
+      fields.add(fieldnames.get(next));
+      next=(next+1)%fieldcount;
+    }
+    return fields;
+  }
+
+  HashMap<String,ByteIterator> buildValues(String key, HashSet<String> fields)
+  {
+    HashMap<String,ByteIterator> values=new HashMap<String,ByteIterator>();
+    for (String fieldkey : fields)
+    {
+      ByteIterator data;
+      if (dataintegrity)
+      {
+        data=new StringByteIterator(buildDeterministicValue(key,fieldkey));
+      }
+      else
+      {
+        //fill with random data
+        data=buildRandomValue(fieldlengthgenerator.nextInt());
+      }
+      values.put(fieldkey,data);
+    }
+    return values;
+  }
+
+  /**
+   * Reads widerow.readfieldcount columns, or all of them if readallfields.
+   */
+  @Override
+  protected HashSet<String> buildReadFields()
+  {
+    if (readallfields)
+    {
+      return null;
+    }
+    return chooseFields(readfieldcount);
+  }
+
+  /**
+   * Updates widerow.updatefieldcount columns.
+   */
+  @Override
+  protected HashMap<String,ByteIterator> buildSingleValue(String key)
+  {
+    return buildValues(key,chooseFields(updatefieldcount));
+  }
+
+  /**
+   * Fills a sparse subset of the columns.
+   */
+  @Override
+  protected HashMap<String,ByteIterator> buildValues(String key)
+  {
+    return buildValues(key,chooseFields(fillcountgenerator.nextInt()));
+  }
+}
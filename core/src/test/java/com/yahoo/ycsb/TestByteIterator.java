@@ -1,5 +1,8 @@
 package com.yahoo.ycsb;
 
+import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
+
 import org.testng.annotations.Test;
 import static org.testng.AssertJUnit.*;
 
@@ -19,4 +22,63 @@ public class TestByteIterator {
     assertFalse(itor.hasNext());
     assertEquals(0, itor.bytesLeft());
   }
+
+  @Test
+  public void testBlobByteIterator() {
+    int size = 3 * BlobByteIterator.BLOCK_SIZE + 7;
+    ByteIterator itor = new BlobByteIterator(size);
+    assertEquals(size, itor.bytesLeft());
+    byte[] buf = new byte[size];
+    assertEquals(size, itor.nextBuf(buf, 0));
+    assertFalse(itor.hasNext());
+    for (byte b : buf) {
+      assertTrue(b >= ' ' && b <= '~');
+    }
+
+    itor = new BlobByteIterator(size);
+    assertEquals(size, itor.toArray().length);
+    assertEquals(0, itor.bytesLeft());
+  }
+
+  @Test
+  public void testPooledByteIterator() {
+    ValuePool pool = new ValuePool(1000, 2);
+    ByteIterator itor = pool.next(300);
+    assertEquals(300, itor.bytesLeft());
+    itor.nextByte();
+    byte[] buf = itor.toArray();
+    assertEquals(299, buf.length);
+    assertFalse(itor.hasNext());
+    for (byte b : buf) {
+      assertTrue(b >= 'A' && b <= 'D');
+    }
+
+    // longer than the slab, so it wraps around
+    itor = pool.next(2500);
+    buf = new byte[2500];
+    assertEquals(2500, itor.nextBuf(buf, 0));
+    assertEquals(0, itor.bytesLeft());
+
+    PooledByteIterator pooled = pool.next(1000);
+    ByteBuffer view = pooled.asByteBuffer();
+    assertTrue(view.isDirect());
+    assertEquals(1000, view.remaining());
+    assertFalse(pooled.hasNext());
+  }
+
+  @Test
+  public void testInputStreamByteIteratorNextBuf() {
+    byte[] data = new byte[1000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (byte)i;
+    }
+    ByteIterator itor = new InputStreamByteIterator(new ByteArrayInputStream(data), data.length);
+    assertEquals(data[0], itor.nextByte());
+    byte[] buf = new byte[600];
+    assertEquals(600, itor.nextBuf(buf, 0));
+    assertEquals(data[600], buf[599]);
+    assertEquals(399, itor.bytesLeft());
+    assertEquals(399, itor.nextBuf(buf, 0));
+    assertFalse(itor.hasNext());
+  }
 }
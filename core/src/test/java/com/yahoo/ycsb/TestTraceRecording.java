@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Vector;
+
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class TestTraceRecording {
+    static class NotFoundDB extends DB {
+        public int read(String table, String key, Set<String> fields, HashMap<String, ByteIterator> result) {
+            return 1;
+        }
+        public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+            return 0;
+        }
+        public int update(String table, String key, HashMap<String, ByteIterator> values) {
+            return 0;
+        }
+        public int insert(String table, String key, HashMap<String, ByteIterator> values) {
+            // consume the values, as a real DB does
+            for (ByteIterator value : values.values()) {
+                value.toArray();
+            }
+            return 0;
+        }
+        public int delete(String table, String key) {
+            return 0;
+        }
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        File file = File.createTempFile("trace", ".trc");
+        file.deleteOnExit();
+        Properties p = new Properties();
+        p.setProperty(TraceRecorderDB.FILE_PROPERTY, file.getPath());
+        // small blocks, so the records span several of them
+        p.setProperty(TraceRecorderDB.BLOCK_SIZE_PROPERTY, "100");
+
+        TraceRecorderDB db = new TraceRecorderDB(new NotFoundDB());
+        db.setProperties(p);
+        db.init();
+        HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+        values.put("field0", new RandomByteIterator(42));
+        db.insert("usertable", "user1", values);
+        db.read("usertable", "user2", null, new HashMap<String, ByteIterator>());
+        // too long for the format, dropped
+        char[] longkey = new char[Short.MAX_VALUE + 1];
+        Arrays.fill(longkey, 'k');
+        db.delete("usertable", new String(longkey));
+        db.scan("usertable", "user3", 7, null, new Vector<HashMap<String, ByteIterator>>());
+        db.cleanup();
+
+        TraceRecording.Reader reader = new TraceRecording.Reader(file.getPath());
+        TraceRecording.Record r = reader.next();
+        assertEquals(TraceRecording.INSERT, r.op);
+        assertEquals("user1", r.key);
+        assertEquals("field0", r.fields[0]);
+        assertEquals(42, r.sizes[0]);
+        assertTrue(r.end >= r.start);
+
+        r = reader.next();
+        assertEquals(TraceRecording.READ, r.op);
+        assertEquals(1, r.code);
+        assertNull(r.fields);
+
+        r = reader.next();
+        assertEquals(TraceRecording.SCAN, r.op);
+        assertEquals("usertable", r.table);
+        assertEquals(7, r.count);
+
+        assertNull(reader.next());
+        reader.close();
+    }
+}
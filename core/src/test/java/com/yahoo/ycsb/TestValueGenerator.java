@@ -0,0 +1,64 @@
+package com.yahoo.ycsb;
+
+import java.util.Properties;
+import java.util.zip.Deflater;
+
+import org.testng.annotations.Test;
+import static org.testng.AssertJUnit.*;
+
+public class TestValueGenerator {
+  static double compressionRatio(byte[] data) {
+    Deflater deflater = new Deflater();
+    deflater.setInput(data);
+    deflater.finish();
+    byte[] buf = new byte[data.length * 2 + 64];
+    int n = deflater.deflate(buf);
+    deflater.end();
+    return (double)data.length / n;
+  }
+
+  static ValueGenerator create(String name, String property, String value) throws WorkloadException {
+    Properties p = new Properties();
+    p.setProperty(ValueGenerator.VALUE_GENERATOR_PROPERTY, name);
+    if (property != null) {
+      p.setProperty(property, value);
+    }
+    return ValueGenerator.create(p);
+  }
+
+  @Test
+  public void testCompressible() throws WorkloadException {
+    ValueGenerator generator = create("compressible", ValueGenerator.VALUE_COMPRESSIBILITY_PROPERTY, "4");
+    byte[] value = generator.next(10000).toArray();
+    assertEquals(10000, value.length);
+    double ratio = compressionRatio(value);
+    assertTrue("ratio " + ratio, ratio > 3.5 && ratio < 8);
+
+    value = create("random", null, null).next(10000).toArray();
+    assertTrue(compressionRatio(value) < 1.5);
+  }
+
+  @Test
+  public void testText() throws WorkloadException {
+    ValueGenerator generator = create("text", ValueGenerator.VALUE_VOCABULARY_PROPERTY, "1000");
+    byte[] value = generator.next(50000).toArray();
+    assertEquals(50000, value.length);
+    for (byte b : value) {
+      assertTrue(b == ' ' || (b >= 'a' && b <= 'z'));
+    }
+    assertTrue(compressionRatio(value) > 2);
+  }
+
+  @Test
+  public void testPoolOfText() throws WorkloadException {
+    ValuePool pool = new ValuePool(100000, create("text", null, null), 1000);
+    byte[] value = pool.next(5000).toArray();
+    assertEquals(5000, value.length);
+    assertTrue(compressionRatio(value) > 1.5);
+  }
+
+  @Test(expectedExceptions = WorkloadException.class)
+  public void testUnknown() throws WorkloadException {
+    create("nosuchgenerator", null, null);
+  }
+}
@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.generator;
+
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+
+public class TestShiftingGenerators {
+    private static final long MS = 1000000L;
+
+    @Test
+    public void testSlidingHotspotMoves() {
+        ShiftingHotspotIntegerGenerator gen = new ShiftingHotspotIntegerGenerator(0, 999, 0.1, 1.0, 1, false, 1000);
+        // a quarter period later the hot region has moved by a quarter of the interval
+        assertEquals(250, gen.regionStart(0, 250 * MS) - gen.regionStart(0, 0));
+        for (int i = 0; i < 1000; i++) {
+            int value = gen.nextInt(250 * MS);
+            assertTrue(value >= 250 && value < 350);
+        }
+    }
+
+    @Test
+    public void testSlidingHotspotWraps() {
+        ShiftingHotspotIntegerGenerator gen = new ShiftingHotspotIntegerGenerator(10, 109, 0.2, 1.0, 2, false, 1000);
+        for (int i = 0; i < 1000; i++) {
+            int value = gen.nextInt(950 * MS);
+            assertFalse(value < 10);
+            assertFalse(value > 109);
+            // regions start at 95 and 45, ten items each
+            int offset = value - 10;
+            assertTrue(offset >= 95 || offset < 5 || (offset >= 45 && offset < 55));
+        }
+    }
+
+    @Test
+    public void testShufflingHotspotStableWithinPeriod() {
+        ShiftingHotspotIntegerGenerator gen = new ShiftingHotspotIntegerGenerator(0, 99999, 0.01, 1.0, 3, true, 1000);
+        boolean moved = false;
+        for (int region = 0; region < 3; region++) {
+            assertEquals(gen.regionStart(region, 100 * MS), gen.regionStart(region, 900 * MS));
+            moved |= gen.regionStart(region, 900 * MS) != gen.regionStart(region, 1100 * MS);
+        }
+        assertTrue(moved);
+    }
+
+    @Test
+    public void testDiurnalFollowsTheDay() {
+        DiurnalIntegerGenerator gen = new DiurnalIntegerGenerator(0, 399, 4, 1.0, 1000);
+        int[] counts = new int[4];
+        for (int i = 0; i < 10000; i++) {
+            int value = gen.nextInt(0);
+            assertFalse(value < 0);
+            assertFalse(value > 399);
+            counts[value / 100]++;
+        }
+        // at the start of the day the first cohort peaks and the third one is asleep
+        assertEquals(0, counts[2]);
+        assertTrue(counts[0] > counts[1]);
+        assertTrue(counts[0] > counts[3]);
+        // half a day later it is the other way round
+        for (int i = 0; i < 1000; i++) {
+            assertTrue(gen.nextInt(500 * MS) / 100 != 0);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class TestAckedVersions {
+    @Test
+    public void testLoneWrite() {
+        AckedVersions versions = new AckedVersions(10);
+        long before = versions.state(3);
+        assertEquals(0, versions.version(3, before));
+        versions.begin(3);
+        versions.end(3, 12, true);
+        assertEquals(12, versions.version(3, versions.state(3)));
+        // a failed write may or may not have been applied
+        versions.begin(3);
+        versions.end(3, 13, false);
+        assertEquals(0, versions.version(3, versions.state(3)));
+    }
+
+    @Test
+    public void testVersionsOutOfOrder() {
+        AckedVersions versions = new AckedVersions(10);
+        // B builds version 11 and A version 12, then A is written and acknowledged alone
+        versions.begin(3);
+        versions.end(3, 12, true);
+        long before = versions.state(3);
+        assertEquals(12, versions.version(3, before));
+        // B is written last, during a read that must not check against A
+        versions.begin(3);
+        assertEquals(0, versions.version(3, before));
+        versions.end(3, 11, true);
+        assertEquals(0, versions.version(3, before));
+        // the reads after B check against B
+        assertEquals(11, versions.version(3, versions.state(3)));
+    }
+
+    @Test
+    public void testOverlappingWrites() {
+        AckedVersions versions = new AckedVersions(10);
+        versions.begin(3);
+        versions.begin(3);
+        versions.end(3, 12, true);
+        assertEquals(0, versions.version(3, versions.state(3)));
+        versions.end(3, 11, true);
+        // either write may have been applied last
+        assertEquals(0, versions.version(3, versions.state(3)));
+        versions.begin(3);
+        versions.end(3, 13, true);
+        assertEquals(13, versions.version(3, versions.state(3)));
+    }
+
+    /**
+     * Writers apply versions taken from a shared counter in whatever order they get to them, as a
+     * store may apply overlapping writes. No read may see a version older than the acknowledged
+     * one it checks against.
+     */
+    @Test
+    public void testConcurrentWritesAreNotLost() throws InterruptedException {
+        final int keys = 4;
+        final AckedVersions versions = new AckedVersions(keys);
+        final AtomicLongArray store = new AtomicLongArray(keys);
+        final AtomicLong nextversion = new AtomicLong();
+        final AtomicLong checked = new AtomicLong();
+        final AtomicLong lost = new AtomicLong();
+        Thread[] threads = new Thread[6];
+        for (int t = 0; t < threads.length; t++) {
+            final boolean writer = t < 4;
+            threads[t] = new Thread() {
+                public void run() {
+                    for (int i = 0; i < 100000; i++) {
+                        int key = i % keys;
+                        if (writer) {
+                            long version = nextversion.incrementAndGet();
+                            if (i % 7 == 0) {
+                                // stall between building the value and writing it
+                                Thread.yield();
+                            }
+                            versions.begin(key);
+                            store.set(key, version);
+                            versions.end(key, version, true);
+                        } else {
+                            long before = versions.state(key);
+                            long read = store.get(key);
+                            long acked = versions.version(key, before);
+                            if (acked != 0) {
+                                checked.incrementAndGet();
+                                if (read < acked) {
+                                    lost.incrementAndGet();
+                                }
+                            }
+                        }
+                    }
+                }
+            };
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(0, lost.get());
+        assertTrue(checked.get() > 0);
+    }
+
+    @Test
+    public void testLostUpdate() {
+        AckedVersions versions = new AckedVersions(10);
+        long stored = 11;
+        versions.begin(3);
+        versions.end(3, 12, true);
+        // the store acknowledged 12 but still returns 11
+        assertTrue(stored < versions.version(3, versions.state(3)));
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class TestIntegrityValues {
+    @Test
+    public void testDeterministic() {
+        String value = IntegrityValues.build("user1", "field0", 42, 100);
+        assertEquals(100, value.length());
+        assertEquals(value, IntegrityValues.build("user1", "field0", 42, 100));
+        assertFalse(value.equals(IntegrityValues.build("user1", "field0", 43, 100)));
+        assertFalse(value.equals(IntegrityValues.build("user2", "field0", 42, 100)));
+        assertEquals(42, IntegrityValues.versionOf(value));
+    }
+
+    @Test
+    public void testVerify() {
+        for (int length : new int[] {0, 31, 32, 33, 41, 1000, 100000}) {
+            String value = IntegrityValues.build("user1", "field3", 7, length);
+            assertEquals(Math.max(length, IntegrityValues.MIN_LENGTH), value.length());
+            assertEquals(7, IntegrityValues.verify(value, "user1", "field3"));
+            assertEquals(7, IntegrityValues.check(value));
+            assertEquals(-1, IntegrityValues.verify(value, "user1", "field4"));
+            assertEquals(-1, IntegrityValues.verify(value, "user2", "field3"));
+        }
+    }
+
+    @Test
+    public void testCorruption() {
+        String value = IntegrityValues.build("user1", "field0", 7, 200);
+        char[] chars = value.toCharArray();
+        chars[150] = chars[150] == 'A' ? 'B' : 'A';
+        String corrupt = new String(chars);
+        assertEquals(-1, IntegrityValues.verify(corrupt, "user1", "field0"));
+        assertEquals(-1, IntegrityValues.check(corrupt));
+        assertEquals(-1, IntegrityValues.check(value.substring(0, 199)));
+        assertEquals(-1, IntegrityValues.check(null));
+        assertTrue(IntegrityValues.check("x" + value.substring(1)) < 0);
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.UUID;
+
+import org.testng.annotations.Test;
+
+import com.yahoo.ycsb.Utils;
+import com.yahoo.ycsb.WorkloadException;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+
+public class TestKeyEncoder {
+    private static KeyEncoder create(String encoding, String... props) throws WorkloadException {
+        Properties p = new Properties();
+        p.setProperty(KeyEncoder.KEY_ENCODING_PROPERTY, encoding);
+        for (int i = 0; i < props.length; i += 2) {
+            p.setProperty(props[i], props[i + 1]);
+        }
+        return KeyEncoder.create(p);
+    }
+
+    @Test
+    public void testDefaultMatchesOriginalKeys() throws WorkloadException {
+        KeyEncoder encoder = create("default");
+        for (long keynum : new long[] {0, 9, 10, 12345, Utils.hash(42), Long.MAX_VALUE}) {
+            assertEquals("user" + keynum, encoder.encode(keynum));
+        }
+    }
+
+    @Test
+    public void testFixedWidth() throws WorkloadException {
+        KeyEncoder encoder = create("fixed", "keyprefix", "k", "keydigits", "6");
+        assertEquals("k000000", encoder.encode(0));
+        assertEquals("k012345", encoder.encode(12345));
+        assertTrue(encoder.encode(999).compareTo(encoder.encode(1000)) < 0);
+        assertEquals(19 + 4, create("fixed").encode(Long.MAX_VALUE).length());
+    }
+
+    @Test
+    public void testBinary() throws WorkloadException {
+        String key = create("binary").encode(0x0102030405FF0708L);
+        assertEquals(8, key.length());
+        assertEquals(1, key.charAt(0));
+        assertEquals(0xff, key.charAt(5));
+        assertEquals(8, key.charAt(7));
+    }
+
+    @Test
+    public void testUuid() throws WorkloadException {
+        KeyEncoder encoder = create("uuid");
+        String key = encoder.encode(12345);
+        // parses as a UUID, and keeps the number in its low bits
+        assertEquals(12345, UUID.fromString(key).getLeastSignificantBits());
+        assertEquals(key, UUID.fromString(key).toString());
+        assertTrue(!key.equals(encoder.encode(12346)));
+    }
+
+    @Test
+    public void testTenant() throws WorkloadException {
+        KeyEncoder encoder = create("tenant", "keytenants", "100");
+        assertEquals("user00:0", encoder.encode(0));
+        assertEquals("user42:123", encoder.encode(12342));
+        assertEquals("t7:5", create("tenant", "keyprefix", "t", "keytenants", "10").encode(57));
+    }
+
+    @Test(expectedExceptions = WorkloadException.class)
+    public void testUnknownEncoding() throws WorkloadException {
+        create("nosuchencoding");
+    }
+
+    @Test
+    public void testSplitKeySpace() {
+        String start = "user6284781860667377211";
+        List<String> splits = KeyEncoder.splitKeySpace(start, 4);
+        assertEquals(4, splits.size());
+        assertEquals(start, splits.get(0));
+        for (int i = 1; i < splits.size(); i++) {
+            assertTrue(splits.get(i - 1).compareTo(splits.get(i)) < 0);
+        }
+        assertTrue(splits.get(3).compareTo("~") < 0);
+
+        splits = KeyEncoder.splitKeySpace("\u0000\u00ff", 3);
+        assertEquals(3, splits.size());
+        assertTrue(splits.get(0).compareTo(splits.get(1)) < 0);
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (c) 2015 Yahoo! Inc. All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you
+ * may not use this file except in compliance with the License. You
+ * may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or
+ * implied. See the License for the specific language governing
+ * permissions and limitations under the License. See accompanying
+ * LICENSE file.
+ */
+
+package com.yahoo.ycsb.workloads;
+
+import org.testng.annotations.Test;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertTrue;
+
+public class TestLiveKeySet {
+    @Test
+    public void testInitiallyLive() {
+        LiveKeySet keys = new LiveKeySet(200, 130);
+        assertTrue(keys.contains(0));
+        assertTrue(keys.contains(129));
+        assertFalse(keys.contains(130));
+        assertFalse(keys.contains(199));
+        // beyond the capacity keys are not tracked
+        assertTrue(keys.contains(200));
+    }
+
+    @Test
+    public void testAddRemove() {
+        LiveKeySet keys = new LiveKeySet(100, 100);
+        assertTrue(keys.remove(42));
+        assertFalse(keys.remove(42));
+        assertFalse(keys.contains(42));
+        assertTrue(keys.add(42));
+        assertFalse(keys.add(42));
+        assertTrue(keys.contains(42));
+    }
+
+    @Test
+    public void testNextWrapsAround() {
+        LiveKeySet keys = new LiveKeySet(300, 0);
+        assertEquals(-1, keys.next(0, 300));
+        keys.add(5);
+        keys.add(250);
+        assertEquals(5, keys.next(0, 300));
+        assertEquals(250, keys.next(6, 300));
+        assertEquals(5, keys.next(251, 300));
+        // keys at or above the limit are ignored
+        assertEquals(5, keys.next(6, 250));
+    }
+
+    @Test
+    public void testLargestCapacity() {
+        LiveKeySet keys = new LiveKeySet(Integer.MAX_VALUE, 1000);
+        assertEquals(Integer.MAX_VALUE, keys.capacity());
+        assertTrue(keys.contains(999));
+        assertFalse(keys.contains(Integer.MAX_VALUE - 1));
+        assertTrue(keys.add(Integer.MAX_VALUE - 1));
+        assertTrue(keys.contains(Integer.MAX_VALUE - 1));
+        assertEquals(Integer.MAX_VALUE - 1, keys.next(1000, Integer.MAX_VALUE));
+        assertEquals(0, keys.next(Integer.MAX_VALUE - 1, Integer.MAX_VALUE - 1));
+    }
+}
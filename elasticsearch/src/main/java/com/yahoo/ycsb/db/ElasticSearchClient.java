@@ -5,6 +5,7 @@ import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.StringByteIterator;
 import java.util.HashMap;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
@@ -22,6 +23,7 @@ import org.elasticsearch.common.xcontent.XContentBuilder;
 import static org.elasticsearch.common.xcontent.XContentFactory.*;
 import static org.elasticsearch.index.query.FilterBuilders.*;
 import static org.elasticsearch.index.query.QueryBuilders.*;
+import org.elasticsearch.index.query.FilterBuilder;
 import org.elasticsearch.index.query.RangeFilterBuilder;
 import org.elasticsearch.node.Node;
 import static org.elasticsearch.node.NodeBuilder.*;
@@ -293,4 +295,50 @@ public class ElasticSearchClient extends DB {
         }
         return 1;
     }
+
+    /**
+     * Query the documents by the value of a field, with a term filter for a
+     * single value or a range filter otherwise.
+     *
+     * @param table The name of the table
+     * @param field The field to filter on.
+     * @param lowvalue The lowest value of the field, inclusive.
+     * @param highvalue The highest value of the field, inclusive.
+     * @param limit The largest number of documents to return.
+     * @param fields The list of fields to read, or null for all of them
+     * @param result A Vector of HashMaps, where each HashMap is a set
+     * field/value pairs for one record
+     * @return Zero on success, a non-zero error code on error.
+     */
+    @Override
+    public int query(String table, String field, String lowvalue, String highvalue, int limit, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+        try {
+            final FilterBuilder filter = lowvalue.equals(highvalue)
+                    ? termFilter(field, lowvalue)
+                    : rangeFilter(field).gte(lowvalue).lte(highvalue);
+            final SearchResponse response = client.prepareSearch(indexKey)
+                    .setTypes(table)
+                    .setQuery(matchAllQuery())
+                    .setFilter(filter)
+                    .setSize(limit)
+                    .execute()
+                    .actionGet();
+
+            for (SearchHit hit : response.getHits()) {
+                final Map<String, Object> source = hit.getSource();
+                final HashMap<String, ByteIterator> entry = new HashMap<String, ByteIterator>();
+
+                for (String f : fields != null ? fields : source.keySet()) {
+                    entry.put(f, new StringByteIterator((String) source.get(f)));
+                }
+
+                result.add(entry);
+            }
+
+            return 0;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        return 1;
+    }
 }
@@ -134,4 +134,40 @@ public class ElasticSearchClientTest {
         int result = instance.scan(MOCK_TABLE, MOCK_KEY1, recordcount, fields, resultParam);
         assertEquals(expResult, result);
     }
+
+    /**
+     * Test of query method, of class ElasticSearchClient.
+     */
+    @Test
+    public void testQuery() throws InterruptedException {
+        System.out.println("query");
+        Set<String> fields = MOCK_DATA.keySet();
+        Vector<HashMap<String, ByteIterator>> resultParam = new Vector<HashMap<String, ByteIterator>>(10);
+        int expResult = 0;
+
+        //searches only see the records once the index is refreshed, which happens every second
+        int result = 0;
+        for (int i = 0; i < 50 && resultParam.isEmpty(); i++) {
+            Thread.sleep(100);
+            result = instance.query(MOCK_TABLE, "field3", "value3", "value3", 10, fields, resultParam);
+        }
+        assertEquals(expResult, result);
+        assertFalse(resultParam.isEmpty());
+        for (HashMap<String, ByteIterator> record : resultParam) {
+            assertEquals("value3", record.get("field3").toString());
+        }
+
+        resultParam.clear();
+        result = instance.query(MOCK_TABLE, "field1", "value0", "value2", 10, fields, resultParam);
+        assertEquals(expResult, result);
+        assertFalse(resultParam.isEmpty());
+        for (HashMap<String, ByteIterator> record : resultParam) {
+            assertEquals("value1", record.get("field1").toString());
+        }
+
+        resultParam.clear();
+        result = instance.query(MOCK_TABLE, "field1", "value5", "value9", 10, fields, resultParam);
+        assertEquals(expResult, result);
+        assertTrue(resultParam.isEmpty());
+    }
 }
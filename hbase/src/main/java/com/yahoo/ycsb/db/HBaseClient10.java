@@ -21,6 +21,7 @@ import com.google.common.base.Preconditions;
 import com.yahoo.ycsb.ByteArrayByteIterator;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.ScanConsumer;
 import com.yahoo.ycsb.measurements.Measurements;
 
 import org.apache.hadoop.conf.Configuration;
@@ -39,6 +40,7 @@ import org.apache.hadoop.hbase.client.Durability;
 import org.apache.hadoop.hbase.client.Get;
 import org.apache.hadoop.hbase.client.HTable;
 import org.apache.hadoop.hbase.client.Put;
+import org.apache.hadoop.hbase.client.RegionLocator;
 import org.apache.hadoop.hbase.client.Result;
 import org.apache.hadoop.hbase.client.ResultScanner;
 import org.apache.hadoop.hbase.client.Scan;
@@ -46,9 +48,11 @@ import org.apache.hadoop.hbase.client.Table;
 import org.apache.hadoop.hbase.util.Bytes;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.ConcurrentModificationException;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Random;
@@ -77,6 +81,11 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB
     public Table _table=null;
     public BufferedMutator _bufferedMutator=null;
 
+    // Every table used by this client stays open, so workloads spreading
+    // operations across several tables do not reopen them on each switch.
+    private final Map<String, Table> _tables = new HashMap<String, Table>();
+    private final Map<String, BufferedMutator> _bufferedMutators = new HashMap<String, BufferedMutator>();
+
     public String _columnFamily="";
     public byte _columnFamilyBytes[];
 
@@ -139,7 +148,9 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB
       // Terminate right now if table does not exist, since the client
       // will not propagate this error upstream once the workload
       // starts.
-      String table = com.yahoo.ycsb.workloads.CoreWorkload.table;
+      String table = getProperties().getProperty(
+          com.yahoo.ycsb.workloads.CoreWorkload.TABLENAME_PROPERTY,
+          com.yahoo.ycsb.workloads.CoreWorkload.TABLENAME_PROPERTY_DEFAULT);
       try
 	  {
 	      final TableName tableName = TableName.valueOf(table);
@@ -164,11 +175,11 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB
         Measurements _measurements = Measurements.getMeasurements();
         try {
             long st=System.nanoTime();
-            if (_bufferedMutator != null) {
-                _bufferedMutator.close();
+            for (BufferedMutator bufferedMutator : _bufferedMutators.values()) {
+                bufferedMutator.close();
             }
-            if (_table != null) {
-                _table.close();
+            for (Table table : _tables.values()) {
+                table.close();
             }
             long en=System.nanoTime();
             final String type = _clientSideBuffering ? "UPDATE" : "CLEANUP";
@@ -182,12 +193,18 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB
     public void getHTable(String table) throws IOException
     {
         final TableName tableName = TableName.valueOf(table);
-        this._table = this._connection.getTable(tableName);
+        if (!_tables.containsKey(table)) {
+            _tables.put(table, this._connection.getTable(tableName));
+        }
+        this._table = _tables.get(table);
         //suggestions from http://ryantwopointoh.blogspot.com/2009/01/performance-of-hbase-importing.html
         if (_clientSideBuffering) {
-            final BufferedMutatorParams p = new BufferedMutatorParams(tableName);
-            p.writeBufferSize(_writeBufferSize);
-            this._bufferedMutator = this._connection.getBufferedMutator(p);
+            if (!_bufferedMutators.containsKey(table)) {
+                final BufferedMutatorParams p = new BufferedMutatorParams(tableName);
+                p.writeBufferSize(_writeBufferSize);
+                _bufferedMutators.put(table, this._connection.getBufferedMutator(p));
+            }
+            this._bufferedMutator = _bufferedMutators.get(table);
         }
     }
 
@@ -261,6 +278,74 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB
         return Ok;
     }
 
+    /**
+     * Read several records with a single multi-get.
+     *
+     * @param table The name of the table
+     * @param keys The record keys of the records to read.
+     * @param fields The list of fields to read, or null for all of them
+     * @param results A List to which one HashMap of field/value pairs is added per key, in the order of keys
+     * @return Zero on success, a non-zero error code on error
+     */
+    @Override
+    public int batchRead(String table, List<String> keys, Set<String> fields, List<HashMap<String,ByteIterator>> results)
+    {
+        //if this is a "new" table, init HTable object.  Else, use existing one
+        if (!_tableName.equals(table)) {
+            _table = null;
+            try
+            {
+                getHTable(table);
+                _tableName = table;
+            }
+            catch (IOException e)
+            {
+                System.err.println("Error accessing HBase table: " + e);
+                return ServerError;
+            }
+        }
+
+        Result[] rs;
+        try
+        {
+            List<Get> gets = new ArrayList<Get>(keys.size());
+            for (String key : keys) {
+                Get g = new Get(Bytes.toBytes(key));
+                if (fields == null) {
+                    g.addFamily(_columnFamilyBytes);
+                } else {
+                    for (String field : fields) {
+                        g.addColumn(_columnFamilyBytes, Bytes.toBytes(field));
+                    }
+                }
+                gets.add(g);
+            }
+            rs = _table.get(gets);
+        }
+        catch (IOException e)
+        {
+            if (_debug) {
+                System.err.println("Error doing multi get: "+e);
+            }
+            return ServerError;
+        }
+
+        int ret = Ok;
+        for (Result r : rs) {
+            HashMap<String,ByteIterator> result = new HashMap<String,ByteIterator>();
+            if (r.isEmpty()) {
+                ret = NoMatchingRecord;
+            } else {
+                for (Cell c : r.listCells()) {
+                    result.put(Bytes.toString(CellUtil.cloneQualifier(c)),
+                            new ByteArrayByteIterator(CellUtil.cloneValue(c)));
+                }
+            }
+            results.add(result);
+        }
+        return ret;
+    }
+
     /**
      * Perform a range scan for a set of records in the database. Each field/value pair from the result will be stored in a HashMap.
      *
@@ -273,6 +358,79 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB
      */
     @Override
     public int scan(String table, String startkey, int recordcount, Set<String> fields, Vector<HashMap<String,ByteIterator>> result)
+    {
+        return streamScan(table, startkey, recordcount, fields, collectInto(result));
+    }
+
+    /**
+     * Split a range at the start keys of the regions after startkey, so that each segment of a
+     * parallel scan reads from one region. Each segment then reads its share of the scan length
+     * from the start of its region: the segments are spread over the regions rather than
+     * splitting one contiguous range.
+     *
+     * @param table The name of the table
+     * @param startkey The record key of the first record of the range.
+     * @param segments The largest number of segments wanted.
+     * @return startkey and the start keys of up to segments-1 following regions
+     */
+    @Override
+    public List<String> splitRange(String table, String startkey, int segments)
+    {
+        List<String> splits = new ArrayList<String>(segments);
+        splits.add(startkey);
+        RegionLocator locator = null;
+        try
+        {
+            locator = _connection.getRegionLocator(TableName.valueOf(table));
+            byte[] start = Bytes.toBytes(startkey);
+            for (byte[] regionStart : locator.getStartKeys())
+            {
+                if (splits.size() >= segments)
+                {
+                    break;
+                }
+                if (Bytes.compareTo(regionStart, start) > 0)
+                {
+                    splits.add(Bytes.toString(regionStart));
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            if (_debug) {
+                System.err.println("Error getting the regions of "+table+": "+e);
+            }
+            return null;
+        }
+        finally
+        {
+            if (locator != null)
+            {
+                try
+                {
+                    locator.close();
+                }
+                catch (IOException e)
+                {
+                    // the split keys are known already
+                }
+            }
+        }
+        return splits;
+    }
+
+    /**
+     * Perform a range scan, passing each row to the consumer as the ResultScanner returns it.
+     *
+     * @param table The name of the table
+     * @param startkey The record key of the first record to read.
+     * @param recordcount The number of records to read
+     * @param fields The list of fields to read, or null for all of them
+     * @param consumer The consumer of the records
+     * @return Zero on success, a non-zero error code on error
+     */
+    @Override
+    public int streamScan(String table, String startkey, int recordcount, Set<String> fields, ScanConsumer consumer)
     {
         //if this is a "new" table, init HTable object.  Else, use existing one
         if (!_tableName.equals(table)) {
@@ -328,10 +486,9 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB
                             Bytes.toString(kv.getQualifier()),
                             new ByteArrayByteIterator(kv.getValue()));
                 }
-                //add rowResult to result vector
-                result.add(rowResult);
+                //pass rowResult to the consumer
                 numResults++;
-                if (numResults >= recordcount) //if hit recordcount, bail out
+                if (!consumer.consume(key, rowResult) || numResults >= recordcount) //if hit recordcount or the consumer is done, bail out
                 {
                     break;
                 }
@@ -425,6 +582,57 @@ public class HBaseClient10 extends com.yahoo.ycsb.DB
         return Ok;
     }
 
+    /**
+     * Atomically set a field of a record with a checkAndPut. The put always goes to the region
+     * server directly, even with client side buffering. Counters are incremented with the default
+     * read and compareAndSet loop, since HBase counters are 8 byte longs and YCSB values are strings.
+     *
+     * @param table The name of the table
+     * @param key The record key of the record to write.
+     * @param field The field to compare and set.
+     * @param expected The value the field must have for the write to happen.
+     * @param value The new value of the field.
+     * @return Zero on success, COMPARE_FAILED if the field did not have the expected value, a non-zero error code on error
+     */
+    @Override
+    public int compareAndSet(String table, String key, String field, ByteIterator expected, ByteIterator value)
+    {
+        //if this is a "new" table, init HTable object.  Else, use existing one
+        if (!_tableName.equals(table)) {
+            _table = null;
+            try
+            {
+                getHTable(table);
+                _tableName = table;
+            }
+            catch (IOException e)
+            {
+                System.err.println("Error accessing HBase table: "+e);
+                return ServerError;
+            }
+        }
+
+        byte[] row = Bytes.toBytes(key);
+        byte[] qualifier = Bytes.toBytes(field);
+        Put p = new Put(row);
+        p.setDurability(_durability);
+        p.add(_columnFamilyBytes, qualifier, value.toArray());
+        try
+        {
+            if (_table.checkAndPut(row, _columnFamilyBytes, qualifier, expected.toArray(), p)) {
+                return Ok;
+            }
+            return COMPARE_FAILED;
+        }
+        catch (IOException e)
+        {
+            if (_debug) {
+                System.err.println("Error doing checkAndPut: "+e);
+            }
+            return ServerError;
+        }
+    }
+
     /**
      * Insert a record in the database. Any field/value pairs in the specified values HashMap will be written into the record with the specified
      * record key.
@@ -19,6 +19,7 @@ package com.yahoo.ycsb.db;
 
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.ScanConsumer;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.StringByteIterator;
 
@@ -35,8 +36,9 @@ import java.util.concurrent.ConcurrentMap;
  * not thread safe.
  * 
  * <br> This interface expects a schema <key> <field1> <field2> <field3> ...
- * All attributes are of type VARCHAR. All accesses are through the primary key. Therefore, 
- * only one index on the primary key is needed.
+ * All attributes are of type VARCHAR. All accesses but queries are through the primary key.
+ * Therefore, only one index on the primary key is needed, plus one on the queried field
+ * if the workload has queries.
  * 
  * <p> The following options must be passed when using this database client.
  * 
@@ -56,6 +58,10 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
   private boolean initialized = false;
   private Properties props;
   private Integer jdbcFetchSize;
+  private boolean autoCommit;
+  /** Whether a transaction is open, and whether one of its operations hit a conflict. */
+  private boolean inTransaction = false;
+  private boolean transactionConflict = false;
   private static final String DEFAULT_PROP = "";
   private ConcurrentMap<StatementType, PreparedStatement> cachedStatements;
   
@@ -70,6 +76,8 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
       READ(3),
       UPDATE(4),
       SCAN(5),
+      CAS(6),
+      QUERY(7),
       ;
       int internalType;
       private Type(int type) {
@@ -88,6 +96,11 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
     int shardIndex;
     int numFields;
     String tableName;
+    /**
+     * The column of a CAS or query statement, the comma separated columns of an insert
+     * or update statement, null for the others.
+     */
+    String fieldName;
     
     StatementType(Type type, String tableName, int numFields, int _shardIndex) {
       this.type = type;
@@ -96,6 +109,16 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
       this.shardIndex = _shardIndex;
     }
 
+    StatementType(Type type, String tableName, String fieldName, int _shardIndex) {
+      this(type, tableName, 1, _shardIndex);
+      this.fieldName = fieldName;
+    }
+
+    StatementType(Type type, String tableName, int numFields, String fieldName, int _shardIndex) {
+      this(type, tableName, numFields, _shardIndex);
+      this.fieldName = fieldName;
+    }
+
     @Override
     public int hashCode() {
       final int prime = 31;
@@ -103,6 +126,8 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
       result = prime * result + numFields + 100 * shardIndex;
       result = prime * result
           + ((tableName == null) ? 0 : tableName.hashCode());
+      result = prime * result
+          + ((fieldName == null) ? 0 : fieldName.hashCode());
       result = prime * result + ((type == null) ? 0 : type.getHashCode());
       return result;
     }
@@ -125,6 +150,11 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
           return false;
       } else if (!tableName.equals(other.tableName))
         return false;
+      if (fieldName == null) {
+        if (other.fieldName != null)
+          return false;
+      } else if (!fieldName.equals(other.fieldName))
+        return false;
       if (type != other.type)
         return false;
       return true;
@@ -188,7 +218,20 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
       }
 
       String autoCommitStr = props.getProperty(JDBC_AUTO_COMMIT, Boolean.TRUE.toString());
-      Boolean autoCommit = Boolean.parseBoolean(autoCommitStr);
+      autoCommit = Boolean.parseBoolean(autoCommitStr);
+
+      String isolationStr = props.getProperty(JDBC_ISOLATION);
+      Integer isolation = null;
+      if ("serializable".equals(isolationStr)) {
+        isolation = Connection.TRANSACTION_SERIALIZABLE;
+      } else if ("repeatableread".equals(isolationStr)) {
+        isolation = Connection.TRANSACTION_REPEATABLE_READ;
+      } else if ("readcommitted".equals(isolationStr)) {
+        isolation = Connection.TRANSACTION_READ_COMMITTED;
+      } else if (isolationStr != null) {
+        System.err.println("Invalid JDBC isolation level specified: " + isolationStr);
+        throw new DBException("Invalid " + JDBC_ISOLATION + " " + isolationStr);
+      }
 
       try {
 		  if (driver != null) {
@@ -205,6 +248,9 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
             // (this is necessary in cases such as for PostgreSQL when running a
             // scan workload with fetchSize)
             conn.setAutoCommit(autoCommit);
+            if (isolation != null) {
+              conn.setTransactionIsolation(isolation);
+            }
 
             shardCount++;
             conns.add(conn);
@@ -240,7 +286,11 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
 	throws SQLException {
 	  StringBuilder insert = new StringBuilder("INSERT INTO ");
 	  insert.append(insertType.tableName);
-	  insert.append(" VALUES(?");
+	  insert.append(" (");
+	  insert.append(PRIMARY_KEY);
+	  insert.append(",");
+	  insert.append(insertType.fieldName);
+	  insert.append(") VALUES(?");
     for (int i = 0; i < insertType.numFields; i++) {
       insert.append(",?");
     }
@@ -283,12 +333,8 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
     StringBuilder update = new StringBuilder("UPDATE ");
     update.append(updateType.tableName);
     update.append(" SET ");
-    for (int i = 1; i <= updateType.numFields; i++) {
-      update.append(COLUMN_PREFIX);
-      update.append(i);
-      update.append("=?");
-      if (i < updateType.numFields) update.append(", ");
-    }
+    update.append(updateType.fieldName.replace(",", "=?, "));
+    update.append("=?");
     update.append(" WHERE ");
     update.append(PRIMARY_KEY);
     update.append(" = ?;");
@@ -298,6 +344,39 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
     else return stmt;
   }
 	
+	private PreparedStatement createAndCacheCompareAndSetStatement(StatementType casType, String key)
+	throws SQLException {
+    StringBuilder cas = new StringBuilder("UPDATE ");
+    cas.append(casType.tableName);
+    cas.append(" SET ");
+    cas.append(casType.fieldName);
+    cas.append("=? WHERE ");
+    cas.append(PRIMARY_KEY);
+    cas.append(" = ? AND ");
+    cas.append(casType.fieldName);
+    cas.append(" = ?;");
+    PreparedStatement casStatement = getShardConnectionByKey(key).prepareStatement(cas.toString());
+    PreparedStatement stmt = cachedStatements.putIfAbsent(casType, casStatement);
+    if (stmt == null) return casStatement;
+    else return stmt;
+  }
+	
+	private PreparedStatement createAndCacheQueryStatement(StatementType queryType)
+	throws SQLException {
+	  StringBuilder select = new StringBuilder("SELECT * FROM ");
+    select.append(queryType.tableName);
+    select.append(" WHERE ");
+    select.append(queryType.fieldName);
+    select.append(" >= ? AND ");
+    select.append(queryType.fieldName);
+    select.append(" <= ?;");
+    PreparedStatement queryStatement = conns.get(queryType.shardIndex).prepareStatement(select.toString());
+    if (this.jdbcFetchSize != null) queryStatement.setFetchSize(this.jdbcFetchSize);
+    PreparedStatement stmt = cachedStatements.putIfAbsent(queryType, queryStatement);
+    if (stmt == null) return queryStatement;
+    else return stmt;
+  }
+
 	private PreparedStatement createAndCacheScanStatement(StatementType scanType, String key)
 	throws SQLException {
 	  StringBuilder select = new StringBuilder("SELECT * FROM ");
@@ -344,13 +423,19 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
       return SUCCESS;
     } catch (SQLException e) {
         System.err.println("Error in processing read of table " + tableName + ": "+e);
-      return -2;
+      return errorCode(e, -2);
     }
 	}
 
 	@Override
 	public int scan(String tableName, String startKey, int recordcount,
 			Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+	  return streamScan(tableName, startKey, recordcount, fields, collectInto(result));
+	}
+
+	@Override
+	public int streamScan(String tableName, String startKey, int recordcount,
+			Set<String> fields, ScanConsumer consumer) {
 	  if (tableName == null) {
       return -1;
     }
@@ -366,13 +451,15 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
       scanStatement.setString(1, startKey);
       ResultSet resultSet = scanStatement.executeQuery();
       for (int i = 0; i < recordcount && resultSet.next(); i++) {
-        if (result != null && fields != null) {
-          HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+        HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+        if (fields != null) {
           for (String field : fields) {
             String value = resultSet.getString(field);
             values.put(field, new StringByteIterator(value));
           }
-          result.add(values);
+        }
+        if (!consumer.consume(resultSet.getString(PRIMARY_KEY), values)) {
+          break;
         }
       }
       resultSet.close();
@@ -383,6 +470,57 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
     }
 	}
 
+	/**
+	 * Query every shard for the rows whose field is between lowValue and highValue, until
+	 * limit rows are found.
+	 */
+	@Override
+	public int query(String tableName, String field, String lowValue, String highValue,
+			int limit, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+	  if (tableName == null || field == null) {
+      return -1;
+    }
+    try {
+      for (int shard = 0; shard < conns.size() && result.size() < limit; shard++) {
+        StatementType type = new StatementType(StatementType.Type.QUERY, tableName, field, shard);
+        PreparedStatement queryStatement = cachedStatements.get(type);
+        if (queryStatement == null) {
+          queryStatement = createAndCacheQueryStatement(type);
+        }
+        queryStatement.setString(1, lowValue);
+        queryStatement.setString(2, highValue);
+        queryStatement.setMaxRows(limit - result.size());
+        ResultSet resultSet = queryStatement.executeQuery();
+        while (resultSet.next()) {
+          HashMap<String, ByteIterator> values = new HashMap<String, ByteIterator>();
+          if (fields != null) {
+            for (String f : fields) {
+              values.put(f, new StringByteIterator(resultSet.getString(f)));
+            }
+          }
+          result.add(values);
+        }
+        resultSet.close();
+      }
+      return SUCCESS;
+    } catch (SQLException e) {
+      System.err.println("Error in processing query of table: " + tableName + e);
+      return -2;
+    }
+	}
+
+	/**
+	 * The comma separated columns of the values, in the order they are bound to a statement.
+	 */
+	private static String columnsOf(HashMap<String, ByteIterator> values) {
+	  StringBuilder columns = new StringBuilder();
+	  for (String field : values.keySet()) {
+	    if (columns.length() > 0) columns.append(",");
+	    columns.append(field);
+	  }
+	  return columns.toString();
+	}
+
 	@Override
 	public int update(String tableName, String key, HashMap<String, ByteIterator> values) {
 	  if (tableName == null) {
@@ -393,7 +531,7 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
     }
     try {
       int numFields = values.size();
-      StatementType type = new StatementType(StatementType.Type.UPDATE, tableName, numFields, getShardIndexByKey(key));
+      StatementType type = new StatementType(StatementType.Type.UPDATE, tableName, numFields, columnsOf(values), getShardIndexByKey(key));
       PreparedStatement updateStatement = cachedStatements.get(type);
       if (updateStatement == null) {
         updateStatement = createAndCacheUpdateStatement(type, key);
@@ -408,6 +546,34 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
       else return 1;
     } catch (SQLException e) {
       System.err.println("Error in processing update to table: " + tableName + e);
+      return errorCode(e, -1);
+    }
+	}
+
+	@Override
+	public int compareAndSet(String tableName, String key, String field,
+			ByteIterator expected, ByteIterator value) {
+	  if (tableName == null) {
+      return -1;
+    }
+    if (key == null || field == null) {
+      return -1;
+    }
+    try {
+      StatementType type = new StatementType(StatementType.Type.CAS, tableName, field, getShardIndexByKey(key));
+      PreparedStatement casStatement = cachedStatements.get(type);
+      if (casStatement == null) {
+        casStatement = createAndCacheCompareAndSetStatement(type, key);
+      }
+      casStatement.setString(1, value.toString());
+      casStatement.setString(2, key);
+      casStatement.setString(3, expected.toString());
+      int result = casStatement.executeUpdate();
+      // no row matched: either the value changed or the record is missing
+      if (result == 1) return SUCCESS;
+      else return COMPARE_FAILED;
+    } catch (SQLException e) {
+      System.err.println("Error in processing compare and set to table: " + tableName + e);
       return -1;
     }
 	}
@@ -422,7 +588,7 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
 	  }
 	  try {
 	    int numFields = values.size();
-	    StatementType type = new StatementType(StatementType.Type.INSERT, tableName, numFields, getShardIndexByKey(key));
+	    StatementType type = new StatementType(StatementType.Type.INSERT, tableName, numFields, columnsOf(values), getShardIndexByKey(key));
 	    PreparedStatement insertStatement = cachedStatements.get(type);
 	    if (insertStatement == null) {
 	      insertStatement = createAndCacheInsertStatement(type, key);
@@ -438,7 +604,7 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
       else return 1;
     } catch (SQLException e) {
       System.err.println("Error in processing insert to table: " + tableName + e);
-      return -1;
+      return errorCode(e, -1);
     }
 	}
 
@@ -465,4 +631,102 @@ public class JdbcDBClient extends DB implements JdbcDBClientConstants {
       return -1;
     }
 	}
+
+	/**
+	 * Start a transaction on all the shards. Commits are not coordinated between shards, so
+	 * transactions are only atomic with a single shard.
+	 */
+	@Override
+	public int beginTransaction() {
+	  if (inTransaction) {
+	    return -1;
+	  }
+	  try {
+	    for (Connection conn : conns) {
+	      conn.setAutoCommit(false);
+	    }
+	    inTransaction = true;
+	    transactionConflict = false;
+	    return SUCCESS;
+	  } catch (SQLException e) {
+	    System.err.println("Error in beginning a transaction: " + e);
+	    return -1;
+	  }
+	}
+
+	@Override
+	public int commitTransaction() {
+	  if (!inTransaction) {
+	    return -1;
+	  }
+	  if (transactionConflict) {
+	    abortTransaction();
+	    return TRANSACTION_ABORTED;
+	  }
+	  try {
+	    for (Connection conn : conns) {
+	      conn.commit();
+	    }
+	    return endTransaction(SUCCESS);
+	  } catch (SQLException e) {
+	    int ret = errorCode(e, -1);
+	    if (ret != TRANSACTION_ABORTED) {
+	      System.err.println("Error in committing a transaction: " + e);
+	    }
+	    rollbackAll();
+	    return endTransaction(ret);
+	  }
+	}
+
+	@Override
+	public int abortTransaction() {
+	  if (!inTransaction) {
+	    return -1;
+	  }
+	  return endTransaction(rollbackAll());
+	}
+
+	private int rollbackAll() {
+	  int ret = SUCCESS;
+	  for (Connection conn : conns) {
+	    try {
+	      conn.rollback();
+	    } catch (SQLException e) {
+	      System.err.println("Error in rolling back a transaction: " + e);
+	      ret = -1;
+	    }
+	  }
+	  return ret;
+	}
+
+	/**
+	 * Return the connections to the configured auto-commit mode after a transaction.
+	 */
+	private int endTransaction(int ret) {
+	  inTransaction = false;
+	  transactionConflict = false;
+	  try {
+	    for (Connection conn : conns) {
+	      conn.setAutoCommit(autoCommit);
+	    }
+	  } catch (SQLException e) {
+	    System.err.println("Error in ending a transaction: " + e);
+	    return ret == SUCCESS ? -1 : ret;
+	  }
+	  return ret;
+	}
+
+	/**
+	 * The return code of a failed operation: TRANSACTION_ABORTED if it is in a transaction
+	 * that was rolled back by a serialization failure or a deadlock (SQL state class 40),
+	 * else the given code.
+	 */
+	private int errorCode(SQLException e, int code) {
+	  String state = e.getSQLState();
+	  if (inTransaction && state != null && state.startsWith("40")) {
+	    transactionConflict = true;
+	    return TRANSACTION_ABORTED;
+	  }
+	  return code;
+	}
 }
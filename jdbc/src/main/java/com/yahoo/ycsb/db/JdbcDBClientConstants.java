@@ -42,6 +42,12 @@ public interface JdbcDBClientConstants {
   /** The JDBC connection auto-commit property for the driver. */
   public static final String JDBC_AUTO_COMMIT = "jdbc.autocommit";
 
+  /**
+   * The isolation level of transactions: serializable, repeatableread, readcommitted
+   * or the default of the database if unset.
+   */
+  public static final String JDBC_ISOLATION = "jdbc.isolation";
+
   /** The name of the property for the number of fields in a record. */
   public static final String FIELD_COUNT_PROPERTY="fieldcount";
   
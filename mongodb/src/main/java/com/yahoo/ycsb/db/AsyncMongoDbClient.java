@@ -415,6 +415,66 @@ public class AsyncMongoDbClient extends DB {
     }
   }
 
+  /**
+   * Query the documents by the value of a field, which should be indexed.
+   * Values are stored as binary, which MongoDB compares by length first, so
+   * ranges are only meaningful for values of the same length.
+   * 
+   * @param table
+   *          The name of the table
+   * @param field
+   *          The field to filter on.
+   * @param lowvalue
+   *          The lowest value of the field, inclusive.
+   * @param highvalue
+   *          The highest value of the field, inclusive.
+   * @param limit
+   *          The largest number of documents to return.
+   * @param fields
+   *          The list of fields to read, or null for all of them
+   * @param result
+   *          A Vector of HashMaps, where each HashMap is a set field/value
+   *          pairs for one record
+   * @return Zero on success, a non-zero error code on error.
+   */
+  @Override
+  public final int query(final String table, final String field,
+      final String lowvalue, final String highvalue, final int limit,
+      final Set<String> fields,
+      final Vector<HashMap<String, ByteIterator>> result) {
+    try {
+      final MongoCollection collection = database.getCollection(table);
+
+      final Find.Builder find =
+          Find.builder()
+              .query(where(field).greaterThanOrEqualTo(lowvalue.getBytes())
+                  .lessThanOrEqualTo(highvalue.getBytes()))
+              .limit(limit).batchSize(limit).readPreference(readPreference);
+
+      if (fields != null) {
+        final DocumentBuilder fieldsDoc = BuilderFactory.start();
+        for (final String f : fields) {
+          fieldsDoc.add(f, INCLUDE);
+        }
+
+        find.projection(fieldsDoc);
+      }
+
+      final MongoIterator<Document> cursor = collection.find(find);
+      while (cursor.hasNext()) {
+        final HashMap<String, ByteIterator> docAsMap =
+            new HashMap<String, ByteIterator>();
+        fillMap(docAsMap, cursor.next());
+        result.add(docAsMap);
+      }
+
+      return 0;
+    } catch (final Exception e) {
+      System.err.println(e.toString());
+      return 1;
+    }
+  }
+
   /**
    * Update a record in the database. Any field/value pairs in the specified
    * values HashMap will be written into the record with the specified record
@@ -35,6 +35,7 @@ import com.yahoo.ycsb.ByteArrayByteIterator;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
+import com.yahoo.ycsb.ScanConsumer;
 
 /**
  * MongoDB asynchronous client for YCSB framework using the MongoDB Inc. <a
@@ -320,6 +321,32 @@ public class MongoDbClient extends DB {
   @Override
   public int scan(String table, String startkey, int recordcount,
       Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+    if (result != null) {
+      result.ensureCapacity(recordcount);
+    }
+    return streamScan(table, startkey, recordcount, fields,
+        collectInto(result));
+  }
+
+  /**
+   * Perform a range scan, passing each document to the consumer as the
+   * cursor returns it.
+   * 
+   * @param table
+   *          The name of the table
+   * @param startkey
+   *          The record key of the first record to read.
+   * @param recordcount
+   *          The number of records to read
+   * @param fields
+   *          The list of fields to read, or null for all of them
+   * @param consumer
+   *          The consumer of the records
+   * @return Zero on success, a non-zero error code on error.
+   */
+  @Override
+  public int streamScan(String table, String startkey, int recordcount,
+      Set<String> fields, ScanConsumer consumer) {
     MongoCursor<Document> cursor = null;
     try {
       MongoCollection<Document> collection = database.getCollection(table);
@@ -346,8 +373,6 @@ public class MongoDbClient extends DB {
         return 1;
       }
 
-      result.ensureCapacity(recordcount);
-
       while (cursor.hasNext()) {
         HashMap<String, ByteIterator> resultMap =
             new HashMap<String, ByteIterator>();
@@ -355,6 +380,77 @@ public class MongoDbClient extends DB {
         Document obj = cursor.next();
         fillMap(resultMap, obj);
 
+        if (!consumer.consume(String.valueOf(obj.get("_id")), resultMap)) {
+          break;
+        }
+      }
+
+      return 0;
+    } catch (Exception e) {
+      System.err.println(e.toString());
+      return 1;
+    } finally {
+      if (cursor != null) {
+        cursor.close();
+      }
+    }
+  }
+
+  /**
+   * Query the documents by the value of a field, which should be indexed.
+   * Values are stored as binary, which MongoDB compares by length first, so
+   * ranges are only meaningful for values of the same length.
+   * 
+   * @param table
+   *          The name of the table
+   * @param field
+   *          The field to filter on.
+   * @param lowvalue
+   *          The lowest value of the field, inclusive.
+   * @param highvalue
+   *          The highest value of the field, inclusive.
+   * @param limit
+   *          The largest number of documents to return.
+   * @param fields
+   *          The list of fields to read, or null for all of them
+   * @param result
+   *          A Vector of HashMaps, where each HashMap is a set field/value
+   *          pairs for one record
+   * @return Zero on success, a non-zero error code on error.
+   */
+  @Override
+  public int query(String table, String field, String lowvalue,
+      String highvalue, int limit, Set<String> fields,
+      Vector<HashMap<String, ByteIterator>> result) {
+    MongoCursor<Document> cursor = null;
+    try {
+      MongoCollection<Document> collection = database.getCollection(table);
+
+      Document query;
+      if (lowvalue.equals(highvalue)) {
+        query = new Document(field, new Binary(lowvalue.getBytes()));
+      } else {
+        Document range = new Document("$gte", new Binary(lowvalue.getBytes()))
+            .append("$lte", new Binary(highvalue.getBytes()));
+        query = new Document(field, range);
+      }
+
+      FindIterable<Document> findIterable =
+          collection.find(query).limit(limit);
+
+      if (fields != null) {
+        Document projection = new Document();
+        for (String fieldName : fields) {
+          projection.put(fieldName, INCLUDE);
+        }
+        findIterable.projection(projection);
+      }
+
+      cursor = findIterable.iterator();
+      while (cursor.hasNext()) {
+        HashMap<String, ByteIterator> resultMap =
+            new HashMap<String, ByteIterator>();
+        fillMap(resultMap, cursor.next());
         result.add(resultMap);
       }
 
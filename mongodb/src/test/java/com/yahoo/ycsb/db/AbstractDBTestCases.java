@@ -27,8 +27,10 @@ import static org.junit.Assume.assumeNoException;
 import java.io.IOException;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Set;
 import java.util.Vector;
 
@@ -38,6 +40,7 @@ import org.junit.Test;
 import com.yahoo.ycsb.ByteArrayByteIterator;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
+import com.yahoo.ycsb.ScanConsumer;
 
 /**
  * MongoDbClientTest provides runs the basic DB test cases.
@@ -238,6 +241,106 @@ public abstract class AbstractDBTestCases {
     }
   }
 
+  /**
+   * Test method for {@link DB#streamScan}.
+   */
+  @Test
+  public void testStreamScan() {
+    final DB client = getDB();
+
+    final String table = getClass().getSimpleName();
+
+    // Insert a bunch of documents.
+    for (int i = 0; i < 100; ++i) {
+      HashMap<String, ByteIterator> inserted =
+          new HashMap<String, ByteIterator>();
+      inserted.put("a", new ByteArrayByteIterator(new byte[] {
+          (byte) (i & 0xFF), (byte) (i >> 8 & 0xFF), (byte) (i >> 16 & 0xFF),
+          (byte) (i >> 24 & 0xFF) }));
+      int result = client.insert(table, padded(i), inserted);
+      assertThat("Insert did not return success (0).", result, is(0));
+    }
+
+    final List<String> keys = new ArrayList<String>();
+    final List<HashMap<String, ByteIterator>> records =
+        new ArrayList<HashMap<String, ByteIterator>>();
+    int result = client.streamScan(table, "00050", 5, null, new ScanConsumer() {
+      @Override
+      public boolean consume(String key, HashMap<String, ByteIterator> values) {
+        keys.add(key);
+        records.add(values);
+        return true;
+      }
+    });
+    assertThat("Stream scan did not return success (0).", result, is(0));
+    assertThat(records.size(), is(5));
+    for (int i = 0; i < 5; ++i) {
+      if (keys.get(i) != null) {
+        assertThat(keys.get(i), is(padded(i + 50)));
+      }
+      ByteIterator iter = records.get(i).get("a");
+
+      assertThat("Did not read the inserted field: a", iter, notNullValue());
+      assertTrue(iter.hasNext());
+      assertThat(iter.nextByte(), is(Byte.valueOf((byte) ((i + 50) & 0xFF))));
+    }
+
+    // End the scan early from the consumer.
+    records.clear();
+    result = client.streamScan(table, "00050", 5, null, new ScanConsumer() {
+      @Override
+      public boolean consume(String key, HashMap<String, ByteIterator> values) {
+        records.add(values);
+        return records.size() < 2;
+      }
+    });
+    assertThat("Stream scan did not return success (0).", result, is(0));
+    assertThat("Stream scan did not stop when asked to.", records.size(),
+        is(2));
+  }
+
+  /**
+   * Test method for {@link DB#query}.
+   */
+  @Test
+  public void testQuery() {
+    final DB client = getDB();
+
+    final String table = getClass().getSimpleName();
+
+    // Insert a bunch of documents with values of the same length, as MongoDB
+    // compares binary values by length first.
+    for (int i = 0; i < 100; ++i) {
+      HashMap<String, ByteIterator> inserted =
+          new HashMap<String, ByteIterator>();
+      inserted.put("q", new ByteArrayByteIterator(("v" + padded(i)).getBytes()));
+      int result = client.insert(table, "query" + padded(i), inserted);
+      assertThat("Insert did not return success (0).", result, is(0));
+    }
+
+    Vector<HashMap<String, ByteIterator>> results =
+        new Vector<HashMap<String, ByteIterator>>();
+    int result = client.query(table, "q", "v00042", "v00042", 10, null, results);
+    assertThat("Query did not return success (0).", result, is(0));
+    assertThat(results.size(), is(1));
+    assertThat(results.get(0).get("q").toString(), is("v00042"));
+
+    results.clear();
+    result = client.query(table, "q", "v00010", "v00014", 10, null, results);
+    assertThat("Query did not return success (0).", result, is(0));
+    assertThat(results.size(), is(5));
+    for (HashMap<String, ByteIterator> read : results) {
+      String value = read.get("q").toString();
+      assertTrue("Value out of the queried range: " + value,
+          value.compareTo("v00010") >= 0 && value.compareTo("v00014") <= 0);
+    }
+
+    results.clear();
+    result = client.query(table, "q", "v00010", "v00014", 2, null, results);
+    assertThat("Query did not return success (0).", result, is(0));
+    assertThat("Query did not honor the limit.", results.size(), is(2));
+  }
+
   /**
    * Gets the test DB.
    * 
@@ -15,12 +15,15 @@ import com.orientechnologies.orient.core.index.OIndexCursor;
 import com.orientechnologies.orient.core.intent.OIntentMassiveInsert;
 import com.orientechnologies.orient.core.record.ORecordInternal;
 import com.orientechnologies.orient.core.record.impl.ODocument;
+import com.orientechnologies.orient.core.sql.query.OSQLSynchQuery;
 import com.yahoo.ycsb.ByteIterator;
 import com.yahoo.ycsb.DB;
 import com.yahoo.ycsb.DBException;
 import com.yahoo.ycsb.StringByteIterator;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.Properties;
 import java.util.Set;
@@ -230,4 +233,38 @@ public class OrientDBClient extends DB {
     }
     return 1;
   }
+
+  @Override
+  /**
+   * Query the documents by the value of a field with an SQL query, which uses an index on the field if there is one.
+   *
+   * @param table The name of the table
+   * @param field The field to filter on.
+   * @param lowvalue The lowest value of the field, inclusive.
+   * @param highvalue The highest value of the field, inclusive.
+   * @param limit The largest number of documents to return.
+   * @param fields The list of fields to read, or null for all of them
+   * @param result A Vector of HashMaps, where each HashMap is a set field/value pairs for one record
+   * @return Zero on success, a non-zero error code on error.
+   */
+  public int query(String table, String field, String lowvalue, String highvalue, int limit, Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {
+    try {
+      final boolean equality = lowvalue.equals(highvalue);
+      final String sql = "select from " + CLASS + " where " + field + (equality ? " = ?" : " between ? and ?") + " limit " + limit;
+      final Object[] params = equality ? new Object[] { lowvalue } : new Object[] { lowvalue, highvalue };
+      final List<ODocument> documents = db.query(new OSQLSynchQuery<ODocument>(sql), params);
+      for (ODocument document : documents) {
+        final HashMap<String, ByteIterator> map = new HashMap<String, ByteIterator>();
+        result.add(map);
+
+        for (String f : fields != null ? fields : Arrays.asList(document.fieldNames()))
+          map.put(f, new StringByteIterator((String) document.field(f)));
+      }
+
+      return 0;
+    } catch (Exception e) {
+      e.printStackTrace();
+    }
+    return 1;
+  }
 }
@@ -21,6 +21,8 @@ import java.util.Vector;
 
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.Protocol;
+import redis.clients.jedis.Transaction;
+import redis.clients.jedis.exceptions.JedisDataException;
 
 public class RedisClient extends DB {
 
@@ -100,6 +102,15 @@ public class RedisClient extends DB {
         return 1;
     }
 
+    @Override
+    public int insert(String table, String key, HashMap<String, ByteIterator> values, int ttl) {
+        if (update(table, key, values, ttl) == 0) {
+            jedis.zadd(INDEX_KEY, hash(key), key);
+            return 0;
+        }
+        return 1;
+    }
+
     @Override
     public int delete(String table, String key) {
         return jedis.del(key) == 0
@@ -112,6 +123,43 @@ public class RedisClient extends DB {
         return jedis.hmset(key, StringByteIterator.getStringMap(values)).equals("OK") ? 0 : 1;
     }
 
+    @Override
+    public int update(String table, String key, HashMap<String, ByteIterator> values, int ttl) {
+        // the index is not expired with the record, so scans may find expired keys
+        Transaction t = jedis.multi();
+        t.hmset(key, StringByteIterator.getStringMap(values));
+        t.expire(key, ttl);
+        List<Object> replies = t.exec();
+        return replies != null && !replies.isEmpty() && "OK".equals(replies.get(0)) ? 0 : 1;
+    }
+
+    @Override
+    public int compareAndSet(String table, String key, String field,
+            ByteIterator expected, ByteIterator value) {
+        jedis.watch(key);
+        if (!expected.toString().equals(jedis.hget(key, field))) {
+            jedis.unwatch();
+            return COMPARE_FAILED;
+        }
+        Transaction t = jedis.multi();
+        t.hset(key, field, value.toString());
+        List<Object> replies = t.exec();
+        // exec() gives no replies if the watched key changed
+        return replies == null || replies.isEmpty() ? COMPARE_FAILED : 0;
+    }
+
+    @Override
+    public int increment(String table, String key, String field, long delta) {
+        try {
+            jedis.hincrBy(key, field, delta);
+            return 0;
+        }
+        catch (JedisDataException e) {
+            // the field does not hold an integer
+            return 1;
+        }
+    }
+
     @Override
     public int scan(String table, String startkey, int recordcount,
             Set<String> fields, Vector<HashMap<String, ByteIterator>> result) {